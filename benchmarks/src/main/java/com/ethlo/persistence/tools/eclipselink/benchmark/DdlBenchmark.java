@@ -0,0 +1,87 @@
+package com.ethlo.persistence.tools.eclipselink.benchmark;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ethlo.persistence.tools.eclipselink.SchemaGenerator;
+
+/**
+ * DDL script generation for all managed classes of the model, without scanning for them
+ *
+ * @author Morten Haraldsen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DdlBenchmark
+{
+    private URLClassLoader classLoader;
+    private SchemaGenerator schemaGenerator;
+
+    @Setup(Level.Trial)
+    public void setup(ModelState state) throws IOException
+    {
+        classLoader = new URLClassLoader(new URL[]{state.model.getClassesDir().toUri().toURL()}, getClass().getClassLoader());
+        final Path outputDir = state.model.createOutputDirectory("ddl");
+        schemaGenerator = new SchemaGenerator("MySQL", null, null,
+                outputDir.resolve("ddl.sql").toUri().toString(),
+                outputDir.resolve("ddl-drop.sql").toUri().toString(),
+                PersistenceUnitProperties.SCHEMA_GENERATION_DROP_AND_CREATE_ACTION,
+                new DefaultLog(new ConsoleLogger(Logger.LEVEL_WARN, "ddl")));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        classLoader.close();
+    }
+
+    @Benchmark
+    public int ddl(ModelState state)
+    {
+        return schemaGenerator.generateSchema(classLoader, state.model.getManagedClassNames());
+    }
+}
@@ -0,0 +1,97 @@
+package com.ethlo.persistence.tools.eclipselink.benchmark;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Meta-model generation of the model sources, running the annotation processor the same way as the modelgen goal
+ *
+ * @author Morten Haraldsen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModelGenBenchmark
+{
+    private final String processor = org.hibernate.jpamodelgen.JPAMetaModelEntityProcessor.class.getName();
+    private JavaCompiler compiler;
+    private Path generatedSourcesDir;
+    private List<Path> sourceFiles;
+
+    @Setup(Level.Trial)
+    public void setup(ModelState state) throws IOException
+    {
+        compiler = ToolProvider.getSystemJavaCompiler();
+        sourceFiles = state.model.getSourceFiles();
+    }
+
+    /**
+     * Start every invocation with an empty output directory, like a clean build
+     */
+    @Setup(Level.Invocation)
+    public void clean(ModelState state) throws IOException
+    {
+        generatedSourcesDir = state.model.createOutputDirectory("generated-sources");
+    }
+
+    @Benchmark
+    public Boolean modelgen(ModelState state) throws IOException
+    {
+        final List<String> options = List.of("-cp", System.getProperty("java.class.path"), "-proc:only", "-processor", processor,
+                "-d", generatedSourcesDir.toString(), "-sourcepath", state.model.getSourceDir().toString());
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8))
+        {
+            final Boolean success = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromPaths(sourceFiles)).call();
+            if (!success)
+            {
+                throw new IllegalStateException("Meta-model generation failed: " + diagnostics.getDiagnostics());
+            }
+            return success;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.ethlo.persistence.tools.eclipselink.benchmark;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The synthetic entity model shared by the benchmarks of one trial
+ *
+ * @author Morten Haraldsen
+ */
+@State(Scope.Benchmark)
+public class ModelState
+{
+    @Param({"100", "1000", "10000"})
+    public int entities;
+
+    /**
+     * Classes without JPA annotations per entity, to measure how well the scan skips them. With 10000 entities the
+     * classes directory has 50k classes
+     */
+    @Param({"4"})
+    public int plainClassesPerEntity;
+
+    public SyntheticModel model;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        model = SyntheticModel.generate(entities, plainClassesPerEntity);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        model.close();
+    }
+}
@@ -0,0 +1,62 @@
+package com.ethlo.persistence.tools.eclipselink.benchmark;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ethlo.persistence.tools.eclipselink.PersistenceXmlDocument;
+import com.ethlo.persistence.tools.eclipselink.PersistenceXmlHelper;
+
+/**
+ * Parsing and rendering of a persistence.xml listing all classes of the model
+ *
+ * @author Morten Haraldsen
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersistenceXmlBenchmark
+{
+    @Benchmark
+    public PersistenceXmlDocument parse(ModelState state)
+    {
+        return PersistenceXmlHelper.parseXml(state.model.getPersistenceXml());
+    }
+
+    @Benchmark
+    public byte[] write(ModelState state)
+    {
+        final PersistenceXmlDocument doc = PersistenceXmlHelper.createXml("default");
+        PersistenceXmlHelper.appendClasses(doc, new TreeSet<>(state.model.getManagedClassNames()));
+        return doc.toBytes();
+    }
+}
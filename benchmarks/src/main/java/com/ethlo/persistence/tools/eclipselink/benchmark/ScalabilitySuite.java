@@ -0,0 +1,443 @@
+package com.ethlo.persistence.tools.eclipselink.benchmark;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Runs the weave, modelgen and ddl goals end-to-end on generated multi-module projects and checks the wall time and
+ * peak memory against the budgets in a properties file.
+ * <p>
+ * Each scenario generates a project with a number of modules, each with its own entity model, and a number of filler
+ * jars on the class-path of every module. The project is built offline with Maven, using the plugin version these
+ * benchmarks are built against and a capped heap. The total wall time and the peak resident set size of the Maven
+ * process, and the wall time per goal summed over the modules from the build reports, are compared to the budgets.
+ * The peak resident set size is read from <code>/proc</code>, so it is only checked on Linux.
+ * <p>
+ * Usage: <code>ScalabilitySuite [budgets file] [scenario...]</code>, scenarios may also be comma separated. The exit
+ * code is 1 if a budget is exceeded. The <code>scalability</code> profile of the benchmarks build runs it in the
+ * <code>verify</code> phase, failing the build when a budget is exceeded.
+ *
+ * @author Morten Haraldsen
+ */
+public class ScalabilitySuite
+{
+    private static final String PLUGIN_POM_PROPERTIES = "/META-INF/maven/com.ethlo.persistence.tools/eclipselink-maven-plugin/pom.properties";
+    private static final String[] GOALS = {"modelgen", "weave", "ddl"};
+    private static final Pattern WALL_MILLIS = Pattern.compile("\"wallMillis\": (\\d+)");
+    private static final Pattern GOAL = Pattern.compile("\"goal\": \"([^\"]+)\"");
+
+    private final Properties config;
+    private final String pluginVersion;
+
+    public ScalabilitySuite(Properties config, String pluginVersion)
+    {
+        this.config = config;
+        this.pluginVersion = pluginVersion;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        final Path budgetsFile = Paths.get(args.length > 0 ? args[0] : "scalability-budgets.properties");
+        final Properties config = new Properties();
+        try (final Reader reader = Files.newBufferedReader(budgetsFile, StandardCharsets.UTF_8))
+        {
+            config.load(reader);
+        }
+
+        final List<String> scenarios = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            for (String scenario : args[i].split("\\s*,\\s*"))
+            {
+                if (!scenario.isBlank())
+                {
+                    scenarios.add(scenario.trim());
+                }
+            }
+        }
+        if (scenarios.isEmpty())
+        {
+            scenarios.addAll(List.of(config.getProperty("scenarios").split("\\s*,\\s*")));
+        }
+
+        final ScalabilitySuite suite = new ScalabilitySuite(config, getPluginVersion());
+        boolean success = true;
+        for (String scenario : scenarios)
+        {
+            success &= suite.run(scenario);
+        }
+        System.exit(success ? 0 : 1);
+    }
+
+    private static String getPluginVersion() throws IOException
+    {
+        try (final InputStream in = ScalabilitySuite.class.getResourceAsStream(PLUGIN_POM_PROPERTIES))
+        {
+            if (in == null)
+            {
+                throw new IllegalStateException("The eclipselink-maven-plugin is not on the class-path");
+            }
+            final Properties properties = new Properties();
+            properties.load(in);
+            return properties.getProperty("version");
+        }
+    }
+
+    /**
+     * @return true if the scenario stayed within its budgets
+     */
+    public boolean run(String scenario) throws IOException, InterruptedException
+    {
+        final int modules = getInt(scenario, "modules");
+        final int entitiesPerModule = getInt(scenario, "entitiesPerModule");
+        final int plainClassesPerEntity = getInt(scenario, "plainClassesPerEntity");
+        final int jars = getInt(scenario, "jars");
+        final int classesPerJar = getInt(scenario, "classesPerJar");
+        final String xmx = config.getProperty(scenario + ".xmx");
+
+        System.out.println("Scenario " + scenario + ": " + modules + " modules with " + entitiesPerModule + " entities, " + jars + " jars, -Xmx" + xmx);
+        final Path projectDir = Files.createTempDirectory("scalability-" + scenario + "-");
+        try
+        {
+            generateProject(projectDir, modules, entitiesPerModule, plainClassesPerEntity, jars, classesPerJar);
+
+            final Map<String, Long> measured = new LinkedHashMap<>();
+            final long start = System.nanoTime();
+            final BuildResult result = build(projectDir, xmx);
+            measured.put("wallMillis", (System.nanoTime() - start) / 1_000_000);
+            if (result.peakRssKb >= 0)
+            {
+                measured.put("peakRssMb", result.peakRssKb / 1024);
+            }
+            if (result.exitCode != 0)
+            {
+                System.out.println("  FAILED: Maven exited with " + result.exitCode + ", see " + projectDir.resolve("build.log"));
+                return false;
+            }
+            readGoalTimes(projectDir, measured);
+
+            boolean success = true;
+            for (Map.Entry<String, Long> e : measured.entrySet())
+            {
+                final String budget = config.getProperty(scenario + ".budget." + e.getKey());
+                final boolean exceeded = budget != null && e.getValue() > Long.parseLong(budget.trim());
+                System.out.println("  " + e.getKey() + ": " + e.getValue() + (budget != null ? " (budget " + budget.trim() + ")" : "") + (exceeded ? " EXCEEDED" : ""));
+                success &= !exceeded;
+            }
+            if (success)
+            {
+                deleteDirectory(projectDir);
+            }
+            else
+            {
+                System.out.println("  Project kept in " + projectDir);
+            }
+            return success;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            System.out.println("  Project kept in " + projectDir);
+            throw e;
+        }
+    }
+
+    private int getInt(String scenario, String name)
+    {
+        final String value = config.getProperty(scenario + "." + name);
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Missing " + scenario + "." + name);
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    private void generateProject(Path projectDir, int modules, int entitiesPerModule, int plainClassesPerEntity, int jars, int classesPerJar) throws IOException
+    {
+        final List<Path> jarFiles = generateJars(projectDir.resolve("lib"), jars, classesPerJar);
+
+        final StringBuilder moduleList = new StringBuilder();
+        for (int m = 0; m < modules; m++)
+        {
+            final String module = "module-" + m;
+            moduleList.append("        <module>").append(module).append("</module>\n");
+            final Path moduleDir = projectDir.resolve(module);
+            SyntheticModel.writeSources(moduleDir.resolve("src/main/java"), "bench.m" + m, entitiesPerModule, plainClassesPerEntity);
+
+            final StringBuilder dependencies = new StringBuilder();
+            for (Path jar : jarFiles)
+            {
+                final String name = jar.getFileName().toString().replace(".jar", "");
+                dependencies.append("        <dependency>\n")
+                        .append("            <groupId>bench.lib</groupId>\n")
+                        .append("            <artifactId>").append(name).append("</artifactId>\n")
+                        .append("            <version>1.0</version>\n")
+                        .append("            <scope>system</scope>\n")
+                        .append("            <systemPath>${maven.multiModuleProjectDirectory}/lib/").append(jar.getFileName()).append("</systemPath>\n")
+                        .append("        </dependency>\n");
+            }
+
+            Files.writeString(moduleDir.resolve("pom.xml"), "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+                    + "    <modelVersion>4.0.0</modelVersion>\n"
+                    + "    <parent>\n"
+                    + "        <groupId>bench</groupId>\n"
+                    + "        <artifactId>parent</artifactId>\n"
+                    + "        <version>1.0</version>\n"
+                    + "    </parent>\n"
+                    + "    <artifactId>" + module + "</artifactId>\n"
+                    + "    <dependencies>\n" + dependencies + "    </dependencies>\n"
+                    + "    <build>\n"
+                    + "        <plugins>\n"
+                    + "            <plugin>\n"
+                    + "                <groupId>com.ethlo.persistence.tools</groupId>\n"
+                    + "                <artifactId>eclipselink-maven-plugin</artifactId>\n"
+                    + "                <configuration>\n"
+                    + "                    <basePackage>bench.m" + m + "</basePackage>\n"
+                    + "                </configuration>\n"
+                    + "            </plugin>\n"
+                    + "        </plugins>\n"
+                    + "    </build>\n"
+                    + "</project>\n", StandardCharsets.UTF_8);
+        }
+
+        Files.writeString(projectDir.resolve("pom.xml"), "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+                + "    <modelVersion>4.0.0</modelVersion>\n"
+                + "    <groupId>bench</groupId>\n"
+                + "    <artifactId>parent</artifactId>\n"
+                + "    <version>1.0</version>\n"
+                + "    <packaging>pom</packaging>\n"
+                + "    <properties>\n"
+                + "        <maven.compiler.release>17</maven.compiler.release>\n"
+                + "        <project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>\n"
+                + "    </properties>\n"
+                + "    <modules>\n" + moduleList + "    </modules>\n"
+                + "    <dependencies>\n"
+                + "        <dependency>\n"
+                + "            <groupId>org.eclipse.persistence</groupId>\n"
+                + "            <artifactId>org.eclipse.persistence.jpa</artifactId>\n"
+                + "            <version>" + org.eclipse.persistence.Version.getVersion() + "</version>\n"
+                + "        </dependency>\n"
+                + "    </dependencies>\n"
+                + "    <build>\n"
+                + "        <pluginManagement>\n"
+                + "            <plugins>\n"
+                + "                <plugin>\n"
+                + "                    <groupId>com.ethlo.persistence.tools</groupId>\n"
+                + "                    <artifactId>eclipselink-maven-plugin</artifactId>\n"
+                + "                    <version>" + pluginVersion + "</version>\n"
+                + "                    <executions>\n"
+                + "                        <execution>\n"
+                + "                            <id>modelgen</id>\n"
+                + "                            <goals><goal>modelgen</goal></goals>\n"
+                + "                        </execution>\n"
+                + "                        <execution>\n"
+                + "                            <id>weave</id>\n"
+                + "                            <goals><goal>weave</goal></goals>\n"
+                + "                        </execution>\n"
+                + "                        <execution>\n"
+                + "                            <id>ddl</id>\n"
+                + "                            <goals><goal>ddl</goal></goals>\n"
+                + "                            <configuration><databaseProductName>MySQL</databaseProductName></configuration>\n"
+                + "                        </execution>\n"
+                + "                    </executions>\n"
+                + "                </plugin>\n"
+                + "            </plugins>\n"
+                + "        </pluginManagement>\n"
+                + "    </build>\n"
+                + "</project>\n", StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Generate jars with plain classes, compiled in one go and split into one jar per package
+     */
+    private List<Path> generateJars(Path libDir, int jars, int classesPerJar) throws IOException
+    {
+        final Path sourceDir = libDir.resolve("src");
+        final Path classesDir = libDir.resolve("classes");
+        for (int j = 0; j < jars; j++)
+        {
+            for (int c = 0; c < classesPerJar; c++)
+            {
+                SyntheticModel.writeSource(sourceDir, "lib.j" + j, "Helper" + c, "public class Helper" + c + "\n{\n"
+                        + "    public int compute(int value)\n    {\n        return value * " + (c + 1) + ";\n    }\n}\n");
+            }
+        }
+
+        final List<Path> sourceFiles;
+        try (final Stream<Path> files = Files.walk(sourceDir))
+        {
+            sourceFiles = files.filter(f -> f.toString().endsWith(".java")).toList();
+        }
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Files.createDirectories(classesDir);
+        try (final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8))
+        {
+            if (!compiler.getTask(null, fileManager, null, List.of("-proc:none", "-d", classesDir.toString()), null, fileManager.getJavaFileObjectsFromPaths(sourceFiles)).call())
+            {
+                throw new IllegalStateException("Compiling the filler jars failed");
+            }
+        }
+
+        final List<Path> result = new ArrayList<>();
+        for (int j = 0; j < jars; j++)
+        {
+            final Path jar = libDir.resolve("lib-" + j + ".jar");
+            final Path packageDir = classesDir.resolve("lib/j" + j);
+            try (final JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar)); final Stream<Path> files = Files.list(packageDir))
+            {
+                for (Path classFile : files.sorted().toList())
+                {
+                    out.putNextEntry(new JarEntry("lib/j" + j + "/" + classFile.getFileName()));
+                    out.write(Files.readAllBytes(classFile));
+                    out.closeEntry();
+                }
+            }
+            result.add(jar);
+        }
+
+        deleteDirectory(sourceDir);
+        deleteDirectory(classesDir);
+        return result;
+    }
+
+    private BuildResult build(Path projectDir, String xmx) throws IOException, InterruptedException
+    {
+        final String mvn = System.getProperty("mvn", System.getProperty("os.name").startsWith("Windows") ? "mvn.cmd" : "mvn");
+        final ProcessBuilder processBuilder = new ProcessBuilder(mvn, "-B", "-o", "process-classes")
+                .directory(projectDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(projectDir.resolve("build.log").toFile());
+        processBuilder.environment().put("MAVEN_OPTS", "-Xmx" + xmx);
+
+        final Process process = processBuilder.start();
+        long peakRssKb = -1;
+        while (process.isAlive())
+        {
+            peakRssKb = Math.max(peakRssKb, getPeakRssKb(process.toHandle()));
+            Thread.sleep(100);
+        }
+        return new BuildResult(process.waitFor(), peakRssKb);
+    }
+
+    /**
+     * @return The highest peak resident set size of the process and its descendants, or -1 if not available
+     */
+    private long getPeakRssKb(ProcessHandle process)
+    {
+        long result = readPeakRssKb(process.pid());
+        for (ProcessHandle child : process.descendants().toList())
+        {
+            result = Math.max(result, readPeakRssKb(child.pid()));
+        }
+        return result;
+    }
+
+    private long readPeakRssKb(long pid)
+    {
+        try
+        {
+            for (String line : Files.readAllLines(Paths.get("/proc", Long.toString(pid), "status")))
+            {
+                if (line.startsWith("VmHWM:"))
+                {
+                    return Long.parseLong(line.replaceAll("\\D", ""));
+                }
+            }
+        }
+        catch (IOException | RuntimeException exc)
+        {
+            // Not on Linux, or the process already ended
+        }
+        return -1;
+    }
+
+    /**
+     * Sum the wall time per goal over all modules, from the build reports
+     */
+    private void readGoalTimes(Path projectDir, Map<String, Long> measured) throws IOException
+    {
+        final List<Path> reports;
+        try (final Stream<Path> files = Files.walk(projectDir))
+        {
+            reports = files.filter(f -> f.getParent().getFileName().toString().equals("eclipselink-reports") && f.toString().endsWith(".json")).toList();
+        }
+
+        for (String goal : GOALS)
+        {
+            measured.put(goal + ".wallMillis", 0L);
+        }
+
+        for (Path report : reports)
+        {
+            final String json = Files.readString(report);
+            final Matcher goal = GOAL.matcher(json);
+            final Matcher wallMillis = WALL_MILLIS.matcher(json);
+            if (goal.find() && wallMillis.find())
+            {
+                measured.merge(goal.group(1) + ".wallMillis", Long.parseLong(wallMillis.group(1)), Long::sum);
+            }
+        }
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException
+    {
+        try (final Stream<Path> files = Files.walk(dir))
+        {
+            for (Path file : files.sorted(java.util.Comparator.reverseOrder()).toList())
+            {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static class BuildResult
+    {
+        private final int exitCode;
+        private final long peakRssKb;
+
+        private BuildResult(int exitCode, long peakRssKb)
+        {
+            this.exitCode = exitCode;
+            this.peakRssKb = peakRssKb;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.ethlo.persistence.tools.eclipselink.benchmark;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * A generated entity model of a given size, written as sources and compiled to a classes directory with a
+ * <code>META-INF/persistence.xml</code> listing all managed classes.
+ * <p>
+ * The model has a mapped superclass with id and version, an embeddable used by all entities, and a joined
+ * inheritance root extended by every tenth entity. Each entity has a many-to-one relation to the previous entity
+ * and a one-to-many relation to the next one. Entities are spread over packages of 100 entities each. Optionally,
+ * plain classes without JPA annotations are added next to each entity, as found in most real code bases.
+ *
+ * @author Morten Haraldsen
+ */
+public class SyntheticModel implements Closeable
+{
+    public static final String BASE_PACKAGE = "bench.model";
+    private static final int CLASSES_PER_PACKAGE = 100;
+
+    private final Path root;
+    private final Path sourceDir;
+    private final Path classesDir;
+    private final List<String> managedClassNames;
+
+    private SyntheticModel(Path root, List<String> managedClassNames)
+    {
+        this.root = root;
+        this.sourceDir = root.resolve("src");
+        this.classesDir = root.resolve("classes");
+        this.managedClassNames = Collections.unmodifiableList(managedClassNames);
+    }
+
+    /**
+     * @param entityCount           The number of entities to generate, in addition to the shared base classes
+     * @param plainClassesPerEntity The number of classes without JPA annotations to generate per entity
+     * @return The generated and compiled model, to be closed to delete its files
+     */
+    public static SyntheticModel generate(int entityCount, int plainClassesPerEntity) throws IOException
+    {
+        final Path root = Files.createTempDirectory("synthetic-model-");
+        final List<String> managedClassNames = writeSources(root.resolve("src"), BASE_PACKAGE, entityCount, plainClassesPerEntity);
+        final SyntheticModel model = new SyntheticModel(root, managedClassNames);
+        model.compile();
+        model.writePersistenceXml();
+        return model;
+    }
+
+    /**
+     * Write the sources of a model
+     *
+     * @param sourceDir             The source root directory
+     * @param basePackage           The package of the shared base classes, the entities are in sub-packages
+     * @param entityCount           The number of entities to generate, in addition to the shared base classes
+     * @param plainClassesPerEntity The number of classes without JPA annotations to generate per entity
+     * @return The names of the managed classes
+     */
+    public static List<String> writeSources(Path sourceDir, String basePackage, int entityCount, int plainClassesPerEntity) throws IOException
+    {
+        final List<String> managedClassNames = new ArrayList<>();
+        writeSource(sourceDir, basePackage, "BaseEntity", "@jakarta.persistence.MappedSuperclass\n"
+                + "public abstract class BaseEntity\n{\n"
+                + "    @jakarta.persistence.Id @jakarta.persistence.GeneratedValue\n    private Long id;\n"
+                + "    @jakarta.persistence.Version\n    private long version;\n}\n");
+        writeSource(sourceDir, basePackage, "Address", "@jakarta.persistence.Embeddable\n"
+                + "public class Address\n{\n"
+                + "    private String street;\n    private String city;\n    private String zipCode;\n}\n");
+        writeSource(sourceDir, basePackage, "Party", "@jakarta.persistence.Entity\n"
+                + "@jakarta.persistence.Inheritance(strategy = jakarta.persistence.InheritanceType.JOINED)\n"
+                + "public class Party extends BaseEntity\n{\n"
+                + "    private String displayName;\n}\n");
+        managedClassNames.add(basePackage + ".BaseEntity");
+        managedClassNames.add(basePackage + ".Address");
+        managedClassNames.add(basePackage + ".Party");
+
+        for (int i = 0; i < entityCount; i++)
+        {
+            final StringBuilder s = new StringBuilder();
+            s.append("@jakarta.persistence.Entity\n");
+            s.append("public class ").append(entitySimpleName(i)).append(" extends ").append(basePackage).append(i % 10 == 9 ? ".Party" : ".BaseEntity").append("\n{\n");
+            s.append("    private String name;\n");
+            s.append("    private int amount;\n");
+            s.append("    @jakarta.persistence.Embedded\n    private ").append(basePackage).append(".Address address;\n");
+            if (i > 0)
+            {
+                s.append("    @jakarta.persistence.ManyToOne(fetch = jakarta.persistence.FetchType.LAZY)\n    private ").append(entityClassName(basePackage, i - 1)).append(" parent;\n");
+            }
+            if (i < entityCount - 1)
+            {
+                s.append("    @jakarta.persistence.OneToMany(mappedBy = \"parent\")\n    private java.util.List<").append(entityClassName(basePackage, i + 1)).append("> children;\n");
+            }
+            s.append("}\n");
+            writeSource(sourceDir, entityPackage(basePackage, i), entitySimpleName(i), s.toString());
+            managedClassNames.add(entityClassName(basePackage, i));
+
+            for (int j = 0; j < plainClassesPerEntity; j++)
+            {
+                final String simpleName = entitySimpleName(i) + "Service" + j;
+                writeSource(sourceDir, entityPackage(basePackage, i), simpleName, "public class " + simpleName + "\n{\n"
+                        + "    public String describe(" + entitySimpleName(i) + " entity, int depth)\n    {\n"
+                        + "        return entity + \":\" + depth;\n    }\n}\n");
+            }
+        }
+        return managedClassNames;
+    }
+
+    private static String entityPackage(String basePackage, int index)
+    {
+        return basePackage + ".p" + (index / CLASSES_PER_PACKAGE);
+    }
+
+    private static String entitySimpleName(int index)
+    {
+        return "Entity" + index;
+    }
+
+    private static String entityClassName(String basePackage, int index)
+    {
+        return entityPackage(basePackage, index) + "." + entitySimpleName(index);
+    }
+
+    static void writeSource(Path sourceDir, String packageName, String simpleName, String body) throws IOException
+    {
+        final Path file = sourceDir.resolve(packageName.replace('.', '/')).resolve(simpleName + ".java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "package " + packageName + ";\n\n" + body, StandardCharsets.UTF_8);
+    }
+
+    private void compile() throws IOException
+    {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+        {
+            throw new IllegalStateException("A JDK is required to compile the synthetic model");
+        }
+
+        Files.createDirectories(classesDir);
+        final List<String> options = List.of("-proc:none", "-cp", System.getProperty("java.class.path"), "-d", classesDir.toString());
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8))
+        {
+            final Boolean success = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromPaths(getSourceFiles())).call();
+            if (!success)
+            {
+                throw new IllegalStateException("Compiling the synthetic model failed: " + diagnostics.getDiagnostics());
+            }
+        }
+    }
+
+    private void writePersistenceXml() throws IOException
+    {
+        final StringBuilder s = new StringBuilder();
+        s.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        s.append("<persistence xmlns=\"https://jakarta.ee/xml/ns/persistence\" version=\"3.0\">\n");
+        s.append("    <persistence-unit name=\"default\" transaction-type=\"RESOURCE_LOCAL\">\n");
+        s.append("        <provider>org.eclipse.persistence.jpa.PersistenceProvider</provider>\n");
+        for (String className : managedClassNames)
+        {
+            s.append("        <class>").append(className).append("</class>\n");
+        }
+        s.append("        <exclude-unlisted-classes>true</exclude-unlisted-classes>\n");
+        s.append("        <properties>\n");
+        s.append("            <property name=\"eclipselink.weaving\" value=\"static\"/>\n");
+        s.append("        </properties>\n");
+        s.append("    </persistence-unit>\n");
+        s.append("</persistence>\n");
+
+        final Path file = getPersistenceXml();
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, s.toString(), StandardCharsets.UTF_8);
+    }
+
+    public List<Path> getSourceFiles() throws IOException
+    {
+        try (final Stream<Path> files = Files.walk(sourceDir))
+        {
+            return files.filter(f -> f.toString().endsWith(".java")).sorted().toList();
+        }
+    }
+
+    public Path getRoot()
+    {
+        return root;
+    }
+
+    public Path getSourceDir()
+    {
+        return sourceDir;
+    }
+
+    public Path getClassesDir()
+    {
+        return classesDir;
+    }
+
+    public Path getPersistenceXml()
+    {
+        return classesDir.resolve("META-INF/persistence.xml");
+    }
+
+    /**
+     * @return All managed classes: entities, the mapped superclass and the embeddable
+     */
+    public List<String> getManagedClassNames()
+    {
+        return managedClassNames;
+    }
+
+    /**
+     * Create an empty directory inside the model root, for output of the benchmarked operations
+     */
+    public Path createOutputDirectory(String name) throws IOException
+    {
+        final Path dir = root.resolve(name);
+        delete(dir);
+        return Files.createDirectories(dir);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        delete(root);
+    }
+
+    private static void delete(Path dir) throws IOException
+    {
+        if (!Files.exists(dir))
+        {
+            return;
+        }
+
+        try (final Stream<Path> files = Files.walk(dir))
+        {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+            {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.ethlo.persistence.tools.eclipselink.benchmark;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.persistence.logging.SessionLog;
+import org.eclipse.persistence.tools.weaving.jpa.StaticWeaveProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ethlo.persistence.tools.eclipselink.ClassWeaver;
+import com.ethlo.persistence.tools.eclipselink.DirectoryWeaver;
+
+/**
+ * Static weaving of the model classes into a separate directory. With one thread the {@link StaticWeaveProcessor} is
+ * used, like the weave goal does, otherwise the {@link DirectoryWeaver}.
+ *
+ * @author Morten Haraldsen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WeaveBenchmark
+{
+    @Param({"1", "4"})
+    public int threads;
+
+    private Path target;
+    private List<String> classFiles;
+
+    @Setup(Level.Trial)
+    public void setup(ModelState state) throws IOException
+    {
+        classFiles = new ArrayList<>();
+        for (String path : new DirectoryWeaver(state.model.getClassesDir(), state.model.getClassesDir(), 1).listFiles())
+        {
+            if (path.endsWith(".class"))
+            {
+                classFiles.add(path);
+            }
+        }
+    }
+
+    /**
+     * Start every invocation with an empty output directory, like a clean build, so every class file is written
+     */
+    @Setup(Level.Invocation)
+    public void clean(ModelState state) throws IOException
+    {
+        target = state.model.createOutputDirectory("woven");
+    }
+
+    @Benchmark
+    public Object weave(ModelState state) throws IOException, URISyntaxException
+    {
+        final Path source = state.model.getClassesDir();
+        final ClassLoader classLoader = getClass().getClassLoader();
+        if (threads == 1)
+        {
+            final StaticWeaveProcessor weaveProcessor = new StaticWeaveProcessor(source.toFile(), target.toFile());
+            weaveProcessor.setPersistenceInfo(source.toFile());
+            weaveProcessor.setClassLoader(classLoader);
+            weaveProcessor.setLog(new PrintWriter(Writer.nullWriter()));
+            weaveProcessor.setLogLevel(SessionLog.OFF);
+            weaveProcessor.performWeaving();
+            return weaveProcessor;
+        }
+
+        try (final ClassWeaver weaver = new ClassWeaver(source.toFile(), source.toFile(), classLoader, SessionLog.OFF))
+        {
+            return new DirectoryWeaver(source, target, threads).process(weaver, classFiles, Collections.emptyList());
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Content-addressable cache of build outputs in a directory outside of the build directory, so the outputs survive
+ * <code>mvn clean</code> and can be shared by builds of different checkouts. The key is a hash of all inputs of the
+ * output, so an entry never has to be invalidated, only evicted.
+ * <p>
+ * Entries are written to a temporary file and moved into place, and a read of an entry deleted concurrently is a
+ * miss, so the directory can be used by concurrent builds. The modification time of an entry is its last use, and
+ * the least recently used entries are evicted when the total size exceeds the maximum size.
+ *
+ * @author Morten Haraldsen
+ */
+public class BuildCache
+{
+    private static final String ENTRY_SUFFIX = ".entry";
+
+    private final Path directory;
+    private final long maxSize;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger stored = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final Log log;
+
+    /**
+     * @param directory The cache directory
+     * @param maxSize   The maximum total size of the entries in bytes
+     * @param log       For entries that cannot be stored
+     */
+    public BuildCache(Path directory, long maxSize, Log log)
+    {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.log = log;
+    }
+
+    /**
+     * @param key The hash of all inputs of the output
+     * @return The cached output, or null if not cached
+     */
+    public byte[] get(String key)
+    {
+        final Path file = getFile(key);
+        final byte[] content;
+        try
+        {
+            content = Files.readAllBytes(file);
+        }
+        catch (IOException exc)
+        {
+            // Not cached, or evicted by a concurrent build
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try
+        {
+            // Mark as recently used, for the eviction
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch (IOException exc)
+        {
+            // Evicted after the read, or a read-only cache, the content is still valid
+        }
+        hits.incrementAndGet();
+        return content;
+    }
+
+    /**
+     * Store an output. A cache that cannot be written to, like on a full disk, only makes the build slower, so the
+     * failure is logged instead of thrown
+     */
+    public void put(String key, byte[] content)
+    {
+        final Path file = getFile(key);
+        if (Files.exists(file))
+        {
+            // Same key, same content, for example stored by a concurrent build
+            return;
+        }
+
+        try
+        {
+            final Path tmp = Utils.getTempFile(file);
+            try
+            {
+                Files.write(tmp, content, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                Utils.moveIntoPlace(tmp, file);
+                stored.incrementAndGet();
+            }
+            finally
+            {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        catch (IOException exc)
+        {
+            // Once per build, the following failures most likely have the same cause
+            if (failed.getAndIncrement() == 0)
+            {
+                log.warn("Cannot store in the build cache " + directory + ", continuing without it: " + exc);
+            }
+            else
+            {
+                log.debug("Cannot store " + file + " in the build cache: " + exc);
+            }
+        }
+    }
+
+    /**
+     * Delete the least recently used entries until the total size is within the maximum size
+     *
+     * @return The number of entries deleted
+     */
+    public int evict() throws IOException
+    {
+        if (!Files.isDirectory(directory))
+        {
+            return 0;
+        }
+
+        final List<Path> entries = new ArrayList<>();
+        final Map<Path, BasicFileAttributes> attributes = new LinkedHashMap<>();
+        long totalSize = 0;
+        try (final Stream<Path> walk = Files.walk(directory))
+        {
+            for (Path file : (Iterable<Path>) walk.filter(f -> f.getFileName().toString().endsWith(ENTRY_SUFFIX))::iterator)
+            {
+                try
+                {
+                    final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                    attributes.put(file, attrs);
+                    entries.add(file);
+                    totalSize += attrs.size();
+                }
+                catch (NoSuchFileException exc)
+                {
+                    // Evicted by a concurrent build
+                }
+            }
+        }
+
+        if (totalSize <= maxSize)
+        {
+            return 0;
+        }
+
+        entries.sort(Comparator.comparing(f -> attributes.get(f).lastModifiedTime()));
+        int deleted = 0;
+        for (Path file : entries)
+        {
+            if (totalSize <= maxSize)
+            {
+                break;
+            }
+
+            totalSize -= attributes.get(file).size();
+            if (Files.deleteIfExists(file))
+            {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private Path getFile(String key)
+    {
+        // Two levels, to keep the number of files per directory small
+        return directory.resolve(key.substring(0, 2)).resolve(key + ENTRY_SUFFIX);
+    }
+
+    public int getHits()
+    {
+        return hits.get();
+    }
+
+    public int getMisses()
+    {
+        return misses.get();
+    }
+
+    public int getStored()
+    {
+        return stored.get();
+    }
+
+    /**
+     * @return One entry holding all the files, by relative path
+     */
+    public static byte[] pack(Map<String, byte[]> files)
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final DataOutputStream data = new DataOutputStream(out))
+        {
+            data.writeInt(files.size());
+            for (Map.Entry<String, byte[]> e : files.entrySet())
+            {
+                data.writeUTF(e.getKey());
+                data.writeInt(e.getValue().length);
+                data.write(e.getValue());
+            }
+        }
+        catch (IOException exc)
+        {
+            throw new IllegalStateException(exc.getMessage(), exc);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return The files of the entry, by relative path, or null if the entry is not valid
+     */
+    public static Map<String, byte[]> unpack(byte[] entry)
+    {
+        try (final DataInputStream data = new DataInputStream(new ByteArrayInputStream(entry)))
+        {
+            final int count = data.readInt();
+            final Map<String, byte[]> result = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++)
+            {
+                final String path = data.readUTF();
+                final int length = data.readInt();
+                if (length < 0 || length > data.available())
+                {
+                    return null;
+                }
+                final byte[] content = new byte[length];
+                data.readFully(content);
+                result.put(path, content);
+            }
+            return data.available() == 0 ? result : null;
+        }
+        catch (IOException exc)
+        {
+            return null;
+        }
+    }
+}
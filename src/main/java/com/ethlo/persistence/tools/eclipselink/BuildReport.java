@@ -0,0 +1,380 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Records the wall time, CPU time, allocated bytes and peak heap of the phases of a goal execution, together with
+ * counts like the number of entities found, and writes them as JSON.
+ * <p>
+ * The JSON schema is versioned by <code>schemaVersion</code> and is only ever extended with new fields:
+ * <pre>
+ * {
+ *   "schemaVersion": 1,
+ *   "goal": "weave",
+ *   "executionId": "default",
+ *   "project": "groupId:artifactId:version",
+ *   "startTime": "2026-01-01T00:00:00Z",
+ *   "wallMillis": 1234,
+ *   "phases": [
+ *     {"name": "scan", "wallMillis": 100, "cpuMillis": 180, "threadCpuMillis": 90, "allocatedBytes": 1048576, "peakHeapBytes": 67108864}
+ *   ],
+ *   "counts": {"entitiesFound": 5}
+ * }
+ * </pre>
+ * <code>threadCpuMillis</code> and <code>allocatedBytes</code> cover the thread running the goal and the worker threads
+ * of the pools created with {@link #newWorkerPool(int)} during the phase. <code>cpuMillis</code> is the CPU time of the
+ * whole JVM. <code>peakHeapBytes</code> is the sum of the peak usage of the heap memory pools, which are JVM wide: in a
+ * parallel build the peaks are not reset per phase, as that would reset them for the other goals running concurrently,
+ * so it is the peak of the JVM up to the end of the phase. Values not supported by the JVM are reported as -1. Other
+ * goals running concurrently in the same JVM are included in the JVM wide values.
+ *
+ * @author Morten Haraldsen
+ */
+public class BuildReport
+{
+    public static final int SCHEMA_VERSION = 1;
+    public static final String DEFAULT_DIRECTORY = "${project.build.directory}/eclipselink-reports";
+
+    private final String goal;
+    private final String executionId;
+    private final String project;
+    private final Instant startTime = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+    private final Map<String, Long> counts = new TreeMap<>();
+    private final boolean resetPeakHeap;
+
+    private static final ThreadLocal<Phase> ACTIVE_PHASE = new ThreadLocal<>();
+
+    public BuildReport(MojoExecution mojoExecution, MavenProject project, MavenSession session)
+    {
+        this.goal = mojoExecution.getGoal();
+        this.executionId = mojoExecution.getExecutionId();
+        this.project = project.getGroupId() + ":" + project.getArtifactId() + ":" + project.getVersion();
+        this.resetPeakHeap = !session.isParallel();
+    }
+
+    /**
+     * Create a pool for the parallel work of the phase last started on the calling thread. The CPU time and the bytes
+     * allocated by its worker threads are added to that phase, when the workers terminate. Shut it down with
+     * {@link #shutdown(ForkJoinPool)} before the phase ends, so all workers are included.
+     */
+    public static ForkJoinPool newWorkerPool(int threads)
+    {
+        final Phase phase = ACTIVE_PHASE.get();
+        return new ForkJoinPool(threads, pool -> new Worker(pool, phase), null, false);
+    }
+
+    /**
+     * Shut down the pool and wait for its worker threads to terminate
+     */
+    public static void shutdown(ForkJoinPool pool)
+    {
+        pool.shutdown();
+        try
+        {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException exc)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts measuring a phase. Phases that are not ended, for example because of an exception, are not reported.
+     *
+     * @param name The name of the phase
+     * @return The phase, to be ended by {@link Phase#end()}
+     */
+    public Phase start(String name)
+    {
+        return new Phase(name);
+    }
+
+    public void count(String name, long value)
+    {
+        counts.put(name, value);
+    }
+
+    /**
+     * Add to a count, starting from 0
+     */
+    public void add(String name, long value)
+    {
+        counts.merge(name, value, Long::sum);
+    }
+
+    /**
+     * Write the report to a file named after the goal and execution id. A failure to write the report is logged, but
+     * does not fail the build.
+     *
+     * @param directory The report directory
+     * @param log       The log to report the outcome to
+     */
+    public void write(File directory, Log log)
+    {
+        ACTIVE_PHASE.remove();
+        final Path file = directory.toPath().resolve(goal + "-" + executionId + ".json");
+        try
+        {
+            Files.createDirectories(directory.toPath());
+            Files.write(file, render().getBytes(StandardCharsets.UTF_8));
+            log.debug("Build report written to " + file);
+        }
+        catch (IOException exc)
+        {
+            log.warn("Unable to write build report " + file + ": " + exc.getMessage());
+        }
+    }
+
+    /**
+     * @return The counts recorded so far, by name
+     */
+    Map<String, Long> getCounts()
+    {
+        return new TreeMap<>(counts);
+    }
+
+    String render()
+    {
+        final StringBuilder s = new StringBuilder();
+        s.append("{\n");
+        s.append("  \"schemaVersion\": ").append(SCHEMA_VERSION).append(",\n");
+        s.append("  \"goal\": ").append(quote(goal)).append(",\n");
+        s.append("  \"executionId\": ").append(quote(executionId)).append(",\n");
+        s.append("  \"project\": ").append(quote(project)).append(",\n");
+        s.append("  \"startTime\": ").append(quote(startTime.toString())).append(",\n");
+        s.append("  \"wallMillis\": ").append(toMillis(System.nanoTime() - startNanos)).append(",\n");
+        s.append("  \"phases\": [");
+        for (int i = 0; i < phases.size(); i++)
+        {
+            final Phase phase = phases.get(i);
+            s.append(i > 0 ? ",\n" : "\n");
+            s.append("    {\"name\": ").append(quote(phase.name))
+                    .append(", \"wallMillis\": ").append(phase.wallMillis)
+                    .append(", \"cpuMillis\": ").append(phase.cpuMillis)
+                    .append(", \"threadCpuMillis\": ").append(phase.threadCpuMillis)
+                    .append(", \"allocatedBytes\": ").append(phase.allocatedBytes)
+                    .append(", \"peakHeapBytes\": ").append(phase.peakHeapBytes)
+                    .append("}");
+        }
+        s.append(phases.isEmpty() ? "],\n" : "\n  ],\n");
+        s.append("  \"counts\": {");
+        boolean first = true;
+        for (Map.Entry<String, Long> count : counts.entrySet())
+        {
+            s.append(first ? "" : ", ").append(quote(count.getKey())).append(": ").append(count.getValue());
+            first = false;
+        }
+        s.append("}\n");
+        s.append("}\n");
+        return s.toString();
+    }
+
+    private static String quote(String value)
+    {
+        if (value == null)
+        {
+            return "null";
+        }
+
+        final StringBuilder s = new StringBuilder("\"");
+        for (char c : value.toCharArray())
+        {
+            if (c == '"' || c == '\\')
+            {
+                s.append('\\').append(c);
+            }
+            else if (c < 0x20)
+            {
+                s.append(String.format("\\u%04x", (int) c));
+            }
+            else
+            {
+                s.append(c);
+            }
+        }
+        return s.append('"').toString();
+    }
+
+    private static long toMillis(long nanos)
+    {
+        return nanos < 0 ? -1 : nanos / 1_000_000;
+    }
+
+    private static long processCpuNanos()
+    {
+        final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean)
+        {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private static long threadCpuNanos()
+    {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long threadAllocatedBytes()
+    {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported())
+        {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void resetPeakHeap()
+    {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid())
+            {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeapBytes()
+    {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid())
+            {
+                total += pool.getPeakUsage().getUsed();
+            }
+        }
+        return total;
+    }
+
+    private static long delta(long start, long end)
+    {
+        return start < 0 || end < 0 ? -1 : end - start;
+    }
+
+    private static long sum(long value, long workerValue)
+    {
+        return value < 0 || workerValue < 0 ? -1 : value + workerValue;
+    }
+
+    private static final class Worker extends ForkJoinWorkerThread
+    {
+        private final Phase phase;
+
+        private Worker(ForkJoinPool pool, Phase phase)
+        {
+            super(pool);
+            this.phase = phase;
+        }
+
+        @Override
+        protected void onTermination(Throwable exception)
+        {
+            if (phase != null)
+            {
+                // A new thread starts from zero, so these are the totals of the worker
+                phase.addWorker(threadCpuNanos(), threadAllocatedBytes());
+            }
+            super.onTermination(exception);
+        }
+    }
+
+    public class Phase
+    {
+        private final String name;
+        private final long startNanos;
+        private final long startCpuNanos;
+        private final long startThreadCpuNanos;
+        private final long startAllocatedBytes;
+        private final AtomicLong workerCpuNanos = new AtomicLong();
+        private final AtomicLong workerAllocatedBytes = new AtomicLong();
+        private long wallMillis;
+        private long cpuMillis;
+        private long threadCpuMillis;
+        private long allocatedBytes;
+        private long peakHeapBytes;
+
+        private Phase(String name)
+        {
+            this.name = name;
+            if (resetPeakHeap)
+            {
+                resetPeakHeap();
+            }
+            ACTIVE_PHASE.set(this);
+            this.startAllocatedBytes = threadAllocatedBytes();
+            this.startThreadCpuNanos = threadCpuNanos();
+            this.startCpuNanos = processCpuNanos();
+            this.startNanos = System.nanoTime();
+        }
+
+        public void end()
+        {
+            this.wallMillis = toMillis(System.nanoTime() - startNanos);
+            this.cpuMillis = toMillis(delta(startCpuNanos, processCpuNanos()));
+            this.threadCpuMillis = toMillis(sum(delta(startThreadCpuNanos, threadCpuNanos()), workerCpuNanos.get()));
+            this.allocatedBytes = sum(delta(startAllocatedBytes, threadAllocatedBytes()), workerAllocatedBytes.get());
+            this.peakHeapBytes = BuildReport.peakHeapBytes();
+            if (ACTIVE_PHASE.get() == this)
+            {
+                ACTIVE_PHASE.remove();
+            }
+            phases.add(this);
+        }
+
+        private void addWorker(long cpuNanos, long allocatedBytes)
+        {
+            workerCpuNanos.addAndGet(cpuNanos);
+            workerAllocatedBytes.addAndGet(allocatedBytes);
+        }
+    }
+}
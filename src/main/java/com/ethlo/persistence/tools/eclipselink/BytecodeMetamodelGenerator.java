@@ -0,0 +1,1650 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import io.github.classgraph.AnnotationClassRef;
+import io.github.classgraph.AnnotationEnumValue;
+import io.github.classgraph.AnnotationInfo;
+import io.github.classgraph.AnnotationInfoList;
+import io.github.classgraph.AnnotationParameterValue;
+import io.github.classgraph.ArrayTypeSignature;
+import io.github.classgraph.BaseTypeSignature;
+import io.github.classgraph.ClassGraph;
+import io.github.classgraph.ClassInfo;
+import io.github.classgraph.ClassRefTypeSignature;
+import io.github.classgraph.ClassTypeSignature;
+import io.github.classgraph.FieldInfo;
+import io.github.classgraph.MethodInfo;
+import io.github.classgraph.ReferenceTypeSignature;
+import io.github.classgraph.ScanResult;
+import io.github.classgraph.TypeArgument;
+import io.github.classgraph.TypeParameter;
+import io.github.classgraph.TypeSignature;
+import io.github.classgraph.TypeVariableSignature;
+
+/**
+ * Generates the JPA static meta-model sources from compiled classes instead of sources, so no compiler is needed.
+ * The classes are read with ClassGraph and the sources follow the rules of the Hibernate meta-model processor used
+ * by the javac engine of {@link EclipselinkModelGenMojo}: the same attributes, access types, imports and member
+ * order, so both engines generate identical sources for the same entities.
+ * <p>
+ * Only the mapping annotations are read, not <code>orm.xml</code>. Types referenced by the entities but outside of
+ * the scanned locations, like JDK types, are loaded from the class-path without being initialized.
+ *
+ * @author Morten Haraldsen
+ */
+public class BytecodeMetamodelGenerator
+{
+    /**
+     * The processor named in the <code>@Generated</code> annotation, as the output is the same
+     */
+    public static final String GENERATED_BY = "org.hibernate.jpamodelgen.JPAMetaModelEntityProcessor";
+
+    private static final String GENERATED = "javax.annotation.processing.Generated";
+    private static final String STATIC_METAMODEL = "jakarta.persistence.metamodel.StaticMetamodel";
+    private static final String MAP_ATTRIBUTE = "jakarta.persistence.metamodel.MapAttribute";
+
+    private static final String ENTITY = "jakarta.persistence.Entity";
+    private static final String MAPPED_SUPERCLASS = "jakarta.persistence.MappedSuperclass";
+    private static final String EMBEDDABLE = "jakarta.persistence.Embeddable";
+    private static final String ACCESS = "jakarta.persistence.Access";
+    private static final String ID = "jakarta.persistence.Id";
+    private static final String EMBEDDED_ID = "jakarta.persistence.EmbeddedId";
+    private static final String TRANSIENT = "jakarta.persistence.Transient";
+    private static final String BASIC = "jakarta.persistence.Basic";
+    private static final String CONVERT = "jakarta.persistence.Convert";
+    private static final String ONE_TO_ONE = "jakarta.persistence.OneToOne";
+    private static final String MANY_TO_ONE = "jakarta.persistence.ManyToOne";
+    private static final String ONE_TO_MANY = "jakarta.persistence.OneToMany";
+    private static final String MANY_TO_MANY = "jakarta.persistence.ManyToMany";
+    private static final String ELEMENT_COLLECTION = "jakarta.persistence.ElementCollection";
+    private static final String MAP_KEY_CLASS = "jakarta.persistence.MapKeyClass";
+    private static final String HIBERNATE_TYPE = "org.hibernate.annotations.Type";
+    private static final String HIBERNATE_TARGET = "org.hibernate.annotations.Target";
+
+    private static final String OBJECT = "java.lang.Object";
+    private static final String WOVEN_MEMBER_PREFIX = "_persistence_";
+
+    private static final Map<String, String> COLLECTIONS = Map.of(
+            "java.util.Collection", "jakarta.persistence.metamodel.CollectionAttribute",
+            "java.util.Set", "jakarta.persistence.metamodel.SetAttribute",
+            "java.util.List", "jakarta.persistence.metamodel.ListAttribute",
+            "java.util.Map", MAP_ATTRIBUTE,
+            "java.util.SortedSet", "jakarta.persistence.metamodel.SetAttribute",
+            "java.util.SortedMap", MAP_ATTRIBUTE);
+
+    private static final Set<String> BASIC_TYPES = Set.of(
+            "java.lang.String", "java.lang.Boolean", "java.lang.Byte", "java.lang.Character", "java.lang.Short",
+            "java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double", "java.math.BigInteger",
+            "java.math.BigDecimal", "java.util.Date", "java.util.Calendar", "java.sql.Date", "java.sql.Time",
+            "java.sql.Timestamp", "java.sql.Blob");
+
+    // Like the processor, primitive attributes are declared with the simple name of the wrapper type
+    private static final Map<String, String> PRIMITIVE_WRAPPERS = Map.of(
+            "char", "Character", "byte", "Byte", "short", "Short", "int", "Integer",
+            "long", "Long", "boolean", "Boolean", "float", "Float", "double", "Double");
+
+    private final File[] scanPath;
+    private final File[] classPath;
+    private final String[] packages;
+
+    private final Map<String, TypeInfo> types = new HashMap<>();
+    private final Map<String, AccessInfo> accessTypes = new HashMap<>();
+    private final Map<String, MetaEntity> metaEntities = new HashMap<>();
+    private final Map<String, MetaEntity> metaEmbeddables = new HashMap<>();
+    private ScanResult scanResult;
+    private ClassLoader classLoader;
+
+    /**
+     * @param scanPath  The directories and jars with the compiled entity classes
+     * @param classPath The class-path to resolve the types referenced by the entities from
+     * @param packages  The packages to generate the meta-model for, all packages if empty
+     */
+    public BytecodeMetamodelGenerator(File[] scanPath, File[] classPath, Collection<String> packages)
+    {
+        this.scanPath = scanPath;
+        this.classPath = classPath;
+        this.packages = packages.toArray(new String[0]);
+    }
+
+    /**
+     * @return The meta-model sources, sorted by the fully qualified name of the meta-model class
+     * @throws IllegalArgumentException If the meta-model cannot be generated from the mappings
+     */
+    public Map<String, String> generate()
+    {
+        final File[] loaderPath = new File[scanPath.length + classPath.length];
+        System.arraycopy(scanPath, 0, loaderPath, 0, scanPath.length);
+        System.arraycopy(classPath, 0, loaderPath, scanPath.length, classPath.length);
+
+        final ClassGraph classGraph = new ClassGraph()
+                .enableClassInfo()
+                .enableFieldInfo()
+                .enableMethodInfo()
+                .enableAnnotationInfo()
+                .ignoreClassVisibility()
+                .ignoreFieldVisibility()
+                .ignoreMethodVisibility()
+                .overrideClasspath((Object[]) scanPath);
+        if (packages.length > 0)
+        {
+            classGraph.acceptPackages(packages);
+        }
+
+        try (final ScanResult scan = classGraph.scan(); final URLClassLoader loader = new URLClassLoader(Utils.toUrls(loaderPath), ClassLoader.getPlatformClassLoader()))
+        {
+            this.scanResult = scan;
+            this.classLoader = loader;
+            types.clear();
+            accessTypes.clear();
+            metaEntities.clear();
+            metaEmbeddables.clear();
+
+            // Sorted by class name, unlike the processor, which handles the sources in the order given to the compiler
+            for (ClassInfo classInfo : scan.getAllStandardClasses())
+            {
+                if (!classInfo.isInnerClass())
+                {
+                    handleRoot(getType(classInfo.getName()));
+                }
+            }
+            return createMetaModelClasses();
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException(exc);
+        }
+        finally
+        {
+            this.scanResult = null;
+            this.classLoader = null;
+        }
+    }
+
+    private void handleRoot(TypeInfo type)
+    {
+        if (type.kind != Kind.CLASS || !(type.hasAnnotation(ENTITY) || type.hasAnnotation(MAPPED_SUPERCLASS) || type.hasAnnotation(EMBEDDABLE)))
+        {
+            return;
+        }
+
+        // Embeddables and mapped super-classes are initialized when written, after the access types of the entities are known
+        final MetaEntity metaEntity = new MetaEntity(type);
+        if (!type.hasAnnotation(EMBEDDABLE) && !type.hasAnnotation(MAPPED_SUPERCLASS))
+        {
+            init(metaEntity);
+        }
+
+        for (String annotation : type.annotations.keySet())
+        {
+            if (ENTITY.equals(annotation) || MAPPED_SUPERCLASS.equals(annotation))
+            {
+                metaEntities.put(type.qualifiedName, metaEntity);
+            }
+            else if (EMBEDDABLE.equals(annotation))
+            {
+                metaEmbeddables.put(type.qualifiedName, metaEntity);
+            }
+        }
+    }
+
+    private Map<String, String> createMetaModelClasses()
+    {
+        final Map<String, String> result = new TreeMap<>();
+        final Set<String> generated = new HashSet<>();
+        for (MetaEntity metaEntity : metaEntities.values())
+        {
+            if (generated.add(metaEntity.type.qualifiedName))
+            {
+                result.put(metaEntity.getMetaModelClassName(), writeClass(metaEntity));
+            }
+        }
+
+        // An embeddable is written after the embeddables it embeds, and removed from the remaining ones after each pass
+        final Collection<MetaEntity> remaining = metaEmbeddables.values();
+        while (!remaining.isEmpty())
+        {
+            final Set<MetaEntity> processed = new HashSet<>();
+            final int before = remaining.size();
+            for (MetaEntity metaEntity : remaining)
+            {
+                if (generated.contains(metaEntity.type.qualifiedName))
+                {
+                    processed.add(metaEntity);
+                    continue;
+                }
+
+                if (isDeferred(remaining, metaEntity))
+                {
+                    continue;
+                }
+
+                result.put(metaEntity.getMetaModelClassName(), writeClass(metaEntity));
+                generated.add(metaEntity.type.qualifiedName);
+                processed.add(metaEntity);
+            }
+            remaining.removeAll(processed);
+
+            if (remaining.size() >= before)
+            {
+                final Set<String> names = new TreeSet<>();
+                remaining.forEach(e -> names.add(e.type.qualifiedName));
+                throw new IllegalArgumentException("Potential endless loop in generation of embeddables " + names);
+            }
+        }
+        return result;
+    }
+
+    private boolean isDeferred(Collection<MetaEntity> remaining, MetaEntity metaEntity)
+    {
+        for (MetaEntity other : remaining)
+        {
+            if (other == metaEntity)
+            {
+                continue;
+            }
+
+            // Only fields are considered, like the processor does
+            for (MemberInfo field : other.type.fields)
+            {
+                if (field.type.kind == TypeKind.DECLARED && containsType(field.type, metaEntity.type))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean containsType(JType type, TypeInfo target)
+    {
+        JType candidate = type;
+        final String fqn = getQualifiedName(type.name);
+        if (COLLECTIONS.containsKey(fqn))
+        {
+            if (type.arguments.isEmpty())
+            {
+                return false;
+            }
+            candidate = "java.util.Map".equals(fqn) ? type.arguments.get(1) : type.arguments.get(0);
+        }
+        return candidate.kind == TypeKind.DECLARED && getQualifiedName(candidate.name).equals(target.qualifiedName);
+    }
+
+    private void init(MetaEntity metaEntity)
+    {
+        final TypeInfo type = metaEntity.type;
+        determineAccessTypeForHierarchy(type);
+        metaEntity.accessInfo = accessTypes.get(type.qualifiedName);
+        addPersistentMembers(metaEntity, type.fields, AccessType.FIELD);
+
+        final List<MemberInfo> gettersAndSetters = new ArrayList<>();
+        for (MemberInfo method : type.methods)
+        {
+            if (isGetterOrSetter(method))
+            {
+                gettersAndSetters.add(method);
+            }
+        }
+        addPersistentMembers(metaEntity, gettersAndSetters, AccessType.PROPERTY);
+        metaEntity.initialized = true;
+    }
+
+    private static boolean isGetterOrSetter(MemberInfo method)
+    {
+        final boolean isVoid = method.type.kind == TypeKind.VOID;
+        if (method.name.startsWith("set") && method.parameterCount == 1 && isVoid)
+        {
+            return true;
+        }
+        return (method.name.startsWith("get") || method.name.startsWith("is")) && method.parameterCount == 0 && !isVoid;
+    }
+
+    private void addPersistentMembers(MetaEntity metaEntity, List<MemberInfo> members, AccessType membersAccessType)
+    {
+        for (MemberInfo member : members)
+        {
+            final AccessType explicitAccessType = getExplicitAccessType(member.annotations);
+            if (metaEntity.accessInfo.getAccessType() != membersAccessType && explicitAccessType == null)
+            {
+                continue;
+            }
+
+            if (member.hasAnnotation(TRANSIENT) || member.isTransient || member.isStatic)
+            {
+                continue;
+            }
+
+            final Attribute attribute = member.field ? createAttribute(metaEntity, member, member.type) : createPropertyAttribute(metaEntity, member);
+            if (attribute != null)
+            {
+                metaEntity.members.put(attribute.name, attribute);
+            }
+        }
+    }
+
+    private Attribute createPropertyAttribute(MetaEntity metaEntity, MemberInfo method)
+    {
+        if (!isProperty(method.name, toTypeString(method.type)))
+        {
+            return null;
+        }
+        return createAttribute(metaEntity, method, method.type);
+    }
+
+    private Attribute createAttribute(MetaEntity metaEntity, MemberInfo member, JType type)
+    {
+        final String name = getPropertyName(member);
+        switch (type.kind)
+        {
+            case PRIMITIVE:
+                return new Attribute(name, "jakarta.persistence.metamodel.SingularAttribute", null, PRIMITIVE_WRAPPERS.get(type.name));
+            case ARRAY:
+                return new Attribute(name, "jakarta.persistence.metamodel.SingularAttribute", null, toArrayTypeString(type));
+            case TYPEVAR:
+                return new Attribute(name, "jakarta.persistence.metamodel.SingularAttribute", null, toJavacString(erasure(type.getBound())));
+            case DECLARED:
+                return createDeclaredAttribute(metaEntity, member, type, name);
+            default:
+                return null;
+        }
+    }
+
+    private Attribute createDeclaredAttribute(MetaEntity metaEntity, MemberInfo member, JType type, String name)
+    {
+        final TypeInfo returned = getType(type.name);
+        final String fqn = getQualifiedName(type.name);
+        final String collection = COLLECTIONS.get(fqn);
+        final String targetEntity = getTargetEntity(member.annotations);
+        if (collection != null)
+        {
+            return createCollectionAttribute(metaEntity, member, type, name, fqn, collection, targetEntity);
+        }
+
+        if (isBasicAttribute(member, returned))
+        {
+            return new Attribute(name, "jakarta.persistence.metamodel.SingularAttribute", null, targetEntity != null ? targetEntity : fqn);
+        }
+        return null;
+    }
+
+    private Attribute createCollectionAttribute(MetaEntity metaEntity, MemberInfo member, JType type, String name, String fqn, String collection, String targetEntity)
+    {
+        if (member.hasAnnotation(ELEMENT_COLLECTION))
+        {
+            final JType elementType = getCollectionElementType(type, fqn, targetEntity);
+            if (elementType != null && elementType.kind == TypeKind.DECLARED)
+            {
+                final String key = toJavacString(elementType);
+                final AccessInfo accessInfo = accessTypes.get(key);
+                if (accessInfo == null)
+                {
+                    final TypeInfo element = getType(elementType.name);
+                    accessTypes.put(key, new AccessInfo(element != null ? getExplicitAccessType(element.annotations) : null, metaEntity.accessInfo.getAccessType()));
+                }
+                else
+                {
+                    accessInfo.defaultAccessType = metaEntity.accessInfo.getAccessType();
+                }
+            }
+        }
+
+        if (member.hasAnnotation(BASIC) || member.hasAnnotation(CONVERT) || member.hasAnnotation(HIBERNATE_TYPE))
+        {
+            if (!member.hasAnnotation(ONE_TO_MANY) && !member.hasAnnotation(MANY_TO_MANY) && !member.hasAnnotation(ELEMENT_COLLECTION))
+            {
+                return new Attribute(name, "jakarta.persistence.metamodel.SingularAttribute", null, toTypeString(type));
+            }
+        }
+
+        if (MAP_ATTRIBUTE.equals(collection))
+        {
+            final String keyType;
+            final Map<String, Object> mapKeyClass = member.annotations.get(MAP_KEY_CLASS);
+            if (mapKeyClass != null && mapKeyClass.get("value") instanceof JType)
+            {
+                keyType = toJavacString((JType) mapKeyClass.get("value"));
+            }
+            else if (!type.arguments.isEmpty())
+            {
+                keyType = extractClosestRealTypeAsString(type.arguments.get(0));
+            }
+            else
+            {
+                throw new IllegalArgumentException("Unable to determine the key type of " + getPropertyName(member) + " in " + metaEntity.type.qualifiedName);
+            }
+            return new Attribute(name, collection, keyType, getElementType(type, targetEntity));
+        }
+        return new Attribute(name, collection, null, getElementType(type, targetEntity));
+    }
+
+    private JType getCollectionElementType(JType type, String fqn, String explicitTargetEntity)
+    {
+        if (explicitTargetEntity != null)
+        {
+            final TypeInfo target = getTypeByQualifiedName(explicitTargetEntity);
+            return target != null ? JType.declared(target.name, Collections.emptyList()) : null;
+        }
+
+        if (type.arguments.isEmpty())
+        {
+            throw new IllegalArgumentException("Unable to determine collection type of " + toJavacString(type));
+        }
+        return "java.util.Map".equals(fqn) ? type.arguments.get(1) : type.arguments.get(0);
+    }
+
+    private String getElementType(JType type, String targetEntity)
+    {
+        if (targetEntity != null)
+        {
+            return targetEntity;
+        }
+
+        final List<JType> arguments = type.arguments;
+        if (arguments.size() == 1)
+        {
+            return extractClosestRealTypeAsString(arguments.get(0));
+        }
+        else if (arguments.size() == 2)
+        {
+            return extractClosestRealTypeAsString(arguments.get(1));
+        }
+        return "?";
+    }
+
+    private boolean isBasicAttribute(MemberInfo member, TypeInfo returned)
+    {
+        if (member.hasAnnotation(BASIC) || member.hasAnnotation(ONE_TO_ONE) || member.hasAnnotation(MANY_TO_ONE) || member.hasAnnotation(EMBEDDED_ID) || member.hasAnnotation(ID) || member.hasAnnotation(HIBERNATE_TYPE))
+        {
+            return true;
+        }
+
+        if (returned == null)
+        {
+            return false;
+        }
+
+        if (returned.kind == Kind.ENUM)
+        {
+            return true;
+        }
+
+        if (returned.kind == Kind.CLASS || returned.kind == Kind.INTERFACE)
+        {
+            if (BASIC_TYPES.contains(returned.qualifiedName) || returned.hasAnnotation(EMBEDDABLE))
+            {
+                return true;
+            }
+
+            // Only the directly implemented interfaces, like the processor
+            for (String interfaceName : returned.interfaces)
+            {
+                if ("java.io.Serializable".equals(interfaceName))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private String getTargetEntity(Map<String, Map<String, Object>> annotations)
+    {
+        String result = null;
+        for (Map.Entry<String, Map<String, Object>> annotation : annotations.entrySet())
+        {
+            final String name = annotation.getKey();
+            if (ELEMENT_COLLECTION.equals(name))
+            {
+                result = getClassValue(annotation.getValue(), "targetClass");
+            }
+            else if (ONE_TO_MANY.equals(name) || MANY_TO_MANY.equals(name) || MANY_TO_ONE.equals(name) || ONE_TO_ONE.equals(name))
+            {
+                result = getClassValue(annotation.getValue(), "targetEntity");
+            }
+            else if (HIBERNATE_TARGET.equals(name))
+            {
+                result = getClassValue(annotation.getValue(), "value");
+            }
+        }
+        return result;
+    }
+
+    private String getClassValue(Map<String, Object> values, String name)
+    {
+        final Object value = values.get(name);
+        if (value instanceof JType && ((JType) value).kind != TypeKind.VOID)
+        {
+            return toJavacString((JType) value);
+        }
+        return null;
+    }
+
+    private static AccessType getExplicitAccessType(Map<String, Map<String, Object>> annotations)
+    {
+        final Map<String, Object> access = annotations.get(ACCESS);
+        if (access != null)
+        {
+            final Object value = access.get("value");
+            if (AccessType.PROPERTY.name().equals(value))
+            {
+                return AccessType.PROPERTY;
+            }
+            else if (AccessType.FIELD.name().equals(value))
+            {
+                return AccessType.FIELD;
+            }
+        }
+        return null;
+    }
+
+    private void determineAccessTypeForHierarchy(TypeInfo type)
+    {
+        final String fqcn = type.qualifiedName;
+        final AccessInfo existing = accessTypes.get(fqcn);
+        if (existing != null && existing.isResolved())
+        {
+            return;
+        }
+
+        final AccessType forcedAccessType = getExplicitAccessType(type.annotations);
+        if (forcedAccessType != null)
+        {
+            accessTypes.put(fqcn, new AccessInfo(forcedAccessType, null));
+            updateEmbeddableAccessType(type, forcedAccessType);
+            return;
+        }
+
+        final AccessType rootAccessType = getAccessTypeInCaseElementIsRoot(type);
+        if (rootAccessType != null)
+        {
+            accessTypes.put(fqcn, new AccessInfo(null, rootAccessType));
+            updateEmbeddableAccessType(type, rootAccessType);
+            setDefaultAccessTypeForMappedSuperclassesInHierarchy(type, rootAccessType);
+            return;
+        }
+
+        final AccessType defaultAccessType = getDefaultAccessForHierarchy(type);
+        final AccessType accessType = defaultAccessType != null ? defaultAccessType : AccessType.PROPERTY;
+        accessTypes.put(fqcn, new AccessInfo(null, accessType));
+        updateEmbeddableAccessType(type, accessType);
+    }
+
+    private AccessType getDefaultAccessForHierarchy(TypeInfo type)
+    {
+        AccessType defaultAccessType = null;
+        TypeInfo superClass = type;
+        do
+        {
+            superClass = getSuperclass(superClass);
+            if (superClass != null)
+            {
+                final AccessInfo accessInfo = accessTypes.get(superClass.qualifiedName);
+                if (accessInfo != null && accessInfo.defaultAccessType != null)
+                {
+                    return accessInfo.defaultAccessType;
+                }
+
+                if (superClass.hasAnnotation(ENTITY) || superClass.hasAnnotation(MAPPED_SUPERCLASS))
+                {
+                    defaultAccessType = getAccessTypeInCaseElementIsRoot(superClass);
+                    if (defaultAccessType != null)
+                    {
+                        accessTypes.put(superClass.qualifiedName, new AccessInfo(null, defaultAccessType));
+                        setDefaultAccessTypeForMappedSuperclassesInHierarchy(superClass, defaultAccessType);
+                        break;
+                    }
+                    defaultAccessType = getDefaultAccessForHierarchy(superClass);
+                }
+            }
+        }
+        while (superClass != null);
+        return defaultAccessType;
+    }
+
+    private void setDefaultAccessTypeForMappedSuperclassesInHierarchy(TypeInfo type, AccessType defaultAccessType)
+    {
+        TypeInfo superClass = type;
+        do
+        {
+            superClass = getSuperclass(superClass);
+            if (superClass != null && superClass.hasAnnotation(MAPPED_SUPERCLASS))
+            {
+                final AccessType forcedAccessType = getExplicitAccessType(superClass.annotations);
+                accessTypes.put(superClass.qualifiedName, forcedAccessType != null ? new AccessInfo(forcedAccessType, null) : new AccessInfo(null, defaultAccessType));
+            }
+        }
+        while (superClass != null);
+    }
+
+    private static AccessType getAccessTypeInCaseElementIsRoot(TypeInfo type)
+    {
+        // The processor checks the members in declaration order, which is only known per kind in the class file
+        for (MemberInfo field : type.fields)
+        {
+            if (field.hasAnnotation(ID) || field.hasAnnotation(EMBEDDED_ID))
+            {
+                return AccessType.FIELD;
+            }
+        }
+        for (MemberInfo method : type.methods)
+        {
+            if (method.hasAnnotation(ID) || method.hasAnnotation(EMBEDDED_ID))
+            {
+                return AccessType.PROPERTY;
+            }
+        }
+        return null;
+    }
+
+    private void updateEmbeddableAccessType(TypeInfo type, AccessType accessType)
+    {
+        for (MemberInfo field : type.fields)
+        {
+            updateEmbeddableAccessTypeForMember(field.type, accessType);
+        }
+        for (MemberInfo method : type.methods)
+        {
+            if (isProperty(method.name, toTypeString(method.type)))
+            {
+                updateEmbeddableAccessTypeForMember(method.type, accessType);
+            }
+        }
+    }
+
+    private void updateEmbeddableAccessTypeForMember(JType type, AccessType accessType)
+    {
+        if (type.kind != TypeKind.DECLARED)
+        {
+            return;
+        }
+
+        final TypeInfo embeddable = getType(type.name);
+        if (embeddable != null && embeddable.hasAnnotation(EMBEDDABLE))
+        {
+            final AccessInfo accessInfo = accessTypes.get(embeddable.qualifiedName);
+            if (accessInfo == null)
+            {
+                accessTypes.put(embeddable.qualifiedName, new AccessInfo(null, accessType));
+            }
+            else
+            {
+                accessInfo.defaultAccessType = accessType;
+            }
+        }
+    }
+
+    private String findMappedSuperClass(MetaEntity metaEntity)
+    {
+        TypeInfo superClass = getSuperclass(metaEntity.type);
+        while (superClass != null)
+        {
+            final String fqcn = superClass.qualifiedName;
+            if (metaEntities.containsKey(fqcn) || metaEmbeddables.containsKey(fqcn) || superClass.hasAnnotation(ENTITY) || superClass.hasAnnotation(MAPPED_SUPERCLASS))
+            {
+                return fqcn;
+            }
+            superClass = getSuperclass(superClass);
+        }
+        return null;
+    }
+
+    private String writeClass(MetaEntity metaEntity)
+    {
+        if (!metaEntity.initialized)
+        {
+            init(metaEntity);
+        }
+
+        final String packageName = metaEntity.getPackageName();
+        final ImportContext importContext = new ImportContext(packageName);
+        final String body = generateBody(metaEntity, importContext);
+
+        final StringWriter sw = new StringWriter();
+        try (final PrintWriter pw = new PrintWriter(sw))
+        {
+            if (!packageName.isEmpty())
+            {
+                pw.println("package " + packageName + ";");
+                pw.println();
+            }
+            pw.println(importContext.generateImports());
+            pw.println(body);
+        }
+        return sw.toString();
+    }
+
+    private String generateBody(MetaEntity metaEntity, ImportContext importContext)
+    {
+        final String simpleName = metaEntity.getSimpleName();
+        final StringWriter sw = new StringWriter();
+        try (final PrintWriter pw = new PrintWriter(sw))
+        {
+            pw.println("@" + importContext.importType(GENERATED) + "(value = \"" + GENERATED_BY + "\")");
+            pw.println("@" + importContext.importType(STATIC_METAMODEL) + "(" + simpleName + ".class)");
+
+            pw.print("public abstract class " + simpleName + "_");
+            final String superClass = findMappedSuperClass(metaEntity);
+            if (superClass != null)
+            {
+                pw.print(" extends " + superClass + "_");
+            }
+            pw.println(" {");
+            pw.println();
+
+            final String owner = metaEntity.type.qualifiedName;
+            for (Attribute attribute : metaEntity.members.values())
+            {
+                final StringBuilder s = new StringBuilder("public static volatile ");
+                s.append(importContext.importType(attribute.metaType)).append('<').append(importContext.importType(owner)).append(", ");
+                if (attribute.keyType != null)
+                {
+                    s.append(importContext.importType(attribute.keyType)).append(", ");
+                }
+                s.append(importContext.importType(attribute.type)).append("> ").append(attribute.name).append(';');
+                pw.println("\t" + s);
+            }
+            pw.println();
+
+            for (Attribute attribute : metaEntity.members.values())
+            {
+                final String constant = attribute.name.replaceAll("(.)(\\p{Upper})", "$1_$2").toUpperCase();
+                pw.println("\tpublic static final " + importContext.importType(String.class.getName()) + " " + constant + " = \"" + attribute.name + "\";");
+            }
+            pw.println();
+            pw.println("}");
+        }
+        return sw.toString();
+    }
+
+    private static boolean isProperty(String methodName, String returnType)
+    {
+        if (returnType == null || "void".equals(returnType))
+        {
+            return false;
+        }
+
+        if (isValidPropertyName(methodName, "get"))
+        {
+            return true;
+        }
+        return (isValidPropertyName(methodName, "is") || isValidPropertyName(methodName, "has")) && ("Boolean".equals(returnType) || "java.lang.Boolean".equals(returnType));
+    }
+
+    private static boolean isValidPropertyName(String name, String prefix)
+    {
+        return name.startsWith(prefix) && name.length() >= prefix.length() + 1;
+    }
+
+    private static String getPropertyName(MemberInfo member)
+    {
+        if (member.field)
+        {
+            return member.name;
+        }
+        else if (member.name.startsWith("get"))
+        {
+            return decapitalize(member.name.substring(3));
+        }
+        else if (member.name.startsWith("is"))
+        {
+            return decapitalize(member.name.substring(2));
+        }
+        return decapitalize(member.name);
+    }
+
+    /**
+     * Same as <code>java.beans.Introspector.decapitalize</code>, which is not available without the desktop module
+     */
+    private static String decapitalize(String name)
+    {
+        if (name.isEmpty() || (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))))
+        {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private String toTypeString(JType type)
+    {
+        if (type.kind == TypeKind.PRIMITIVE)
+        {
+            return PRIMITIVE_WRAPPERS.get(type.name);
+        }
+        else if (type.kind == TypeKind.TYPEVAR)
+        {
+            return type.name;
+        }
+        final StringBuilder s = new StringBuilder();
+        render(type, s, new HashSet<>());
+        return s.toString();
+    }
+
+    /**
+     * Render a type with its type arguments and bounds, as the processor does for basic collection attributes
+     */
+    private void render(JType type, StringBuilder s, Set<String> visitedTypeVariables)
+    {
+        switch (type.kind)
+        {
+            case PRIMITIVE:
+            case VOID:
+                s.append(type.name);
+                break;
+            case ARRAY:
+                render(type.component, s, visitedTypeVariables);
+                s.append("[]");
+                break;
+            case DECLARED:
+                s.append(getQualifiedName(type.name));
+                if (!type.arguments.isEmpty())
+                {
+                    s.append('<');
+                    for (int i = 0; i < type.arguments.size(); i++)
+                    {
+                        if (i > 0)
+                        {
+                            s.append(", ");
+                        }
+                        render(type.arguments.get(i), s, visitedTypeVariables);
+                    }
+                    s.append('>');
+                }
+                break;
+            case TYPEVAR:
+                s.append(type.name);
+                final JType bound = type.getBound();
+                if (!OBJECT.equals(toJavacString(bound)) && visitedTypeVariables.add(type.name))
+                {
+                    s.append(" extends ");
+                    render(bound, s, visitedTypeVariables);
+                    visitedTypeVariables.remove(type.name);
+                }
+                break;
+            case WILDCARD:
+                s.append('?');
+                if (type.component != null)
+                {
+                    s.append(" extends ");
+                    render(type.component, s, visitedTypeVariables);
+                }
+                if (type.superBound != null)
+                {
+                    s.append(" super ");
+                    render(type.superBound, s, visitedTypeVariables);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @return The type as written by <code>TypeMirror.toString()</code> of javac
+     */
+    private String toJavacString(JType type)
+    {
+        switch (type.kind)
+        {
+            case ARRAY:
+                return toJavacString(type.component) + "[]";
+            case DECLARED:
+                final StringBuilder s = new StringBuilder(getQualifiedName(type.name));
+                if (!type.arguments.isEmpty())
+                {
+                    s.append('<');
+                    for (int i = 0; i < type.arguments.size(); i++)
+                    {
+                        s.append(i > 0 ? "," : "").append(toJavacString(type.arguments.get(i)));
+                    }
+                    s.append('>');
+                }
+                return s.toString();
+            case WILDCARD:
+                if (type.component != null)
+                {
+                    return "? extends " + toJavacString(type.component);
+                }
+                return type.superBound != null ? "? super " + toJavacString(type.superBound) : "?";
+            default:
+                return type.name;
+        }
+    }
+
+    private String toArrayTypeString(JType type)
+    {
+        final JType component = type.component;
+        if (component.kind == TypeKind.PRIMITIVE)
+        {
+            return component.name + "[]";
+        }
+        return extractClosestRealTypeAsString(component) + "[]";
+    }
+
+    private String extractClosestRealTypeAsString(JType type)
+    {
+        if (type.kind == TypeKind.TYPEVAR)
+        {
+            return extractClosestRealTypeAsString(type.getBound());
+        }
+
+        final JType erased = erasure(type);
+        if (erased.kind == TypeKind.DECLARED)
+        {
+            return getQualifiedName(erased.name);
+        }
+        return toJavacString(erased);
+    }
+
+    private static JType erasure(JType type)
+    {
+        switch (type.kind)
+        {
+            case DECLARED:
+                return type.arguments.isEmpty() ? type : JType.declared(type.name, Collections.emptyList());
+            case ARRAY:
+                return JType.array(erasure(type.component));
+            case TYPEVAR:
+                return erasure(type.getBound());
+            case WILDCARD:
+                return type.component != null ? erasure(type.component) : JType.declared(OBJECT, Collections.emptyList());
+            default:
+                return type;
+        }
+    }
+
+    private TypeInfo getSuperclass(TypeInfo type)
+    {
+        return type.superclass != null ? getType(type.superclass) : null;
+    }
+
+    private String getQualifiedName(String binaryName)
+    {
+        final TypeInfo type = getType(binaryName);
+        return type != null ? type.qualifiedName : binaryName.replace('$', '.');
+    }
+
+    private TypeInfo getTypeByQualifiedName(String qualifiedName)
+    {
+        // Nested classes: try replacing the last dots with '$' until the class is found
+        String name = qualifiedName;
+        while (true)
+        {
+            final TypeInfo type = getType(name);
+            if (type != null)
+            {
+                return type;
+            }
+
+            final int index = name.lastIndexOf('.');
+            if (index < 0)
+            {
+                return null;
+            }
+            name = name.substring(0, index) + '$' + name.substring(index + 1);
+        }
+    }
+
+    /**
+     * @return The type, read from the scanned classes or loaded from the class-path, or null if it cannot be found
+     */
+    private TypeInfo getType(String binaryName)
+    {
+        if (types.containsKey(binaryName))
+        {
+            return types.get(binaryName);
+        }
+
+        final ClassInfo classInfo = scanResult.getClassInfo(binaryName);
+        final TypeInfo type = classInfo != null && !classInfo.isExternalClass() ? readType(classInfo) : loadType(binaryName);
+        types.put(binaryName, type);
+        return type;
+    }
+
+    private TypeInfo readType(ClassInfo classInfo)
+    {
+        final Kind kind;
+        if (classInfo.isAnnotation() || classInfo.isRecord())
+        {
+            kind = Kind.OTHER;
+        }
+        else if (classInfo.isInterface())
+        {
+            kind = Kind.INTERFACE;
+        }
+        else
+        {
+            kind = classInfo.isEnum() ? Kind.ENUM : Kind.CLASS;
+        }
+
+        final List<String> interfaces = new ArrayList<>();
+        final ClassTypeSignature signature = classInfo.getTypeSignatureOrTypeDescriptor();
+        if (signature != null)
+        {
+            for (ClassRefTypeSignature superinterface : signature.getSuperinterfaceSignatures())
+            {
+                interfaces.add(superinterface.getFullyQualifiedClassName());
+            }
+        }
+
+        final List<MemberInfo> fields = new ArrayList<>();
+        for (FieldInfo field : classInfo.getDeclaredFieldInfo())
+        {
+            if (!isSyntheticOrWoven(field.getName(), field.getModifiers()))
+            {
+                fields.add(new MemberInfo(field.getName(), true, field.isStatic(), field.isTransient(), toAnnotations(field.getAnnotationInfo()), toType(field.getTypeSignatureOrTypeDescriptor()), 0));
+            }
+        }
+
+        final List<MemberInfo> methods = new ArrayList<>();
+        for (MethodInfo method : classInfo.getDeclaredMethodInfo())
+        {
+            if (!method.isBridge() && !isSyntheticOrWoven(method.getName(), method.getModifiers()))
+            {
+                methods.add(new MemberInfo(method.getName(), false, method.isStatic(), false, toAnnotations(method.getAnnotationInfo()), toType(method.getTypeSignatureOrTypeDescriptor().getResultType()), method.getParameterInfo().length));
+            }
+        }
+
+        final ClassInfo superclass = classInfo.getSuperclass();
+        final String name = classInfo.getName();
+        return new TypeInfo(name, classInfo.isInnerClass() ? name.replace('$', '.') : name, kind, superclass != null ? superclass.getName() : null, interfaces, toAnnotations(classInfo.getAnnotationInfo().directOnly()), fields, methods);
+    }
+
+    private static boolean isSyntheticOrWoven(String name, int modifiers)
+    {
+        // 0x1000 is ACC_SYNTHETIC, which java.lang.reflect.Modifier does not expose
+        return (modifiers & 0x1000) != 0 || name.startsWith(WOVEN_MEMBER_PREFIX);
+    }
+
+    private Map<String, Map<String, Object>> toAnnotations(AnnotationInfoList annotationInfos)
+    {
+        final Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (AnnotationInfo annotationInfo : annotationInfos)
+        {
+            final Map<String, Object> values = new HashMap<>();
+            // Only the values given explicitly, like the annotation mirrors of the processor
+            for (AnnotationParameterValue value : annotationInfo.getParameterValues(false))
+            {
+                values.put(value.getName(), toAnnotationValue(value.getValue()));
+            }
+            result.put(annotationInfo.getName(), values);
+        }
+        return result;
+    }
+
+    private Object toAnnotationValue(Object value)
+    {
+        if (value instanceof AnnotationClassRef)
+        {
+            return toType(((AnnotationClassRef) value).getName());
+        }
+        else if (value instanceof AnnotationEnumValue)
+        {
+            return ((AnnotationEnumValue) value).getValueName();
+        }
+        return value;
+    }
+
+    private JType toType(TypeSignature signature)
+    {
+        if (signature instanceof BaseTypeSignature)
+        {
+            return toType(((BaseTypeSignature) signature).getTypeStr());
+        }
+        else if (signature instanceof ArrayTypeSignature)
+        {
+            return JType.array(toType(((ArrayTypeSignature) signature).getNestedType()));
+        }
+        else if (signature instanceof ClassRefTypeSignature)
+        {
+            final ClassRefTypeSignature classRef = (ClassRefTypeSignature) signature;
+            final List<TypeArgument> typeArguments = classRef.getSuffixes().isEmpty() ? classRef.getTypeArguments() : classRef.getSuffixTypeArguments().get(classRef.getSuffixTypeArguments().size() - 1);
+            final List<JType> arguments = new ArrayList<>(typeArguments.size());
+            for (TypeArgument typeArgument : typeArguments)
+            {
+                arguments.add(toType(typeArgument));
+            }
+            return JType.declared(classRef.getFullyQualifiedClassName(), arguments);
+        }
+        else if (signature instanceof TypeVariableSignature)
+        {
+            final TypeVariableSignature typeVariable = (TypeVariableSignature) signature;
+            return JType.typeVariable(typeVariable.getName(), () -> getBound(typeVariable));
+        }
+        return JType.declared(OBJECT, Collections.emptyList());
+    }
+
+    private JType getBound(TypeVariableSignature typeVariable)
+    {
+        try
+        {
+            final TypeParameter typeParameter = typeVariable.resolve();
+            if (typeParameter.getClassBound() != null)
+            {
+                return toType(typeParameter.getClassBound());
+            }
+            final List<ReferenceTypeSignature> interfaceBounds = typeParameter.getInterfaceBounds();
+            return interfaceBounds.isEmpty() ? JType.declared(OBJECT, Collections.emptyList()) : toType(interfaceBounds.get(0));
+        }
+        catch (IllegalArgumentException exc)
+        {
+            return JType.declared(OBJECT, Collections.emptyList());
+        }
+    }
+
+    private JType toType(TypeArgument typeArgument)
+    {
+        switch (typeArgument.getWildcard())
+        {
+            case ANY:
+                return JType.wildcard(null, null);
+            case EXTENDS:
+                return JType.wildcard(toType(typeArgument.getTypeSignature()), null);
+            case SUPER:
+                return JType.wildcard(null, toType(typeArgument.getTypeSignature()));
+            default:
+                return toType(typeArgument.getTypeSignature());
+        }
+    }
+
+    private static JType toType(String className)
+    {
+        if ("void".equals(className))
+        {
+            return new JType(TypeKind.VOID, className, Collections.emptyList(), null, null, null);
+        }
+        else if (PRIMITIVE_WRAPPERS.containsKey(className))
+        {
+            return new JType(TypeKind.PRIMITIVE, className, Collections.emptyList(), null, null, null);
+        }
+        else if (className.endsWith("[]"))
+        {
+            return JType.array(toType(className.substring(0, className.length() - 2)));
+        }
+        return JType.declared(className, Collections.emptyList());
+    }
+
+    private TypeInfo loadType(String binaryName)
+    {
+        final Class<?> type;
+        try
+        {
+            type = Class.forName(binaryName, false, classLoader);
+        }
+        catch (ClassNotFoundException | LinkageError exc)
+        {
+            return null;
+        }
+
+        final Kind kind;
+        if (type.isAnnotation() || type.isRecord() || type.isArray() || type.isPrimitive())
+        {
+            kind = Kind.OTHER;
+        }
+        else if (type.isInterface())
+        {
+            kind = Kind.INTERFACE;
+        }
+        else
+        {
+            kind = type.isEnum() ? Kind.ENUM : Kind.CLASS;
+        }
+
+        final List<String> interfaces = new ArrayList<>();
+        for (Class<?> implemented : type.getInterfaces())
+        {
+            interfaces.add(implemented.getName());
+        }
+
+        // Members of classes with missing dependencies cannot be listed, these types are then used without members
+        final List<MemberInfo> fields = new ArrayList<>();
+        final List<MemberInfo> methods = new ArrayList<>();
+        try
+        {
+            for (Field field : type.getDeclaredFields())
+            {
+                if (!field.isSynthetic() && !field.getName().startsWith(WOVEN_MEMBER_PREFIX))
+                {
+                    fields.add(new MemberInfo(field.getName(), true, Modifier.isStatic(field.getModifiers()), Modifier.isTransient(field.getModifiers()), toAnnotations(field.getDeclaredAnnotations()), toType(getGenericType(field::getGenericType, field.getType())), 0));
+                }
+            }
+            for (Method method : type.getDeclaredMethods())
+            {
+                if (!method.isSynthetic() && !method.isBridge() && !method.getName().startsWith(WOVEN_MEMBER_PREFIX))
+                {
+                    methods.add(new MemberInfo(method.getName(), false, Modifier.isStatic(method.getModifiers()), false, toAnnotations(method.getDeclaredAnnotations()), toType(getGenericType(method::getGenericReturnType, method.getReturnType())), method.getParameterCount()));
+                }
+            }
+        }
+        catch (LinkageError | TypeNotPresentException exc)
+        {
+            fields.clear();
+            methods.clear();
+        }
+
+        final String qualifiedName = type.getCanonicalName() != null ? type.getCanonicalName() : type.getName();
+        return new TypeInfo(binaryName, qualifiedName, kind, type.getSuperclass() != null ? type.getSuperclass().getName() : null, interfaces, toAnnotations(type.getDeclaredAnnotations()), fields, methods);
+    }
+
+    private static Type getGenericType(Supplier<Type> genericType, Class<?> rawType)
+    {
+        try
+        {
+            return genericType.get();
+        }
+        catch (TypeNotPresentException | java.lang.reflect.MalformedParameterizedTypeException | java.lang.reflect.GenericSignatureFormatError exc)
+        {
+            return rawType;
+        }
+    }
+
+    private Map<String, Map<String, Object>> toAnnotations(Annotation[] annotations)
+    {
+        final Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Annotation annotation : annotations)
+        {
+            final Map<String, Object> values = new HashMap<>();
+            for (Method method : annotation.annotationType().getDeclaredMethods())
+            {
+                if (method.getParameterCount() == 0)
+                {
+                    try
+                    {
+                        final Object value = method.invoke(annotation);
+                        values.put(method.getName(), value instanceof Class ? toType((Type) value) : value instanceof Enum ? ((Enum<?>) value).name() : value);
+                    }
+                    catch (ReflectiveOperationException | RuntimeException exc)
+                    {
+                        // Not readable, like a value referring to a missing class
+                    }
+                }
+            }
+            result.put(annotation.annotationType().getName(), values);
+        }
+        return result;
+    }
+
+    private JType toType(Type type)
+    {
+        if (type instanceof Class)
+        {
+            final Class<?> rawType = (Class<?>) type;
+            if (rawType.isArray())
+            {
+                return JType.array(toType(rawType.getComponentType()));
+            }
+            return toType(rawType.getName());
+        }
+        else if (type instanceof ParameterizedType)
+        {
+            final List<JType> arguments = new ArrayList<>();
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments())
+            {
+                arguments.add(toType(argument));
+            }
+            return JType.declared(((Class<?>) ((ParameterizedType) type).getRawType()).getName(), arguments);
+        }
+        else if (type instanceof GenericArrayType)
+        {
+            return JType.array(toType(((GenericArrayType) type).getGenericComponentType()));
+        }
+        else if (type instanceof TypeVariable)
+        {
+            final TypeVariable<?> typeVariable = (TypeVariable<?>) type;
+            return JType.typeVariable(typeVariable.getName(), () -> toType(typeVariable.getBounds()[0]));
+        }
+        else if (type instanceof WildcardType)
+        {
+            final WildcardType wildcard = (WildcardType) type;
+            if (wildcard.getLowerBounds().length > 0)
+            {
+                return JType.wildcard(null, toType(wildcard.getLowerBounds()[0]));
+            }
+            final Type upperBound = wildcard.getUpperBounds()[0];
+            return JType.wildcard(Object.class.equals(upperBound) ? null : toType(upperBound), null);
+        }
+        return JType.declared(OBJECT, Collections.emptyList());
+    }
+
+    private enum Kind
+    {
+        CLASS, INTERFACE, ENUM, OTHER
+    }
+
+    private enum AccessType
+    {
+        FIELD, PROPERTY
+    }
+
+    private enum TypeKind
+    {
+        PRIMITIVE, VOID, ARRAY, DECLARED, TYPEVAR, WILDCARD
+    }
+
+    /**
+     * A type of a field or method, with the generic information of the signature
+     */
+    private static class JType
+    {
+        private final TypeKind kind;
+        private final String name;
+        private final List<JType> arguments;
+        // The array component type, or the extends bound of a wildcard
+        private final JType component;
+        private final JType superBound;
+        private final Supplier<JType> boundSupplier;
+        private JType bound;
+
+        private JType(TypeKind kind, String name, List<JType> arguments, JType component, JType superBound, Supplier<JType> boundSupplier)
+        {
+            this.kind = kind;
+            this.name = name;
+            this.arguments = arguments;
+            this.component = component;
+            this.superBound = superBound;
+            this.boundSupplier = boundSupplier;
+        }
+
+        static JType declared(String binaryName, List<JType> arguments)
+        {
+            return new JType(TypeKind.DECLARED, binaryName, arguments, null, null, null);
+        }
+
+        static JType array(JType component)
+        {
+            return new JType(TypeKind.ARRAY, null, Collections.emptyList(), component, null, null);
+        }
+
+        static JType wildcard(JType extendsBound, JType superBound)
+        {
+            return new JType(TypeKind.WILDCARD, "?", Collections.emptyList(), extendsBound, superBound, null);
+        }
+
+        /**
+         * The bound is resolved lazily, as it may refer to the type variable itself
+         */
+        static JType typeVariable(String name, Supplier<JType> bound)
+        {
+            return new JType(TypeKind.TYPEVAR, name, Collections.emptyList(), null, null, bound);
+        }
+
+        JType getBound()
+        {
+            if (bound == null)
+            {
+                bound = boundSupplier.get();
+            }
+            return bound;
+        }
+    }
+
+    private static class TypeInfo
+    {
+        private final String name;
+        private final String qualifiedName;
+        private final Kind kind;
+        private final String superclass;
+        private final List<String> interfaces;
+        private final Map<String, Map<String, Object>> annotations;
+        private final List<MemberInfo> fields;
+        private final List<MemberInfo> methods;
+
+        private TypeInfo(String name, String qualifiedName, Kind kind, String superclass, List<String> interfaces, Map<String, Map<String, Object>> annotations, List<MemberInfo> fields, List<MemberInfo> methods)
+        {
+            this.name = name;
+            this.qualifiedName = qualifiedName;
+            this.kind = kind;
+            this.superclass = superclass;
+            this.interfaces = interfaces;
+            this.annotations = annotations;
+            this.fields = fields;
+            this.methods = methods;
+        }
+
+        boolean hasAnnotation(String annotation)
+        {
+            return annotations.containsKey(annotation);
+        }
+    }
+
+    private static class MemberInfo
+    {
+        private final String name;
+        private final boolean field;
+        private final boolean isStatic;
+        private final boolean isTransient;
+        private final Map<String, Map<String, Object>> annotations;
+        // The field type or the method return type
+        private final JType type;
+        private final int parameterCount;
+
+        private MemberInfo(String name, boolean field, boolean isStatic, boolean isTransient, Map<String, Map<String, Object>> annotations, JType type, int parameterCount)
+        {
+            this.name = name;
+            this.field = field;
+            this.isStatic = isStatic;
+            this.isTransient = isTransient;
+            this.annotations = annotations;
+            this.type = type;
+            this.parameterCount = parameterCount;
+        }
+
+        boolean hasAnnotation(String annotation)
+        {
+            return annotations.containsKey(annotation);
+        }
+    }
+
+    private static class AccessInfo
+    {
+        private final AccessType explicitAccessType;
+        private AccessType defaultAccessType;
+
+        private AccessInfo(AccessType explicitAccessType, AccessType defaultAccessType)
+        {
+            this.explicitAccessType = explicitAccessType;
+            this.defaultAccessType = defaultAccessType;
+        }
+
+        boolean isResolved()
+        {
+            return explicitAccessType != null || defaultAccessType != null;
+        }
+
+        AccessType getAccessType()
+        {
+            if (explicitAccessType != null)
+            {
+                return explicitAccessType;
+            }
+            return defaultAccessType != null ? defaultAccessType : AccessType.PROPERTY;
+        }
+    }
+
+    private static class Attribute
+    {
+        private final String name;
+        private final String metaType;
+        private final String keyType;
+        private final String type;
+
+        private Attribute(String name, String metaType, String keyType, String type)
+        {
+            this.name = name;
+            this.metaType = metaType;
+            this.keyType = keyType;
+            this.type = type;
+        }
+    }
+
+    private static class MetaEntity
+    {
+        private final TypeInfo type;
+        // Same map type as the processor, as the iteration order is the member order of the generated class
+        private final Map<String, Attribute> members = new HashMap<>();
+        private AccessInfo accessInfo;
+        private boolean initialized;
+
+        private MetaEntity(TypeInfo type)
+        {
+            this.type = type;
+        }
+
+        String getPackageName()
+        {
+            final int index = type.name.lastIndexOf('.');
+            return index < 0 ? "" : type.name.substring(0, index);
+        }
+
+        String getSimpleName()
+        {
+            return type.name.substring(type.name.lastIndexOf('.') + 1);
+        }
+
+        String getMetaModelClassName()
+        {
+            return type.qualifiedName + "_";
+        }
+    }
+
+    /**
+     * Keeps track of the imports of a generated class, with the same rules as the processor
+     */
+    private static class ImportContext
+    {
+        private final Set<String> imports = new TreeSet<>();
+        private final Map<String, String> simpleNames = new HashMap<>();
+        private final String basePackage;
+
+        private ImportContext(String basePackage)
+        {
+            this.basePackage = basePackage;
+        }
+
+        String importType(String fqcn)
+        {
+            String result = fqcn;
+            String additionalTypePart = null;
+            if (fqcn.indexOf('<') >= 0)
+            {
+                additionalTypePart = result.substring(fqcn.indexOf('<'));
+                result = result.substring(0, fqcn.indexOf('<'));
+            }
+            else if (fqcn.indexOf('[') >= 0)
+            {
+                additionalTypePart = result.substring(fqcn.indexOf('['));
+                result = result.substring(0, fqcn.indexOf('['));
+            }
+
+            final String pureFqcn = result.replace('$', '.');
+            final String simpleName = unqualify(result);
+            final boolean canBeSimple;
+            if (simpleNames.containsKey(simpleName))
+            {
+                canBeSimple = simpleNames.get(simpleName).equals(pureFqcn);
+            }
+            else
+            {
+                canBeSimple = true;
+                simpleNames.put(simpleName, pureFqcn);
+                imports.add(pureFqcn);
+            }
+
+            if (inSamePackage(result) || (imports.contains(pureFqcn) && canBeSimple))
+            {
+                result = unqualify(result);
+            }
+            else if (inJavaLang(result))
+            {
+                result = result.substring("java.lang.".length());
+            }
+
+            if (additionalTypePart != null)
+            {
+                result = result + additionalTypePart;
+            }
+            return result.replace('$', '.');
+        }
+
+        String generateImports()
+        {
+            final StringBuilder s = new StringBuilder();
+            for (String next : imports)
+            {
+                // Primitives, java.lang, the default package and the own package are not imported
+                if (next.indexOf('.') >= 0 && !inJavaLang(next) && !inSamePackage(next))
+                {
+                    s.append("import ").append(next).append(';').append(System.lineSeparator());
+                }
+            }
+            return s.toString();
+        }
+
+        private boolean inSamePackage(String className)
+        {
+            return qualifier(className).equals(basePackage);
+        }
+
+        private static boolean inJavaLang(String className)
+        {
+            return "java.lang".equals(qualifier(className));
+        }
+
+        private static String unqualify(String name)
+        {
+            return name.substring(name.lastIndexOf('.') + 1);
+        }
+
+        private static String qualifier(String name)
+        {
+            final int index = name.lastIndexOf('.');
+            return index < 0 ? "" : name.substring(0, index);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal class file header reader. Only the constant pool, the class name, the super class and the
+ * directly implemented interfaces are read, the rest of the class file is left untouched.
+ * <p>
+ * The referenced class names are collected from class constants and from field/method descriptors and
+ * signatures in the constant pool, so they are a conservative superset of the types the class depends on.
+ *
+ * @author Morten Haraldsen
+ */
+public class ClassFileInfo
+{
+    /**
+     * Interface added by the EclipseLink weaver to every woven class
+     */
+    public static final String WOVEN_MARKER = "org.eclipse.persistence.internal.weaving.PersistenceWeaved";
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final Pattern TYPE_DESCRIPTOR = Pattern.compile("L([A-Za-z_$][\\w$/]*)[;<]");
+
+    private final String className;
+    private final String superClassName;
+    private final List<String> interfaceNames;
+    private final Set<String> referencedClassNames;
+
+    private ClassFileInfo(String className, String superClassName, List<String> interfaceNames, Set<String> referencedClassNames)
+    {
+        this.className = className;
+        this.superClassName = superClassName;
+        this.interfaceNames = interfaceNames;
+        this.referencedClassNames = referencedClassNames;
+    }
+
+    public static ClassFileInfo parse(byte[] classBytes)
+    {
+        try
+        {
+            final ByteBuffer buf = ByteBuffer.wrap(classBytes);
+            if (buf.getInt() != MAGIC)
+            {
+                throw new IllegalArgumentException("Not a class file");
+            }
+
+            // Minor and major version
+            buf.getShort();
+            buf.getShort();
+
+            final int poolCount = buf.getShort() & 0xFFFF;
+            final String[] utf8 = new String[poolCount];
+            final int[] classNameIndex = new int[poolCount];
+            for (int i = 1; i < poolCount; i++)
+            {
+                final int tag = buf.get() & 0xFF;
+                switch (tag)
+                {
+                    case 1:
+                        final int length = buf.getShort() & 0xFFFF;
+                        utf8[i] = new String(classBytes, buf.position(), length, StandardCharsets.UTF_8);
+                        buf.position(buf.position() + length);
+                        break;
+                    case 7:
+                        classNameIndex[i] = buf.getShort() & 0xFFFF;
+                        break;
+                    case 8:
+                    case 16:
+                    case 19:
+                    case 20:
+                        buf.position(buf.position() + 2);
+                        break;
+                    case 15:
+                        buf.position(buf.position() + 3);
+                        break;
+                    case 3:
+                    case 4:
+                    case 9:
+                    case 10:
+                    case 11:
+                    case 12:
+                    case 17:
+                    case 18:
+                        buf.position(buf.position() + 4);
+                        break;
+                    case 5:
+                    case 6:
+                        // Long and double take up two constant pool slots
+                        buf.position(buf.position() + 8);
+                        i++;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown constant pool tag " + tag + " at index " + i);
+                }
+            }
+
+            // Access flags
+            buf.getShort();
+
+            final String thisClass = className(utf8, classNameIndex, buf.getShort() & 0xFFFF);
+            final String superClass = className(utf8, classNameIndex, buf.getShort() & 0xFFFF);
+            final int interfaceCount = buf.getShort() & 0xFFFF;
+            final List<String> interfaces = new ArrayList<>(interfaceCount);
+            for (int i = 0; i < interfaceCount; i++)
+            {
+                interfaces.add(className(utf8, classNameIndex, buf.getShort() & 0xFFFF));
+            }
+            return new ClassFileInfo(thisClass, superClass, Collections.unmodifiableList(interfaces), referencedClassNames(utf8, classNameIndex, thisClass));
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException exc)
+        {
+            throw new IllegalArgumentException("Truncated or malformed class file", exc);
+        }
+    }
+
+    private static Set<String> referencedClassNames(String[] utf8, int[] classNameIndex, String thisClass)
+    {
+        final Set<String> result = new TreeSet<>();
+        for (int i = 1; i < utf8.length; i++)
+        {
+            if (classNameIndex[i] != 0)
+            {
+                final String name = utf8[classNameIndex[i]];
+                if (!name.startsWith("["))
+                {
+                    result.add(name.replace('/', '.'));
+                }
+            }
+
+            if (utf8[i] != null && utf8[i].indexOf(';') > 0)
+            {
+                final Matcher matcher = TYPE_DESCRIPTOR.matcher(utf8[i]);
+                while (matcher.find())
+                {
+                    result.add(matcher.group(1).replace('/', '.'));
+                }
+            }
+        }
+        result.remove(thisClass);
+        return Collections.unmodifiableSet(result);
+    }
+
+    private static String className(String[] utf8, int[] classNameIndex, int index)
+    {
+        if (index == 0)
+        {
+            return null;
+        }
+        return utf8[classNameIndex[index]].replace('/', '.');
+    }
+
+    /**
+     * @return The fully qualified class name, using '.' as separator
+     */
+    public String getClassName()
+    {
+        return className;
+    }
+
+    /**
+     * @return The fully qualified super class name, or null for <code>java.lang.Object</code>
+     */
+    public String getSuperClassName()
+    {
+        return superClassName;
+    }
+
+    public List<String> getInterfaceNames()
+    {
+        return interfaceNames;
+    }
+
+    /**
+     * @return true if the class has been woven by EclipseLink
+     */
+    public boolean isWoven()
+    {
+        return interfaceNames.contains(WOVEN_MARKER);
+    }
+
+    /**
+     * @return All class names referenced from the constant pool, using '.' as separator
+     */
+    public Set<String> getReferencedClassNames()
+    {
+        return referencedClassNames;
+    }
+}
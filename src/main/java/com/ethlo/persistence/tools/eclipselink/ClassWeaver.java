@@ -0,0 +1,153 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+
+import jakarta.persistence.spi.TransformerException;
+
+import org.eclipse.persistence.tools.weaving.jpa.StaticWeaveClassTransformer;
+
+/**
+ * Weaves single classes using the same class transformer as {@link org.eclipse.persistence.tools.weaving.jpa.StaticWeaveProcessor},
+ * so the persistence unit metadata is only processed once and the output is identical to weaving the whole directory.
+ * <p>
+ * With a {@link BuildCache}, the woven bytes are looked up by the hash of the class bytes and of all other weaving
+ * inputs first. The transformer, and with it the persistence unit metadata, is only created on the first miss.
+ * <p>
+ * Close the weaver when done, as its class loader keeps the source open, which prevents a jar from being replaced on
+ * some platforms.
+ *
+ * @author Morten Haraldsen
+ */
+public class ClassWeaver implements AutoCloseable
+{
+    private final URLClassLoader classLoader;
+    private final URL persistenceInfo;
+    private final int logLevel;
+    private final BuildCache cache;
+    private final String cacheKey;
+    private volatile StaticWeaveClassTransformer transformer;
+
+    public ClassWeaver(File source, File persistenceInfoLocation, ClassLoader parent, int logLevel) throws IOException, URISyntaxException
+    {
+        this(source, persistenceInfoLocation, parent, logLevel, null, null);
+    }
+
+    /**
+     * @param cache    The cache of woven classes, or null to always weave
+     * @param cacheKey The hash of the weaving inputs other than the class itself, like the persistence unit and the class-path
+     */
+    public ClassWeaver(File source, File persistenceInfoLocation, ClassLoader parent, int logLevel, BuildCache cache, String cacheKey) throws IOException, URISyntaxException
+    {
+        final URL sourceUrl = source.toURI().toURL();
+        final URL persistenceInfo = persistenceInfoLocation != null ? persistenceInfoLocation.toURI().toURL() : null;
+
+        // Same class-loader setup as StaticWeaveProcessor
+        this.classLoader = new URLClassLoader(persistenceInfo != null ? new URL[]{persistenceInfo, sourceUrl} : new URL[]{sourceUrl}, parent);
+        this.persistenceInfo = persistenceInfo != null ? persistenceInfo : sourceUrl;
+        this.logLevel = logLevel;
+        this.cache = cache;
+        this.cacheKey = cacheKey;
+        if (cache == null)
+        {
+            this.transformer = createTransformer();
+        }
+    }
+
+    private StaticWeaveClassTransformer createTransformer() throws IOException
+    {
+        try
+        {
+            return new StaticWeaveClassTransformer(persistenceInfo, null, classLoader, Utils.ECLIPSELINK_LOG_WRITER, logLevel);
+        }
+        catch (URISyntaxException exc)
+        {
+            throw new IOException(exc.getMessage(), exc);
+        }
+    }
+
+    private StaticWeaveClassTransformer getTransformer() throws IOException
+    {
+        if (transformer == null)
+        {
+            synchronized (this)
+            {
+                if (transformer == null)
+                {
+                    transformer = createTransformer();
+                }
+            }
+        }
+        return transformer;
+    }
+
+    /**
+     * @param className  The fully qualified class name
+     * @param classBytes The class bytes to weave
+     * @return The woven class bytes, or the original bytes if the class is not subject to weaving
+     */
+    public byte[] weave(String className, byte[] classBytes) throws IOException
+    {
+        if (cache == null)
+        {
+            return transform(className, classBytes);
+        }
+
+        final String key = Utils.hash((cacheKey + ":" + className + ":" + Utils.hash(classBytes)).getBytes(StandardCharsets.UTF_8));
+        final byte[] cached = cache.get(key);
+        if (cached != null)
+        {
+            // An empty entry is a class not changed by weaving
+            return cached.length == 0 ? classBytes : cached;
+        }
+
+        final byte[] woven = transform(className, classBytes);
+        cache.put(key, woven == classBytes ? new byte[0] : woven);
+        return woven;
+    }
+
+    private byte[] transform(String className, byte[] classBytes) throws IOException
+    {
+        try
+        {
+            final Class<?> type = classLoader.loadClass(className);
+            final byte[] woven = getTransformer().transform(className.replace('.', '/'), type, classBytes);
+            return woven != null ? woven : classBytes;
+        }
+        catch (ClassNotFoundException | TransformerException exc)
+        {
+            // Like StaticWeaveProcessor, classes that cannot be loaded or transformed are copied as-is
+            return classBytes;
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        classLoader.close();
+    }
+}
@@ -35,10 +35,21 @@ import javax.sql.DataSource;
 public class DelegatingPuInfo implements PersistenceUnitInfo
 {
     private final PersistenceUnitInfo delegate;
+    private final String rootUrl;
 
     public DelegatingPuInfo(PersistenceUnitInfo delegate)
+    {
+        this(delegate, "http://foo.bar");
+    }
+
+    /**
+     * @param rootUrl The persistence unit root URL. EclipseLink identifies deployed sessions by it, so concurrent
+     *                schema generations must use different URLs
+     */
+    public DelegatingPuInfo(PersistenceUnitInfo delegate, String rootUrl)
     {
         this.delegate = delegate;
+        this.rootUrl = rootUrl;
     }
 
     public String getPersistenceUnitName()
@@ -80,7 +91,7 @@ public class DelegatingPuInfo implements PersistenceUnitInfo
     {
         try
         {
-            return new URL("http://foo.bar");
+            return new URL(rootUrl);
         }
         catch (MalformedURLException exc)
         {
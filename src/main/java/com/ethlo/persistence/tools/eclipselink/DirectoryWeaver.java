@@ -0,0 +1,206 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Weaves the class files of a directory, optionally spread over multiple threads. Each class is read, woven and
+ * written independently, sharing one {@link ClassWeaver}.
+ * <p>
+ * The output is kept in memory and only files whose bytes differ from the existing target file are written, each
+ * moved atomically into place, so unchanged class files keep their modification time.
+ *
+ * @author Morten Haraldsen
+ */
+public class DirectoryWeaver
+{
+    private final Path sourceDir;
+    private final Path targetDir;
+    private final int threads;
+    private final AtomicInteger wovenCount = new AtomicInteger();
+    private final AtomicInteger writtenCount = new AtomicInteger();
+    private final AtomicInteger unchangedCount = new AtomicInteger();
+
+    public DirectoryWeaver(Path sourceDir, Path targetDir, int threads)
+    {
+        this.sourceDir = sourceDir;
+        this.targetDir = targetDir;
+        this.threads = Math.max(1, threads);
+    }
+
+    public boolean isInPlace()
+    {
+        return sourceDir.toAbsolutePath().normalize().equals(targetDir.toAbsolutePath().normalize());
+    }
+
+    /**
+     * @return The number of classes changed by weaving so far
+     */
+    public int getWovenCount()
+    {
+        return wovenCount.get();
+    }
+
+    /**
+     * @return The number of files written to the target directory so far
+     */
+    public int getWrittenCount()
+    {
+        return writtenCount.get();
+    }
+
+    /**
+     * @return The number of files processed so far that were left untouched, as their content did not change
+     */
+    public int getUnchangedCount()
+    {
+        return unchangedCount.get();
+    }
+
+    /**
+     * @return The paths of all files in the source directory, relative to it and using '/' as separator
+     */
+    public List<String> listFiles() throws IOException
+    {
+        try (final Stream<Path> files = Files.walk(sourceDir))
+        {
+            return files.filter(Files::isRegularFile)
+                    .map(f -> sourceDir.relativize(f).toString().replace(f.getFileSystem().getSeparator(), "/"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Weave and copy files from the source directory to the target directory. Files are only written if their content
+     * differs from the existing target file.
+     *
+     * @param weaver  The weaver to use, may be null if there is nothing to weave
+     * @param toWeave The class files to weave
+     * @param toCopy  The files to copy as-is
+     * @return The hash of the output of every processed file
+     */
+    public Map<String, String> process(ClassWeaver weaver, Collection<String> toWeave, Collection<String> toCopy) throws IOException
+    {
+        final Set<String> weaveSet = new HashSet<>(toWeave);
+        final List<String> all = new ArrayList<>(toWeave);
+        for (String path : toCopy)
+        {
+            if (!weaveSet.contains(path))
+            {
+                all.add(path);
+            }
+        }
+
+        final Map<String, String> outputHashes = new ConcurrentHashMap<>();
+        if (threads == 1)
+        {
+            for (String path : all)
+            {
+                outputHashes.put(path, processFile(weaver, path, weaveSet.contains(path)));
+            }
+        }
+        else
+        {
+            final ForkJoinPool pool = BuildReport.newWorkerPool(threads);
+            try
+            {
+                pool.submit(() -> all.parallelStream().forEach(path ->
+                {
+                    try
+                    {
+                        outputHashes.put(path, processFile(weaver, path, weaveSet.contains(path)));
+                    }
+                    catch (IOException exc)
+                    {
+                        throw new UncheckedIOException(exc);
+                    }
+                })).get();
+            }
+            catch (InterruptedException exc)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while weaving");
+            }
+            catch (ExecutionException exc)
+            {
+                if (exc.getCause() instanceof UncheckedIOException)
+                {
+                    throw ((UncheckedIOException) exc.getCause()).getCause();
+                }
+                throw new IOException(exc.getCause().getMessage(), exc.getCause());
+            }
+            finally
+            {
+                BuildReport.shutdown(pool);
+            }
+        }
+        return new TreeMap<>(outputHashes);
+    }
+
+    private String processFile(ClassWeaver weaver, String path, boolean weave) throws IOException
+    {
+        final byte[] input = Files.readAllBytes(sourceDir.resolve(path));
+        final byte[] output = weave && !isWoven(input) ? weaver.weave(Utils.toClassName(path), input) : input;
+        if (output != input)
+        {
+            wovenCount.incrementAndGet();
+        }
+
+        // When weaving in place the input is the existing target file
+        final boolean written = isInPlace() ? output != input && Utils.writeIfChanged(targetDir.resolve(path), output) : Utils.writeIfChanged(targetDir.resolve(path), output);
+        (written ? writtenCount : unchangedCount).incrementAndGet();
+        return Utils.hash(output);
+    }
+
+    /**
+     * @return true if the class bytes are already woven, so weaving them again can be skipped
+     */
+    public static boolean isWoven(byte[] classBytes)
+    {
+        try
+        {
+            return ClassFileInfo.parse(classBytes).isWoven();
+        }
+        catch (IllegalArgumentException exc)
+        {
+            return false;
+        }
+    }
+}
@@ -21,17 +21,16 @@ package com.ethlo.persistence.tools.eclipselink;
  */
 
 import java.io.File;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.io.IOException;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -40,15 +39,12 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.eclipse.persistence.config.PersistenceUnitProperties;
-import org.eclipse.persistence.jpa.PersistenceProvider;
-import org.springframework.orm.jpa.persistenceunit.DefaultPersistenceUnitManager;
-import org.springframework.orm.jpa.persistenceunit.SmartPersistenceUnitInfo;
 import org.springframework.util.StringUtils;
 
 /**
  * @author Morten Haraldsen
  */
-@Mojo(requiresDependencyResolution = ResolutionScope.COMPILE, defaultPhase = LifecyclePhase.PROCESS_CLASSES, name = "ddl", requiresProject = true)
+@Mojo(requiresDependencyResolution = ResolutionScope.COMPILE, defaultPhase = LifecyclePhase.PROCESS_CLASSES, name = "ddl", requiresProject = true, threadSafe = true)
 public class EclipselinkDdlGenerationMojo extends AbstractMojo
 {
     @Parameter(required = false)
@@ -78,6 +74,12 @@ public class EclipselinkDdlGenerationMojo extends AbstractMojo
     @Parameter(defaultValue = "${project}", readonly = true, required = true)
     private MavenProject project;
 
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true, required = true)
+    private MojoExecution mojoExecution;
+
     /**
      * Valid options 'create', 'drop', 'drop-and-create'
      */
@@ -87,6 +89,25 @@ public class EclipselinkDdlGenerationMojo extends AbstractMojo
     @Parameter(defaultValue = "false", property = "eclipselink.ddl.skip")
     private boolean skip;
 
+    /**
+     * Write a JSON report with the time and memory used per phase to the <code>reportDirectory</code>
+     */
+    @Parameter(defaultValue = "true", property = "eclipselink.report")
+    private boolean writeReport;
+
+    @Parameter(defaultValue = BuildReport.DEFAULT_DIRECTORY)
+    private File reportDirectory;
+
+    /**
+     * Enables reproducible output when set, in the format of <code>project.build.outputTimestamp</code>: the statements
+     * of each kind in the generated scripts are sorted and the scripts get this modification time. If not set, the
+     * statements are kept in the order EclipseLink writes them in
+     */
+    @Parameter(defaultValue = "${project.build.outputTimestamp}", property = "eclipselink.outputTimestamp")
+    private String outputTimestamp;
+
+    private BuildReport report;
+
     @Override
     public void execute() throws MojoExecutionException
     {
@@ -97,74 +118,50 @@ public class EclipselinkDdlGenerationMojo extends AbstractMojo
         }
         else
         {
-            final Thread thread = Thread.currentThread();
-            final ClassLoader currentClassLoader = thread.getContextClassLoader();
+            report = new BuildReport(mojoExecution, project, session);
             try
             {
-                thread.setContextClassLoader(getClassLoader());
                 generateSchema();
             }
             catch (Exception e)
             {
                 throw new MojoExecutionException(e.getMessage(), e);
-            } finally
+            }
+            finally
             {
-                thread.setContextClassLoader(currentClassLoader);
+                if (writeReport)
+                {
+                    report.write(reportDirectory, getLog());
+                }
             }
 
             getLog().info("Eclipselink DDL completed");
         }
     }
 
-    public void generateSchema() throws MojoFailureException
+    public void generateSchema() throws MojoFailureException, MojoExecutionException
     {
-        final Map<String, Object> cfg = buildCfg();
-        String[] allBasePackages = this.getBasePackages();
-        getLog().info("Using base packages " + StringUtils.arrayToDelimitedString(allBasePackages, ", "));
-        final PersistenceProvider provider = new PersistenceProvider();
-        final DefaultPersistenceUnitManager manager = new DefaultPersistenceUnitManager();
-        manager.setDefaultPersistenceUnitRootLocation(null);
-        manager.setDefaultPersistenceUnitName("default");
-        manager.setPackagesToScan(allBasePackages);
-        final String[] zeroPULocations = new String[]{};
-        manager.setPersistenceXmlLocations(zeroPULocations);
-        manager.afterPropertiesSet();
-
-        final SmartPersistenceUnitInfo puInfo = (SmartPersistenceUnitInfo) manager.obtainDefaultPersistenceUnitInfo();
-        puInfo.setPersistenceProviderPackageName(provider.getClass().getName());
-        getLog().info("Entities found : " + puInfo.getManagedClassNames().size());
-        getLog().debug("Managed class names:\n    * " + StringUtils.collectionToDelimitedString(puInfo.getManagedClassNames(), "\n    * "));
-        puInfo.getProperties().putAll(cfg);
-        provider.generateSchema(new DelegatingPuInfo(puInfo), cfg);
-    }
-
-    private Map<String, Object> buildCfg()
-    {
-        final Map<String, Object> cfg = new TreeMap<>();
-
-        // No action towards the database
-        cfg.put(PersistenceUnitProperties.SCHEMA_GENERATION_DATABASE_ACTION, PersistenceUnitProperties.SCHEMA_GENERATION_NONE_ACTION);
-
-        // Create scripts
-        cfg.put(PersistenceUnitProperties.SCHEMA_GENERATION_SCRIPTS_ACTION, action);
-        cfg.put(PersistenceUnitProperties.SCHEMA_GENERATION_CREATE_SOURCE, PersistenceUnitProperties.SCHEMA_GENERATION_METADATA_SOURCE);
-        cfg.put(PersistenceUnitProperties.SCHEMA_GENERATION_DROP_SOURCE, PersistenceUnitProperties.SCHEMA_GENERATION_METADATA_SOURCE);
-        cfg.put(PersistenceUnitProperties.SCHEMA_GENERATION_SCRIPTS_CREATE_TARGET, ddlTargetFile);
-        cfg.put(PersistenceUnitProperties.SCHEMA_GENERATION_SCRIPTS_DROP_TARGET, ddlDropTargetFile);
-        cfg.put(PersistenceUnitProperties.SCHEMA_DATABASE_PRODUCT_NAME, databaseProductName);
-        cfg.put(PersistenceUnitProperties.WEAVING, "false");
-
-        if (databaseMajorVersion != null)
+        final String[] allBasePackages = this.getBasePackages();
+        final BuildReport.Phase resolvePhase = report.start("resolve-classpath");
+        try (final URLClassLoader classLoader = getClassLoader())
         {
-            cfg.put(PersistenceUnitProperties.SCHEMA_DATABASE_MAJOR_VERSION, databaseMajorVersion);
-        }
+            resolvePhase.end();
+            report.count("classPathEntries", classLoader.getURLs().length);
 
-        if (databaseMinorVersion != null)
+            final BuildReport.Phase schemaPhase = report.start("generate-schema");
+            final int managedClasses = getSchemaGenerator().generateSchema(classLoader, allBasePackages);
+            schemaPhase.end();
+            report.count("managedClasses", managedClasses);
+        }
+        catch (IOException e)
         {
-            cfg.put(PersistenceUnitProperties.SCHEMA_DATABASE_MINOR_VERSION, databaseMinorVersion);
+            throw new MojoExecutionException(e.getMessage(), e);
         }
+    }
 
-        return cfg;
+    private SchemaGenerator getSchemaGenerator()
+    {
+        return new SchemaGenerator(databaseProductName, databaseMajorVersion, databaseMinorVersion, ddlTargetFile, ddlDropTargetFile, action, getLog(), Utils.parseOutputTimestamp(outputTimestamp));
     }
 
     public void setLogLevel(String logLevel)
@@ -173,25 +170,12 @@ public class EclipselinkDdlGenerationMojo extends AbstractMojo
         this.logLevel = logLevel.toUpperCase();
     }
 
-    private ClassLoader getClassLoader() throws MojoExecutionException
+    private URLClassLoader getClassLoader() throws MojoExecutionException
     {
         try
         {
-            @SuppressWarnings("unchecked") final List<String> classpathElements = project.getCompileClasspathElements();
-            getLog().debug("Classpath URLs: " + StringUtils.collectionToCommaDelimitedString(classpathElements));
-            final List<URL> projectClasspathList = new ArrayList<>();
-            for (String element : classpathElements)
-            {
-                try
-                {
-                    projectClasspathList.add(new File(element).toURI().toURL());
-                }
-                catch (MalformedURLException e)
-                {
-                    throw new MojoExecutionException(element + " is an invalid classpath element", e);
-                }
-            }
-            return new URLClassLoader(projectClasspathList.toArray(new URL[0]), Thread.currentThread().getContextClassLoader());
+            getLog().debug("Classpath URLs: " + StringUtils.collectionToCommaDelimitedString(project.getCompileClasspathElements()));
+            return Utils.getCompileClassLoader(project);
         }
         catch (DependencyResolutionRequiredException e)
         {
@@ -0,0 +1,245 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.persistence.logging.AbstractSessionLog;
+
+/**
+ * Weaves entity classes inside jar files: the packaged project artifact and/or dependency jars.
+ *
+ * @author Morten Haraldsen
+ */
+@Mojo(requiresDependencyResolution = ResolutionScope.COMPILE, defaultPhase = LifecyclePhase.PACKAGE, name = "weave-jar", requiresProject = true, threadSafe = true)
+public class EclipselinkJarWeaveMojo extends AbstractMojo
+{
+    @Parameter
+    private String[] basePackages;
+
+    /**
+     * Weave the packaged project artifact in place
+     */
+    @Parameter(defaultValue = "true")
+    private boolean weaveProjectArtifact;
+
+    /**
+     * Dependencies to weave, as <code>groupId:artifactId</code>. The woven jars are written to the <code>outputDirectory</code>
+     */
+    @Parameter
+    private String[] dependencies;
+
+    /**
+     * Additional jar files to weave. The woven jars are written to the <code>outputDirectory</code>
+     */
+    @Parameter
+    private File[] jars;
+
+    @Parameter(defaultValue = "${project.build.directory}/woven-jars", required = true)
+    private File outputDirectory;
+
+    /**
+     * The directory or jar containing <code>META-INF/persistence.xml</code>. If not set, it is read from each jar being woven
+     */
+    @Parameter
+    private File persistenceInfoLocation;
+
+    @Parameter(defaultValue = "WARNING", property = "logLevel")
+    private String logLevel;
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true, required = true)
+    private MojoExecution mojoExecution;
+
+    @Parameter(defaultValue = "false", property = "eclipselink.weave-jar.skip")
+    private boolean skip;
+
+    /**
+     * Write a JSON report with the time and memory used per phase to the <code>reportDirectory</code>
+     */
+    @Parameter(defaultValue = "true", property = "eclipselink.report")
+    private boolean writeReport;
+
+    @Parameter(defaultValue = BuildReport.DEFAULT_DIRECTORY)
+    private File reportDirectory;
+
+    private BuildReport report;
+
+    @Override
+    public void execute() throws MojoExecutionException
+    {
+        setLogLevel(logLevel);
+        if (this.skip)
+        {
+            getLog().info("Skipping EclipseLink jar weaving by request");
+            return;
+        }
+
+        report = new BuildReport(mojoExecution, project, session);
+        final BuildReport.Phase resolvePhase = report.start("resolve-classpath");
+        final File[] classPathFiles = Utils.getClassPathFiles(project);
+        final Map<File, File> jarsToWeave = getJarsToWeave();
+        resolvePhase.end();
+        report.count("classPathEntries", classPathFiles.length);
+        report.count("jars", jarsToWeave.size());
+        try (final URLClassLoader classLoader = new URLClassLoader(Utils.toUrls(classPathFiles), Thread.currentThread().getContextClassLoader()))
+        {
+            for (Map.Entry<File, File> jar : jarsToWeave.entrySet())
+            {
+                try
+                {
+                    weaveJar(classLoader, jar.getKey(), jar.getValue());
+                }
+                catch (IOException | URISyntaxException e)
+                {
+                    throw new MojoExecutionException("Unable to weave " + jar.getKey() + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        finally
+        {
+            if (writeReport)
+            {
+                report.write(reportDirectory, getLog());
+            }
+        }
+        getLog().info("Eclipselink jar weaving completed");
+    }
+
+    private void weaveJar(ClassLoader classLoader, File sourceJar, File targetJar) throws IOException, URISyntaxException
+    {
+        JarWeaver.checkSupported(sourceJar);
+        final BuildReport.Phase scanPhase = report.start("scan:" + sourceJar.getName());
+        final Set<String> entityClasses = new TreeSet<>(EntityScanner.findEntityTypes(basePackages != null ? basePackages : new String[0], new File[]{sourceJar}, 0, false, null, null).keySet());
+        scanPhase.end();
+        report.add("entitiesFound", entityClasses.size());
+        if (entityClasses.isEmpty())
+        {
+            getLog().info("No entities found in " + sourceJar);
+            if (!sourceJar.getAbsoluteFile().equals(targetJar.getAbsoluteFile()))
+            {
+                Files.createDirectories(targetJar.toPath().getParent());
+                Files.copy(sourceJar.toPath(), targetJar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return;
+        }
+
+        final BuildReport.Phase weavePhase = report.start("weave:" + sourceJar.getName());
+        final int woven;
+        try (final ClassWeaver weaver = new ClassWeaver(sourceJar, persistenceInfoLocation, classLoader, AbstractSessionLog.translateStringToLoggingLevel(logLevel)))
+        {
+            woven = new JarWeaver(weaver).weave(sourceJar, targetJar, entityClasses);
+        }
+        weavePhase.end();
+        report.add("classesWoven", woven);
+        getLog().info("Woven " + woven + " of " + entityClasses.size() + " entity classes from " + sourceJar + " into " + targetJar);
+    }
+
+    private Map<File, File> getJarsToWeave() throws MojoExecutionException
+    {
+        final Map<File, File> result = new LinkedHashMap<>();
+        if (weaveProjectArtifact)
+        {
+            final File artifactFile = project.getArtifact().getFile();
+            if (artifactFile == null || !artifactFile.isFile() || !artifactFile.getName().endsWith(".jar"))
+            {
+                getLog().warn("The project artifact is not a packaged jar file, not weaving it: " + artifactFile);
+            }
+            else
+            {
+                result.put(artifactFile, artifactFile);
+            }
+        }
+
+        if (dependencies != null)
+        {
+            for (String dependency : dependencies)
+            {
+                result.put(getDependencyFile(dependency), null);
+            }
+        }
+
+        if (jars != null)
+        {
+            for (File jar : jars)
+            {
+                if (!jar.isFile())
+                {
+                    throw new MojoExecutionException("Jar file " + jar + " does not exist");
+                }
+                result.put(jar, null);
+            }
+        }
+
+        result.replaceAll((source, target) -> target != null ? target : new File(outputDirectory, source.getName()));
+        return result;
+    }
+
+    private File getDependencyFile(String dependency) throws MojoExecutionException
+    {
+        for (Artifact artifact : project.getArtifacts())
+        {
+            if (dependency.equals(artifact.getGroupId() + ":" + artifact.getArtifactId()))
+            {
+                if (artifact.getFile() == null || !artifact.getFile().isFile())
+                {
+                    throw new MojoExecutionException("Dependency " + dependency + " is not resolved to a jar file");
+                }
+                return artifact.getFile();
+            }
+        }
+        throw new MojoExecutionException("Dependency " + dependency + " is not a dependency of the project");
+    }
+
+    public void setLogLevel(String logLevel)
+    {
+        java.util.logging.Level.parse(logLevel);
+        this.logLevel = logLevel.toUpperCase();
+    }
+}
@@ -25,25 +25,32 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
-import javax.tools.Diagnostic;
-import javax.tools.DiagnosticCollector;
 import javax.tools.JavaCompiler;
-import javax.tools.JavaCompiler.CompilationTask;
-import javax.tools.JavaFileObject;
-import javax.tools.StandardJavaFileManager;
 import javax.tools.ToolProvider;
 
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -58,16 +65,23 @@ import org.sonatype.plexus.build.incremental.BuildContext;
 /**
  * @author Morten Haraldsen
  */
-@Mojo(requiresDependencyResolution = ResolutionScope.COMPILE, defaultPhase = LifecyclePhase.GENERATE_SOURCES, name = "modelgen", requiresProject = true)
+@Mojo(requiresDependencyResolution = ResolutionScope.COMPILE, defaultPhase = LifecyclePhase.GENERATE_SOURCES, name = "modelgen", requiresProject = true, threadSafe = true)
 public class EclipselinkModelGenMojo extends AbstractMojo
 {
     public static final String PLUGIN_PREFIX = "JPA modelgen: ";
     public static final String JAVA_FILE_FILTER = "/*.java";
     public static final String[] ALL_JAVA_FILES_FILTER = new String[]{"**" + JAVA_FILE_FILTER};
+    public static final String ENGINE_JAVAC = "javac";
+    public static final String ENGINE_BYTECODE = "bytecode";
+    private static final String CACHE_FORMAT = "modelgen-cache v1";
+    private static final Pattern IDENTIFIER = Pattern.compile("\\b[A-Z][\\w$]*");
     // Use Hibernate's model generator as it does not require persistence.xml file to run
     private final String processor = org.hibernate.jpamodelgen.JPAMetaModelEntityProcessor.class.getName();
     @Parameter(defaultValue = "${project}", readonly = true, required = true)
     protected MavenProject project;
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    protected MavenSession session;
     @Component
     private BuildContext buildContext;
     /**
@@ -86,10 +100,88 @@ public class EclipselinkModelGenMojo extends AbstractMojo
     private boolean noWarn = false;
     @Parameter(defaultValue = "false", property = "eclipselink.modelgen.skip")
     private boolean skip;
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true, required = true)
+    private MojoExecution mojoExecution;
+    /**
+     * Write a JSON report with the time and memory used per phase to the <code>reportDirectory</code>
+     */
+    @Parameter(defaultValue = "true", property = "eclipselink.report")
+    private boolean writeReport;
+    @Parameter(defaultValue = BuildReport.DEFAULT_DIRECTORY)
+    private File reportDirectory;
+    /**
+     * Only process the sources that changed since the previous run, as recorded in the <code>manifestFile</code>,
+     * together with the sources related to these, and delete the meta-model sources of removed entities.
+     * Falls back to processing all sources if the manifest is missing or invalid, or the class-path changed,
+     * including the classes in class-path directories other than the output of the project.
+     */
+    @Parameter(defaultValue = "false", property = "eclipselink.modelgen.incremental")
+    private boolean incremental;
+    @Parameter(defaultValue = "${project.build.directory}/eclipselink/modelgen-manifest.txt")
+    private File manifestFile;
+    /**
+     * Search the sources for the JPA package and annotation names before passing them to the processor, skipping the
+     * sources that cannot declare an entity, embeddable or mapped superclass. These are still resolved from the
+     * source path when referenced.
+     */
+    @Parameter(defaultValue = "true", property = "eclipselink.modelgen.sourcePreFilter")
+    private boolean sourcePreFilter;
+    /**
+     * Number of threads used for the meta-model generation. With more than one thread the sources are split into
+     * shards, keeping type hierarchies together, and processed by concurrent compiler tasks, with the same output as
+     * the single threaded processing
+     */
+    @Parameter(defaultValue = "1", property = "eclipselink.modelgen.threads")
+    private int modelgenThreads;
+    /**
+     * Keep the generated meta-model sources in a content-addressable cache outside of the build directory, and
+     * restore them from it instead of processing the sources again. The key of a source is the hash of the source,
+     * the sources it references, directly or indirectly, the processor version, the encoding and the content of the
+     * jars and other modules' class directories on the class-path, so the cache survives <code>mvn clean</code> and
+     * can be shared by several checkouts.
+     * Only used by the <code>javac</code> engine.
+     */
+    @Parameter(defaultValue = "false", property = "eclipselink.modelgen.cache")
+    private boolean cache;
+    @Parameter(defaultValue = "${user.home}/.m2/eclipselink-cache/modelgen", property = "eclipselink.modelgen.cacheDirectory")
+    private File cacheDirectory;
+    /**
+     * Maximum size of the cache in megabytes. The least recently used entries are evicted when exceeded
+     */
+    @Parameter(defaultValue = "256", property = "eclipselink.modelgen.cacheMaxSize")
+    private long cacheMaxSize;
+    /**
+     * The meta-model generator: <code>javac</code> runs the annotation processor on the sources,
+     * <code>bytecode</code> reads the compiled classes and needs no compiler. The generated sources are the same.
+     */
+    @Parameter(defaultValue = ENGINE_JAVAC, property = "eclipselink.modelgen.engine")
+    private String engine;
+    /**
+     * Directories or jars with the compiled entity classes for the <code>bytecode</code> engine. Defaults to the
+     * output directory of the project if neither these nor <code>dependencies</code> are set
+     */
+    @Parameter
+    private File[] classesLocations;
+    /**
+     * Dependencies with entity classes to generate the meta-model for with the <code>bytecode</code> engine, as
+     * <code>groupId:artifactId</code>
+     */
+    @Parameter
+    private String[] dependencies;
 
     private List<File> getCurrentClassPath()
     {
         final List<File> retVal = new ArrayList<>();
+        if (!(this.getClass().getClassLoader() instanceof URLClassLoader))
+        {
+            // Not loaded by Maven, like in tests
+            for (String entry : System.getProperty("java.class.path").split(File.pathSeparator))
+            {
+                retVal.add(new File(entry));
+            }
+            return retVal;
+        }
+
         final URLClassLoader cl = (URLClassLoader) this.getClass().getClassLoader();
         try
         {
@@ -141,15 +233,36 @@ public class EclipselinkModelGenMojo extends AbstractMojo
     {
         if (!this.skip)
         {
+            if (ENGINE_BYTECODE.equals(engine))
+            {
+                executeBytecode();
+                return;
+            }
+            else if (!ENGINE_JAVAC.equals(engine))
+            {
+                throw new MojoExecutionException("Unknown modelgen engine '" + engine + "', expected " + ENGINE_JAVAC + " or " + ENGINE_BYTECODE);
+            }
+
             final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
             if (compiler == null)
             {
                 throw new MojoExecutionException("You need to run build with JDK or have tools.jar on the classpath");
             }
 
-            try (final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null))
+            final BuildReport report = new BuildReport(mojoExecution, project, session);
+            try
             {
+                project.addCompileSourceRoot(this.generatedSourcesDirectory.getAbsolutePath());
+                if (buildContext.isIncremental() && !buildContext.hasDelta(source))
+                {
+                    info("No changes in " + source);
+                    return;
+                }
+
+                final BuildReport.Phase sourcesPhase = report.start("collect-sources");
                 final Set<File> sourceFiles = getSourceFiles();
+                sourcesPhase.end();
+                report.count("sourceFiles", sourceFiles.size());
                 if (sourceFiles.isEmpty())
                 {
                     info("No files to process");
@@ -158,47 +271,626 @@ public class EclipselinkModelGenMojo extends AbstractMojo
 
                 info("Found " + sourceFiles.size() + " source files for potential processing");
                 debug("Source files: " + Arrays.toString(sourceFiles.toArray()));
-                Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(sourceFiles);
+                final BuildReport.Phase resolvePhase = report.start("resolve-classpath");
                 final File[] classPathFiles = getClassPathFiles();
+                resolvePhase.end();
+                report.count("classPathEntries", classPathFiles.length);
 
                 final String compileClassPath = StringUtils.join(classPathFiles, File.pathSeparator);
                 debug("Classpath: " + compileClassPath);
 
-                List<String> compilerOptions = buildCompilerOptions(processor, compileClassPath);
+                final List<String> compilerOptions = buildCompilerOptions(processor, compileClassPath);
 
-                project.addCompileSourceRoot(this.generatedSourcesDirectory.getAbsolutePath());
+                final Map<String, File> sourcesByPath = getRelativePaths(sourceFiles);
+                final Map<String, String> hashes = new TreeMap<>();
+                final MetamodelManifest previous;
+                final MetamodelManifest current;
+                final Set<String> toProcess;
+                if (incremental)
+                {
+                    for (Map.Entry<String, File> e : sourcesByPath.entrySet())
+                    {
+                        hashes.put(e.getKey(), Utils.hash(e.getValue().toPath()));
+                    }
+                    final String fingerprint = getFingerprint(compilerOptions, classPathFiles);
+                    final MetamodelManifest manifest = MetamodelManifest.read(manifestFile.toPath());
+                    previous = manifest != null && fingerprint.equals(manifest.getFingerprint()) ? manifest : null;
+                    current = new MetamodelManifest(fingerprint);
+                    if (previous == null)
+                    {
+                        info(manifest == null ? "No valid modelgen manifest found, processing all sources" : "Class-path or options changed, processing all sources");
+                        toProcess = new TreeSet<>(sourcesByPath.keySet());
+                    }
+                    else
+                    {
+                        toProcess = getSourcesToProcess(sourcesByPath, hashes, previous);
+                        info("Sources to process: " + toProcess.size());
+                    }
+                }
+                else
+                {
+                    previous = null;
+                    current = null;
+                    toProcess = new TreeSet<>(sourcesByPath.keySet());
+                }
+
+                final Set<String> processPaths = new TreeSet<>();
+                final BuildReport.Phase filterPhase = report.start("filter-sources");
+                for (String path : toProcess)
+                {
+                    final File file = sourcesByPath.get(path);
+                    if (!sourcePreFilter || SourceCandidateFilter.isCandidate(file.toPath()))
+                    {
+                        processPaths.add(path);
+                    }
+                }
+                filterPhase.end();
+                if (sourcePreFilter)
+                {
+                    report.count("sourcesFiltered", toProcess.size() - processPaths.size());
+                    info("Filtered out " + (toProcess.size() - processPaths.size()) + " sources without JPA annotations");
+                }
 
-                final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-                final CompilationTask task = compiler.getTask(null, fileManager, diagnostics, compilerOptions, null, compilationUnits);
-                final Boolean retVal = task.call();
-                final StringBuilder s = new StringBuilder();
-                for (Diagnostic<?> diagnostic : diagnostics.getDiagnostics())
+                final BuildCache buildCache = cache ? new BuildCache(cacheDirectory.toPath(), cacheMaxSize * 1024 * 1024, getLog()) : null;
+                final Map<String, String> cacheKeys = new TreeMap<>();
+                final Map<String, Path> restored = new TreeMap<>();
+                final Set<Path> restoredWritten = new TreeSet<>();
+                if (buildCache != null)
                 {
-                    s.append("\n").append(diagnostic);
+                    final BuildReport.Phase cachePhase = report.start("cache-restore");
+                    cacheKeys.putAll(getCacheKeys(sourcesByPath, processPaths, classPathFiles));
+                    for (Map.Entry<String, String> e : cacheKeys.entrySet())
+                    {
+                        final byte[] entry = buildCache.get(e.getValue());
+                        final Map<String, byte[]> files = entry != null ? BuildCache.unpack(entry) : null;
+                        if (files != null)
+                        {
+                            restore(files, restored, restoredWritten);
+                            processPaths.remove(e.getKey());
+                        }
+                    }
+                    cachePhase.end();
                 }
 
-                if (!retVal)
+                final List<File> processFiles = new ArrayList<>(processPaths.size());
+                for (String path : processPaths)
                 {
-                    throw new MojoExecutionException("Processing failed: " + s);
+                    processFiles.add(sourcesByPath.get(path));
                 }
 
-                buildContext.refresh(this.generatedSourcesDirectory);
+                final MetamodelProcessor metamodelProcessor = new MetamodelProcessor(compiler, compilerOptions, getCharset(), modelgenThreads);
+                if (!processFiles.isEmpty())
+                {
+                    final BuildReport.Phase compilePhase = report.start("compile");
+                    final boolean success = metamodelProcessor.process(processFiles);
+                    compilePhase.end();
+                    if (!success)
+                    {
+                        throw new MojoExecutionException("Processing failed: " + metamodelProcessor.getDiagnostics());
+                    }
+                }
+                else
+                {
+                    info("No sources to process");
+                }
+                report.count("sourcesCompiled", processFiles.size());
+
+                final Map<String, Path> generated = new TreeMap<>(metamodelProcessor.getGenerated());
+                generated.putAll(restored);
+                final Set<Path> written = new TreeSet<>(metamodelProcessor.getWritten());
+                written.addAll(restoredWritten);
+                if (buildCache != null)
+                {
+                    storeInCache(buildCache, cacheKeys, processPaths, metamodelProcessor.getGenerated());
+                    final int evicted = buildCache.evict();
+                    info("Meta-model cache hits: " + buildCache.getHits() + ", misses: " + buildCache.getMisses() + ", stored: " + buildCache.getStored() + ", evicted: " + evicted);
+                    report.count("cacheHits", buildCache.getHits());
+                    report.count("cacheMisses", buildCache.getMisses());
+                    report.count("cacheEvicted", evicted);
+                }
+
+                final int unchanged = generated.size() - written.size();
+                info("Files written: " + written.size() + ", unchanged: " + unchanged);
+                report.count("metamodelFilesWritten", written.size());
+                report.count("metamodelFilesUnchanged", unchanged);
+
+                final Set<Path> deleted = new TreeSet<>();
+                if (current != null)
+                {
+                    deleted.addAll(updateManifest(previous, current, hashes, toProcess, generated));
+                    report.count("metamodelFilesDeleted", deleted.size());
+                    current.write(manifestFile.toPath());
+                }
+
+                // Only the changed files, so the IDE does not rebuild everything depending on the meta-model
+                for (Path file : written)
+                {
+                    buildContext.refresh(file.toFile());
+                }
+                for (Path file : deleted)
+                {
+                    buildContext.refresh(file.toFile());
+                }
             }
-            catch (IOException e)
+            catch (IOException | IllegalArgumentException e)
             {
                 throw new MojoExecutionException(e.getMessage(), e);
             }
+            finally
+            {
+                if (writeReport)
+                {
+                    report.write(reportDirectory, getLog());
+                }
+            }
+        }
+    }
+
+    private void executeBytecode() throws MojoExecutionException
+    {
+        final BuildReport report = new BuildReport(mojoExecution, project, session);
+        try
+        {
+            project.addCompileSourceRoot(this.generatedSourcesDirectory.getAbsolutePath());
+            final File[] scanPath = getClassesLocations();
+            info("Reading entity classes from " + Arrays.toString(scanPath));
+            info("Output directory: " + this.generatedSourcesDirectory.getAbsolutePath());
+
+            final BuildReport.Phase resolvePhase = report.start("resolve-classpath");
+            final File[] classPathFiles = getClassPathFiles();
+            resolvePhase.end();
+            report.count("classPathEntries", classPathFiles.length);
+
+            final BuildReport.Phase generatePhase = report.start("generate");
+            final Map<String, String> sources = new BytecodeMetamodelGenerator(scanPath, classPathFiles, includes).generate();
+            generatePhase.end();
+
+            final Path generatedDir = generatedSourcesDirectory.toPath();
+            final Charset charset = getCharset();
+            final MetamodelManifest current = incremental ? new MetamodelManifest(ENGINE_BYTECODE) : null;
+            final Set<Path> written = new TreeSet<>();
+            final BuildReport.Phase writePhase = report.start("write");
+            for (Map.Entry<String, String> e : sources.entrySet())
+            {
+                final String path = e.getKey().replace('.', '/') + ".java";
+                final byte[] content = e.getValue().getBytes(charset);
+                if (Utils.writeIfChanged(generatedDir.resolve(path), content))
+                {
+                    written.add(generatedDir.resolve(path));
+                }
+                if (current != null)
+                {
+                    current.put(e.getKey(), Utils.hash(content), Collections.singletonList(path));
+                }
+            }
+            writePhase.end();
+
+            final int unchanged = sources.size() - written.size();
+            info("Files written: " + written.size() + ", unchanged: " + unchanged);
+            report.count("metamodelFilesWritten", written.size());
+            report.count("metamodelFilesUnchanged", unchanged);
+
+            final Set<Path> deleted = new TreeSet<>();
+            if (current != null)
+            {
+                // All classes are read in each run, so every meta-model source not generated again is stale
+                final MetamodelManifest previous = MetamodelManifest.read(manifestFile.toPath());
+                if (previous != null && ENGINE_BYTECODE.equals(previous.getFingerprint()))
+                {
+                    for (String className : previous.getSources())
+                    {
+                        for (String path : previous.get(className).getGenerated())
+                        {
+                            if (!sources.containsKey(className) && Files.deleteIfExists(generatedDir.resolve(path)))
+                            {
+                                debug("Deleted stale meta-model source " + path);
+                                deleted.add(generatedDir.resolve(path));
+                            }
+                        }
+                    }
+                }
+                report.count("metamodelFilesDeleted", deleted.size());
+                current.write(manifestFile.toPath());
+            }
+
+            for (Path file : written)
+            {
+                buildContext.refresh(file.toFile());
+            }
+            for (Path file : deleted)
+            {
+                buildContext.refresh(file.toFile());
+            }
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        finally
+        {
+            if (writeReport)
+            {
+                report.write(reportDirectory, getLog());
+            }
+        }
+    }
+
+    private File[] getClassesLocations() throws MojoExecutionException
+    {
+        final List<File> result = new ArrayList<>();
+        if (classesLocations != null)
+        {
+            result.addAll(Arrays.asList(classesLocations));
+        }
+        if (dependencies != null)
+        {
+            for (String dependency : dependencies)
+            {
+                result.add(getDependencyFile(dependency));
+            }
         }
+        if (result.isEmpty())
+        {
+            result.add(new File(project.getBuild().getOutputDirectory()));
+        }
+        return result.toArray(new File[0]);
+    }
+
+    private File getDependencyFile(String dependency) throws MojoExecutionException
+    {
+        for (Artifact artifact : project.getArtifacts())
+        {
+            if (dependency.equals(artifact.getGroupId() + ":" + artifact.getArtifactId()))
+            {
+                if (artifact.getFile() == null || !artifact.getFile().exists())
+                {
+                    throw new MojoExecutionException("Dependency " + dependency + " is not resolved to a file");
+                }
+                return artifact.getFile();
+            }
+        }
+        throw new MojoExecutionException("Dependency " + dependency + " is not a dependency of the project");
     }
 
+    /**
+     * @return The cache key by relative path of the given sources
+     */
+    private Map<String, String> getCacheKeys(Map<String, File> sourcesByPath, Set<String> paths, File[] classPathFiles) throws IOException
+    {
+        final StringBuilder common = new StringBuilder(CACHE_FORMAT).append('\n');
+        common.append("processor=").append(processor).append(':').append(org.hibernate.jpamodelgen.Version.getVersionString()).append('\n');
+        common.append("encoding=").append(getCharset().name()).append('\n');
+        // The classes of the project itself are compiled from the sources in the key
+        for (File file : classPathFiles)
+        {
+            if (file.isFile())
+            {
+                common.append(file.getName()).append(':').append(Utils.hashJar(file)).append('\n');
+            }
+            else if (file.isDirectory() && !isProjectOutput(file))
+            {
+                // Output of sibling modules, by content and not location, so checkouts can share the cache
+                final StringBuilder classes = new StringBuilder();
+                Utils.hashClassFiles(file.toPath()).forEach((path, hash) -> classes.append(path).append(':').append(hash).append('\n'));
+                common.append("classes:").append(Utils.hash(classes.toString().getBytes(StandardCharsets.UTF_8))).append('\n');
+            }
+        }
+
+        final Map<String, Set<String>> pathsBySimpleName = new TreeMap<>();
+        for (String path : sourcesByPath.keySet())
+        {
+            pathsBySimpleName.computeIfAbsent(getSimpleName(path), k -> new TreeSet<>()).add(path);
+        }
+
+        final Map<String, String> hashes = new TreeMap<>();
+        final Map<String, Set<String>> references = new TreeMap<>();
+        for (Map.Entry<String, File> e : sourcesByPath.entrySet())
+        {
+            final byte[] content = Files.readAllBytes(e.getValue().toPath());
+            hashes.put(e.getKey(), Utils.hash(content));
+            final Set<String> referenced = new TreeSet<>();
+            final Matcher matcher = IDENTIFIER.matcher(new String(content, StandardCharsets.ISO_8859_1));
+            while (matcher.find())
+            {
+                referenced.addAll(pathsBySimpleName.getOrDefault(matcher.group(), Collections.emptySet()));
+            }
+            references.put(e.getKey(), referenced);
+        }
+
+        final Map<String, String> result = new TreeMap<>();
+        for (String path : paths)
+        {
+            // All sources reachable by references, as the access type and attributes depend on the whole hierarchy
+            final Set<String> closure = new TreeSet<>();
+            final List<String> queue = new ArrayList<>(Collections.singletonList(path));
+            while (!queue.isEmpty())
+            {
+                final String next = queue.remove(queue.size() - 1);
+                if (closure.add(next))
+                {
+                    queue.addAll(references.get(next));
+                }
+            }
+
+            final StringBuilder s = new StringBuilder(common).append("source=").append(path).append('\n');
+            for (String referenced : closure)
+            {
+                s.append(referenced).append(':').append(hashes.get(referenced)).append('\n');
+            }
+            result.put(path, Utils.hash(s.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+        return result;
+    }
+
+    private void restore(Map<String, byte[]> files, Map<String, Path> restored, Set<Path> written) throws IOException
+    {
+        final Path generatedDir = generatedSourcesDirectory.toPath();
+        for (Map.Entry<String, byte[]> file : files.entrySet())
+        {
+            final Path target = generatedDir.resolve(file.getKey());
+            if (Utils.writeIfChanged(target, file.getValue()))
+            {
+                written.add(target);
+            }
+            restored.put(file.getKey().substring(0, file.getKey().length() - ".java".length()).replace('/', '.'), target);
+        }
+    }
+
+    /**
+     * Store the meta-model sources generated from each processed source, also when none were generated
+     */
+    private void storeInCache(BuildCache buildCache, Map<String, String> cacheKeys, Set<String> processed, Map<String, Path> generated) throws IOException
+    {
+        final Path generatedDir = generatedSourcesDirectory.toPath();
+        final Map<String, Map<String, byte[]>> filesBySource = new TreeMap<>();
+        for (Map.Entry<String, Path> e : generated.entrySet())
+        {
+            final String owner = getOwner(e.getKey(), processed);
+            if (owner != null)
+            {
+                filesBySource.computeIfAbsent(owner, k -> new TreeMap<>()).put(toRelativePath(generatedDir, e.getValue()), Files.readAllBytes(e.getValue()));
+            }
+        }
+
+        for (String path : processed)
+        {
+            buildCache.put(cacheKeys.get(path), BuildCache.pack(filesBySource.getOrDefault(path, Collections.emptyMap())));
+        }
+    }
+
+    private Charset getCharset()
+    {
+        // Same as the compiler, which writes the generated sources in the source encoding
+        return StringUtils.isEmpty(encoding) ? Charset.defaultCharset() : Charset.forName(encoding);
+    }
+
+    /**
+     * Only the sources in <code>source</code> are processed. The generated sources are not, as processing them
+     * again makes the processor fail on recreating them.
+     */
     private Set<File> getSourceFiles()
     {
-        final Set<File> fromSource = getFilesFromDirectory(source);
-        final Set<File> fromGenerated = getFilesFromDirectory(generatedSourcesDirectory);
-        final Set<File> all = new TreeSet<>();
-        all.addAll(fromSource);
-        all.addAll(fromGenerated);
-        return all;
+        return new TreeSet<>(getFilesFromDirectory(source));
+    }
+
+    private Map<String, File> getRelativePaths(Set<File> sourceFiles)
+    {
+        final Path sourceDir = source.toPath();
+        final Map<String, File> result = new TreeMap<>();
+        for (File file : sourceFiles)
+        {
+            result.put(toRelativePath(sourceDir, file.toPath()), file);
+        }
+        return result;
+    }
+
+    private static String toRelativePath(Path dir, Path file)
+    {
+        return dir.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Find the sources that changed since the previous run, the sources they reference, like super-types and
+     * embeddables, and the sources referencing a changed or removed source. References are found by the simple
+     * names of the source files, so the result is a conservative superset.
+     */
+    private Set<String> getSourcesToProcess(Map<String, File> sourcesByPath, Map<String, String> hashes, MetamodelManifest previous) throws IOException
+    {
+        final Set<String> changed = new TreeSet<>();
+        for (Map.Entry<String, String> e : hashes.entrySet())
+        {
+            final MetamodelManifest.Entry entry = previous.get(e.getKey());
+            if (entry == null || !entry.getHash().equals(e.getValue()) || !generatedFilesExist(entry))
+            {
+                changed.add(e.getKey());
+            }
+        }
+
+        final Set<String> changedNames = new TreeSet<>();
+        for (String path : changed)
+        {
+            changedNames.add(getSimpleName(path));
+        }
+        for (String path : previous.getSources())
+        {
+            if (!sourcesByPath.containsKey(path))
+            {
+                changedNames.add(getSimpleName(path));
+            }
+        }
+        info("Changed or removed sources: " + changedNames.size());
+
+        final Set<String> result = new TreeSet<>(changed);
+        if (changedNames.isEmpty())
+        {
+            return result;
+        }
+
+        final Map<String, Set<String>> pathsBySimpleName = new TreeMap<>();
+        for (String path : sourcesByPath.keySet())
+        {
+            pathsBySimpleName.computeIfAbsent(getSimpleName(path), k -> new TreeSet<>()).add(path);
+        }
+
+        final Pattern changedReference = Pattern.compile("\\b(?:" + changedNames.stream().map(Pattern::quote).collect(Collectors.joining("|")) + ")\\b");
+        for (Map.Entry<String, File> e : sourcesByPath.entrySet())
+        {
+            final String content = readSource(e.getValue());
+            if (changed.contains(e.getKey()))
+            {
+                final Matcher matcher = IDENTIFIER.matcher(content);
+                while (matcher.find())
+                {
+                    result.addAll(pathsBySimpleName.getOrDefault(matcher.group(), Collections.emptySet()));
+                }
+            }
+            else if (changedReference.matcher(content).find())
+            {
+                result.add(e.getKey());
+            }
+        }
+        return result;
+    }
+
+    private boolean generatedFilesExist(MetamodelManifest.Entry entry)
+    {
+        for (String generated : entry.getGenerated())
+        {
+            if (!new File(generatedSourcesDirectory, generated).exists())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record the generated files of the processed sources in the manifest, and delete the files generated in
+     * previous runs that were not generated again
+     *
+     * @return The files deleted
+     */
+    private Set<Path> updateManifest(MetamodelManifest previous, MetamodelManifest current, Map<String, String> hashes, Set<String> processed, Map<String, Path> generated) throws IOException
+    {
+        final Path generatedDir = generatedSourcesDirectory.toPath();
+        final Map<String, Set<String>> generatedBySource = new TreeMap<>();
+        for (Map.Entry<String, Path> e : generated.entrySet())
+        {
+            final String owner = getOwner(e.getKey(), hashes.keySet());
+            if (owner != null)
+            {
+                generatedBySource.computeIfAbsent(owner, k -> new TreeSet<>()).add(toRelativePath(generatedDir, e.getValue()));
+            }
+        }
+
+        final Set<String> stale = new TreeSet<>();
+        if (previous != null)
+        {
+            for (String path : previous.getSources())
+            {
+                if (processed.contains(path) || !hashes.containsKey(path))
+                {
+                    stale.addAll(previous.get(path).getGenerated());
+                }
+            }
+        }
+
+        for (Map.Entry<String, String> e : hashes.entrySet())
+        {
+            final Set<String> files = generatedBySource.getOrDefault(e.getKey(), new TreeSet<>());
+            if (!processed.contains(e.getKey()) && previous != null && previous.get(e.getKey()) != null)
+            {
+                files.addAll(previous.get(e.getKey()).getGenerated());
+            }
+            stale.removeAll(files);
+            current.put(e.getKey(), e.getValue(), new ArrayList<>(files));
+        }
+
+        final Set<Path> deleted = new TreeSet<>();
+        for (String path : stale)
+        {
+            if (Files.deleteIfExists(generatedDir.resolve(path)))
+            {
+                debug("Deleted stale meta-model source " + path);
+                deleted.add(generatedDir.resolve(path));
+            }
+        }
+        if (!deleted.isEmpty())
+        {
+            info("Deleted " + deleted.size() + " stale meta-model sources");
+        }
+        return deleted;
+    }
+
+    /**
+     * @return The source generating the meta-model class, by the naming convention of the processor, or null if not found
+     */
+    private static String getOwner(String className, Set<String> sources)
+    {
+        String name = className.endsWith("_") ? className.substring(0, className.length() - 1) : className;
+        while (true)
+        {
+            final String path = name.replace('.', '/') + ".java";
+            if (sources.contains(path))
+            {
+                return path;
+            }
+
+            final int index = name.lastIndexOf('.');
+            if (index < 0)
+            {
+                return null;
+            }
+            name = name.substring(0, index);
+        }
+    }
+
+    private static String getSimpleName(String path)
+    {
+        return path.substring(path.lastIndexOf('/') + 1, path.length() - ".java".length());
+    }
+
+    private static String readSource(File file) throws IOException
+    {
+        // Identifiers are only matched in ASCII, so the encoding of the source does not matter
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+    }
+
+    private String getFingerprint(List<String> compilerOptions, File[] classPathFiles) throws IOException
+    {
+        final StringBuilder s = new StringBuilder();
+        s.append("source=").append(source.getAbsolutePath()).append('\n');
+        s.append("includes=").append(new TreeSet<>(includes)).append('\n');
+        s.append("options=").append(compilerOptions).append('\n');
+        for (File file : classPathFiles)
+        {
+            if (file.isFile())
+            {
+                s.append(file.getAbsolutePath()).append(':').append(file.length()).append(':').append(file.lastModified()).append('\n');
+            }
+            else if (file.isDirectory() && !isProjectOutput(file))
+            {
+                // Output of sibling modules, like mapped superclasses and embeddables of the entities in the sources
+                Utils.appendClassFiles(s, file.toPath());
+            }
+        }
+        return Utils.hash(s.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return true for the output directories of the project, which are compiled from the sources and change with
+     * every compilation
+     */
+    private boolean isProjectOutput(File dir)
+    {
+        for (String output : Arrays.asList(project.getBuild().getOutputDirectory(), project.getBuild().getTestOutputDirectory()))
+        {
+            if (output != null && new File(output).getAbsoluteFile().equals(dir.getAbsoluteFile()))
+            {
+                return true;
+            }
+        }
+        return false;
     }
 
     private Set<File> getFilesFromDirectory(File dir)
@@ -265,7 +957,8 @@ public class EclipselinkModelGenMojo extends AbstractMojo
 
         try
         {
-            compilerOpts.put("sourcepath", source.getCanonicalPath());
+            // Meta-model classes generated in previous runs are referenced by the ones generated now
+            compilerOpts.put("sourcepath", source.getCanonicalPath() + File.pathSeparator + generatedSourcesDirectory.getCanonicalPath());
         }
         catch (IOException e)
         {
@@ -0,0 +1,91 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+
+/**
+ * Weaving and DDL generation in one goal. The class-path is resolved once, and the class loader and the entity scan
+ * of the weaving are reused for the DDL generation.
+ *
+ * @author Morten Haraldsen
+ */
+@Mojo(requiresDependencyResolution = ResolutionScope.COMPILE, defaultPhase = LifecyclePhase.PROCESS_CLASSES, name = "process", requiresProject = true, threadSafe = true)
+public class EclipselinkProcessMojo extends EclipselinkStaticWeaveMojo
+{
+    /**
+     * The database to generate DDL for. If not set, no DDL is generated
+     */
+    @Parameter
+    private String databaseProductName;
+
+    @Parameter
+    private String databaseMajorVersion;
+
+    @Parameter
+    private String databaseMinorVersion;
+
+    @Parameter(defaultValue = "file://${project.build.outputDirectory}/ddl.sql")
+    private String ddlTargetFile;
+
+    @Parameter(defaultValue = "file://${project.build.outputDirectory}/ddl-drop.sql")
+    private String ddlDropTargetFile;
+
+    /**
+     * Valid options 'create', 'drop', 'drop-and-create'
+     */
+    @Parameter
+    private String action = PersistenceUnitProperties.SCHEMA_GENERATION_DROP_AND_CREATE_ACTION;
+
+    @Parameter(defaultValue = "false", property = "eclipselink.ddl.skip")
+    private boolean skipDdl;
+
+    @Override
+    protected void afterWeaving(ClassLoader classLoader, Set<String> entityClasses) throws MojoExecutionException
+    {
+        if (skipDdl || databaseProductName == null)
+        {
+            getLog().info("Skipping EclipseLink DDL" + (skipDdl ? " by request" : ", no <databaseProductName> set"));
+            return;
+        }
+
+        try
+        {
+            final BuildReport.Phase schemaPhase = getReport().start("generate-schema");
+            final int managedClasses = new SchemaGenerator(databaseProductName, databaseMajorVersion, databaseMinorVersion, ddlTargetFile, ddlDropTargetFile, action, getLog(), getOutputTimestamp())
+                    .generateSchema(classLoader, entityClasses);
+            schemaPhase.end();
+            getReport().count("managedClasses", managedClasses);
+        }
+        catch (Exception e)
+        {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        getLog().info("Eclipselink DDL completed");
+    }
+}
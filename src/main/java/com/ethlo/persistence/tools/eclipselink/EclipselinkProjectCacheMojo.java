@@ -0,0 +1,205 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+
+/**
+ * Builds the EclipseLink project of a persistence unit at build time and serializes it into the output directory, and
+ * registers the project cache properties in the persistence.xml, so EclipseLink loads the project instead of
+ * processing the metadata at startup. Run after the <code>weave</code> goal, as the project depends on the weaving.
+ *
+ * @author Morten Haraldsen
+ */
+@Mojo(requiresDependencyResolution = ResolutionScope.COMPILE, defaultPhase = LifecyclePhase.PROCESS_CLASSES, name = "project-cache", requiresProject = true, threadSafe = true)
+public class EclipselinkProjectCacheMojo extends AbstractMojo
+{
+    @Parameter(defaultValue = "${project.build.outputDirectory}")
+    private File persistenceInfoLocation;
+
+    /**
+     * The persistence unit to build the project for. Defaults to the first persistence unit in persistence.xml
+     */
+    @Parameter(property = "eclipselink.projectCache.persistenceUnit")
+    private String persistenceUnitName;
+
+    /**
+     * The file to write the serialized project to, packaged with the classes by default
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}/" + ProjectCacheGenerator.DEFAULT_LOCATION)
+    private File projectCacheFile;
+
+    /**
+     * The location EclipseLink reads the serialized project from at runtime, registered in persistence.xml. EclipseLink
+     * reads it from the file system, not the class-path, so this is where the deployment puts the
+     * <code>projectCacheFile</code>. If not set, the cache is not registered in persistence.xml and can be enabled at
+     * runtime with the <code>eclipselink.project-cache</code> and
+     * <code>eclipselink.project-cache.java-serialization.file-location</code> system properties.
+     */
+    @Parameter(property = "eclipselink.projectCache.location")
+    private String projectCacheLocation;
+
+    @Parameter(defaultValue = "true")
+    private boolean updatePersistenceXml;
+
+    @Parameter(defaultValue = "WARNING", property = "logLevel")
+    private String logLevel;
+
+    @Parameter(defaultValue = "false", property = "eclipselink.projectCache.skip")
+    private boolean skip;
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true, required = true)
+    private MojoExecution mojoExecution;
+
+    /**
+     * Write a JSON report with the time and memory used per phase to the <code>reportDirectory</code>
+     */
+    @Parameter(defaultValue = "true", property = "eclipselink.report")
+    private boolean writeReport;
+
+    @Parameter(defaultValue = BuildReport.DEFAULT_DIRECTORY)
+    private File reportDirectory;
+
+    /**
+     * Enables reproducible output when set, in the format of <code>project.build.outputTimestamp</code>: the
+     * serialized project gets this modification time
+     */
+    @Parameter(defaultValue = "${project.build.outputTimestamp}", property = "eclipselink.outputTimestamp")
+    private String outputTimestamp;
+
+    @Override
+    public void execute() throws MojoExecutionException
+    {
+        setLogLevel(logLevel);
+        if (this.skip)
+        {
+            getLog().info("Skipping EclipseLink project cache by request");
+            return;
+        }
+
+        final BuildReport report = new BuildReport(mojoExecution, project, session);
+        try
+        {
+            final Path persistenceXml = persistenceInfoLocation.toPath().resolve("META-INF/persistence.xml");
+            if (!Files.exists(persistenceXml))
+            {
+                throw new MojoExecutionException("No persistence.xml found at " + persistenceXml + ", run the weave goal first or provide one");
+            }
+
+            final PersistenceXmlDocument doc = PersistenceXmlHelper.parseXml(persistenceXml);
+            final String unitName = getPersistenceUnitName(doc);
+            final Set<String> managedClasses = doc.getClasses(unitName);
+            final Map<String, String> properties = doc.getProperties(unitName);
+            // The cache properties of a previous run must not make EclipseLink read the old project
+            properties.remove(PersistenceUnitProperties.PROJECT_CACHE);
+            properties.remove(PersistenceUnitProperties.PROJECT_CACHE_FILE);
+            properties.put(PersistenceUnitProperties.LOGGING_LEVEL, logLevel);
+            getLog().info("Building the EclipseLink project of persistence unit " + unitName);
+
+            final BuildReport.Phase resolvePhase = report.start("resolve-classpath");
+            try (final URLClassLoader classLoader = Utils.getCompileClassLoader(project))
+            {
+                resolvePhase.end();
+                report.count("classPathEntries", classLoader.getURLs().length);
+
+                final BuildReport.Phase projectPhase = report.start("build-project");
+                final boolean written = new ProjectCacheGenerator(getLog()).generate(classLoader, managedClasses, properties, projectCacheFile.toPath());
+                projectPhase.end();
+                report.count("managedClasses", managedClasses.size());
+                getLog().info("Project cache " + projectCacheFile + (written ? " written" : " is up to date"));
+            }
+            Utils.setLastModified(projectCacheFile.toPath(), Utils.parseOutputTimestamp(outputTimestamp));
+
+            if (updatePersistenceXml && projectCacheLocation != null)
+            {
+                boolean changed = doc.setProperty(unitName, PersistenceUnitProperties.PROJECT_CACHE, ProjectCacheGenerator.JAVA_SERIALIZATION);
+                changed |= doc.setProperty(unitName, PersistenceUnitProperties.PROJECT_CACHE_FILE, projectCacheLocation);
+                if (changed && PersistenceXmlHelper.outputXml(doc, persistenceXml))
+                {
+                    getLog().info("persistence.xml written");
+                }
+            }
+            else if (updatePersistenceXml)
+            {
+                // Without a location EclipseLink cannot find the file, so the cache is not registered
+                getLog().info("No projectCacheLocation set, persistence.xml is not updated. Enable the cache at runtime with -D"
+                        + PersistenceUnitProperties.PROJECT_CACHE + "=" + ProjectCacheGenerator.JAVA_SERIALIZATION
+                        + " -D" + PersistenceUnitProperties.PROJECT_CACHE_FILE + "=<file>");
+            }
+        }
+        catch (IOException | DependencyResolutionRequiredException | IllegalArgumentException e)
+        {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        finally
+        {
+            if (writeReport)
+            {
+                report.write(reportDirectory, getLog());
+            }
+        }
+        getLog().info("Eclipselink project cache completed");
+    }
+
+    private String getPersistenceUnitName(PersistenceXmlDocument doc) throws MojoExecutionException
+    {
+        if (persistenceUnitName != null)
+        {
+            return persistenceUnitName;
+        }
+
+        if (doc.getUnitNames().isEmpty())
+        {
+            throw new MojoExecutionException("No persistence unit found in persistence.xml");
+        }
+        return doc.getUnitNames().get(0);
+    }
+
+    public void setLogLevel(String logLevel)
+    {
+        java.util.logging.Level.parse(logLevel);
+        this.logLevel = logLevel.toUpperCase();
+    }
+}
@@ -22,27 +22,36 @@ package com.ethlo.persistence.tools.eclipselink;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.net.MalformedURLException;
+import java.lang.annotation.Annotation;
 import java.net.URISyntaxException;
-import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import jakarta.persistence.Converter;
-import jakarta.persistence.Embeddable;
-import jakarta.persistence.Entity;
-import jakarta.persistence.MappedSuperclass;
 
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -50,27 +59,32 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
+import org.eclipse.persistence.Version;
 import org.eclipse.persistence.logging.AbstractSessionLog;
 import org.eclipse.persistence.tools.weaving.jpa.StaticWeaveProcessor;
-import ee.jakarta.persistence.ObjectFactory;
-import ee.jakarta.persistence.Persistence;
 import org.springframework.util.StringUtils;
 
-import io.github.classgraph.ClassGraph;
-import io.github.classgraph.ScanResult;
-
 /**
  * @author Morten Haraldsen
  */
-@Mojo(requiresDependencyResolution = ResolutionScope.COMPILE, defaultPhase = LifecyclePhase.PROCESS_CLASSES, name = "weave", requiresProject = true)
+@Mojo(requiresDependencyResolution = ResolutionScope.COMPILE, defaultPhase = LifecyclePhase.PROCESS_CLASSES, name = "weave", requiresProject = true, threadSafe = true)
 public class EclipselinkStaticWeaveMojo extends AbstractMojo
 {
+    private static final String CACHE_FORMAT = "weave-cache v1";
+
     @Parameter
     private String basePackage;
 
     @Parameter
     private String[] basePackages;
 
+    /**
+     * Partition the managed classes found into named persistence units, by package or annotation. All units are written
+     * to the same persistence.xml and woven in one pass. If not set, all classes are added to the first persistence unit
+     */
+    @Parameter
+    private List<PersistenceUnitMapping> persistenceUnits;
+
     @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
     private File source;
 
@@ -86,6 +100,12 @@ public class EclipselinkStaticWeaveMojo extends AbstractMojo
     @Parameter(defaultValue = "${project}", readonly = true, required = true)
     private MavenProject project;
 
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true, required = true)
+    private MojoExecution mojoExecution;
+
     @Parameter(defaultValue = "true")
     private boolean addClassesToPersistenceFile;
 
@@ -95,6 +115,103 @@ public class EclipselinkStaticWeaveMojo extends AbstractMojo
     @Parameter(defaultValue = "false", property = "eclipselink.weave.skip")
     private boolean skip;
 
+    /**
+     * Only re-weave the classes that changed since the previous run, as recorded in the <code>manifestFile</code>.
+     * Falls back to weaving all classes if the manifest is missing or invalid, or the class-path changed.
+     */
+    @Parameter(defaultValue = "false", property = "eclipselink.weave.incremental")
+    private boolean incremental;
+
+    @Parameter(defaultValue = "${project.build.directory}/eclipselink/weave-manifest.txt")
+    private File manifestFile;
+
+    /**
+     * Search the class files for the JPA annotation descriptors before parsing their annotations, skipping the
+     * classes that cannot be entities. Enabled by default unless the <code>scanScope</code> is <code>CLASSPATH</code>,
+     * where the parallel ClassGraph scan of all jars is faster
+     */
+    @Parameter(property = "eclipselink.weave.scanPreFilter")
+    private Boolean scanPreFilter;
+
+    /**
+     * Write an index of the managed classes found to <code>entityIndexFile</code>, which can be read at runtime instead of scanning the class-path
+     */
+    @Parameter(defaultValue = "false", property = "eclipselink.weave.entityIndex")
+    private boolean writeEntityIndex;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}/" + EntityIndex.DEFAULT_LOCATION)
+    private File entityIndexFile;
+
+    /**
+     * Number of threads used for weaving. With more than one thread the classes are woven in parallel using one shared
+     * weaver, with the same output as the single threaded weaving
+     */
+    @Parameter(defaultValue = "1", property = "eclipselink.weave.threads")
+    private int weaveThreads;
+
+    /**
+     * The class-path entries to scan for entities: <code>OUTPUT_DIRECTORY</code>, <code>REACTOR</code> or <code>CLASSPATH</code>
+     */
+    @Parameter(defaultValue = "CLASSPATH", property = "eclipselink.weave.scanScope")
+    private ScanScope scanScope;
+
+    /**
+     * Glob patterns for the jar file names to scan for entities, like <code>*-model-*.jar</code>. If not specified all jars in scope are scanned
+     */
+    @Parameter
+    private String[] scanJarIncludes;
+
+    /**
+     * Glob patterns for the jar file names to exclude from the entity scan
+     */
+    @Parameter
+    private String[] scanJarExcludes;
+
+    /**
+     * Number of worker threads used for the entity scan and its pre-filter. 0 uses the ClassGraph default
+     */
+    @Parameter(defaultValue = "0", property = "eclipselink.weave.scanThreads")
+    private int scanThreads;
+
+    /**
+     * Write a JSON report with the time and memory used per phase to the <code>reportDirectory</code>
+     */
+    @Parameter(defaultValue = "true", property = "eclipselink.report")
+    private boolean writeReport;
+
+    @Parameter(defaultValue = BuildReport.DEFAULT_DIRECTORY)
+    private File reportDirectory;
+
+    /**
+     * Enables reproducible output when set, in the format of <code>project.build.outputTimestamp</code>: classes are
+     * inserted into persistence.xml in sorted position instead of appended. The <code>ddl</code> goal sorts the
+     * statements of its scripts when the same timestamp is set
+     */
+    @Parameter(defaultValue = "${project.build.outputTimestamp}", property = "eclipselink.outputTimestamp")
+    private String outputTimestamp;
+
+    /**
+     * Keep the woven classes in a content-addressable cache outside of the build directory, and copy them from it
+     * instead of weaving them again. The key of a class is the hash of the class, the EclipseLink version, the
+     * mapping files, the managed classes and the jars on the class-path. The cache survives <code>mvn clean</code>
+     * and can be shared by several checkouts and concurrent builds, for example as a mounted CI cache volume
+     */
+    @Parameter(defaultValue = "false", property = "eclipselink.weave.cache")
+    private boolean cache;
+
+    @Parameter(defaultValue = "${user.home}/.m2/eclipselink-cache/weave", property = "eclipselink.weave.cacheDirectory")
+    private File cacheDirectory;
+
+    /**
+     * Maximum size of the cache in megabytes. The least recently used entries are evicted when exceeded
+     */
+    @Parameter(defaultValue = "512", property = "eclipselink.weave.cacheMaxSize")
+    private long cacheMaxSize;
+
+    private BuildReport report;
+    private Instant timestamp;
+    private BuildCache buildCache;
+
     @Override
     public void execute() throws MojoExecutionException
     {
@@ -105,20 +222,76 @@ public class EclipselinkStaticWeaveMojo extends AbstractMojo
         }
         else
         {
-            final ClassLoader classLoader = new URLClassLoader(getClassPath(), Thread.currentThread().getContextClassLoader());
-            try
+            report = new BuildReport(mojoExecution, project, session);
+            timestamp = parseOutputTimestamp();
+            final BuildReport.Phase resolvePhase = report.start("resolve-classpath");
+            final File[] classPathFiles = Utils.getClassPathFiles(project);
+            resolvePhase.end();
+            report.count("classPathEntries", classPathFiles.length);
+            try (final URLClassLoader classLoader = new URLClassLoader(Utils.toUrls(classPathFiles), Thread.currentThread().getContextClassLoader()))
+            {
+                final Set<String> entityClasses = processWeaving(classLoader, classPathFiles);
+                getLog().info("Eclipselink weaving completed");
+                afterWeaving(classLoader, entityClasses);
+            }
+            catch (MojoExecutionException e)
             {
-                processWeaving(classLoader);
+                throw e;
             }
             catch (Exception e)
             {
                 throw new MojoExecutionException(e.getMessage(), e);
             }
-            getLog().info("Eclipselink weaving completed");
+            finally
+            {
+                if (writeReport)
+                {
+                    report.write(reportDirectory, getLog());
+                }
+            }
         }
     }
 
-    private void processWeaving(ClassLoader classLoader) throws MojoExecutionException, MojoFailureException
+    /**
+     * @return The report of the current execution, to record additional phases and counts in
+     */
+    protected BuildReport getReport()
+    {
+        return report;
+    }
+
+    /**
+     * @return The timestamp for reproducible output, or null if not enabled
+     */
+    protected Instant getOutputTimestamp()
+    {
+        return timestamp;
+    }
+
+    private Instant parseOutputTimestamp() throws MojoExecutionException
+    {
+        try
+        {
+            return Utils.parseOutputTimestamp(outputTimestamp);
+        }
+        catch (IllegalArgumentException exc)
+        {
+            throw new MojoExecutionException(exc.getMessage(), exc);
+        }
+    }
+
+    /**
+     * Called after weaving, with the class loader and the entity classes found, so they can be reused
+     *
+     * @param classLoader   The class loader of the project class-path
+     * @param entityClasses The managed classes found by the entity scan
+     */
+    protected void afterWeaving(ClassLoader classLoader, Set<String> entityClasses) throws MojoExecutionException
+    {
+
+    }
+
+    private Set<String> processWeaving(ClassLoader classLoader, File[] classPathFiles) throws MojoExecutionException, MojoFailureException
     {
         if (!source.exists())
         {
@@ -132,16 +305,41 @@ public class EclipselinkStaticWeaveMojo extends AbstractMojo
             {
                 getLog().info("Only entities from base packages '" + StringUtils.arrayToDelimitedString(allBasePackages, ", ") + "' will be included in persistence.xml");
             }
-            final URL[] classPath = getClassPath();
-            getLog().debug("Scanning class-path: " + Arrays.toString(classPath));
-
-            final Set<String> entityClasses = findEntities(allBasePackages, classPath);
+            final BuildReport.Phase scanPhase = report.start("scan");
+            final File[] scanPath = getScanPath(classPathFiles);
+            getLog().info("Scanning " + scanPath.length + " of " + classPathFiles.length + " class-path entries (scope " + scanScope + ")");
+            getLog().debug("Scanning class-path: " + Arrays.toString(scanPath));
+
+            final Map<String, Set<String>> classAnnotations = persistenceUnits != null ? new TreeMap<>() : null;
+            final Map<String, Class<? extends Annotation>> entityTypes = EntityScanner.findEntityTypes(allBasePackages, scanPath, scanThreads, isScanPreFilter(), report, classAnnotations);
+            final Set<String> entityClasses = new TreeSet<>(entityTypes.keySet());
+            scanPhase.end();
+            report.count("scanPathEntries", scanPath.length);
+            report.count("entitiesFound", entityClasses.size());
             getLog().info("Entities found : " + entityClasses.size());
+            final Set<String> weaveCandidates = new TreeSet<>(entityClasses);
+
+            if (writeEntityIndex)
+            {
+                final BuildReport.Phase indexPhase = report.start("entity-index");
+                final boolean written = EntityIndex.write(entityTypes, entityIndexFile.toPath());
+                indexPhase.end();
+                getLog().info("Entity index " + entityIndexFile + (written ? " written" : " is up to date"));
+            }
 
             if (updatePersistenceXml)
             {
                 getLog().debug("Updating persistence.xml file");
-                processPersistenceXml(entityClasses);
+                final BuildReport.Phase persistenceXmlPhase = report.start("persistence-xml");
+                if (persistenceUnits != null)
+                {
+                    processPersistenceUnits(partition(entityClasses, classAnnotations));
+                }
+                else
+                {
+                    processPersistenceXml(entityClasses);
+                }
+                persistenceXmlPhase.end();
             }
             else
             {
@@ -151,12 +349,29 @@ public class EclipselinkStaticWeaveMojo extends AbstractMojo
             getLog().info("Source classes dir: " + source);
             getLog().info("Target classes dir: " + target);
 
-            final StaticWeaveProcessor weaveProcessor = new StaticWeaveProcessor(source, target);
-            weaveProcessor.setPersistenceInfo(persistenceInfoLocation);
-            weaveProcessor.setClassLoader(classLoader);
-            weaveProcessor.setLog(new PrintWriter(System.out));
-            weaveProcessor.setLogLevel(getLogLevel());
-            weaveProcessor.performWeaving();
+            final Path persistenceXml = getPersistenceXmlPath();
+            if (Files.exists(persistenceXml))
+            {
+                weaveCandidates.addAll(PersistenceXmlHelper.getClassesAlreadyDefined(PersistenceXmlHelper.parseXml(persistenceXml)));
+            }
+
+            buildCache = cache ? new BuildCache(cacheDirectory.toPath(), cacheMaxSize * 1024 * 1024, getLog()) : null;
+            final BuildReport.Phase weavePhase = report.start("weave");
+            // Converters are not woven, so only the other managed classes tell whether the classes are already woven
+            final Set<String> wovenTypes = entityTypes.entrySet().stream().filter(e -> e.getValue() != Converter.class).map(Map.Entry::getKey).collect(Collectors.toCollection(TreeSet::new));
+            final int woven = incremental ? weaveIncrementally(classLoader, classPathFiles, weaveCandidates, wovenTypes) : weaveAll(classLoader, classPathFiles, weaveCandidates, wovenTypes);
+            weavePhase.end();
+            report.count("weaveCandidates", weaveCandidates.size());
+            report.count("classesWoven", woven);
+            if (buildCache != null)
+            {
+                final int evicted = buildCache.evict();
+                getLog().info("Weave cache hits: " + buildCache.getHits() + ", misses: " + buildCache.getMisses() + ", stored: " + buildCache.getStored() + ", evicted: " + evicted);
+                report.count("cacheHits", buildCache.getHits());
+                report.count("cacheMisses", buildCache.getMisses());
+                report.count("cacheEvicted", evicted);
+            }
+            return new TreeSet<>(entityTypes.keySet());
         }
         catch (URISyntaxException | IOException e)
         {
@@ -164,47 +379,441 @@ public class EclipselinkStaticWeaveMojo extends AbstractMojo
         }
     }
 
+    /**
+     * @return The number of classes woven
+     */
+    private int weaveAll(ClassLoader classLoader, File[] classPathFiles, Set<String> weaveCandidates, Set<String> wovenTypes) throws IOException, URISyntaxException
+    {
+        if (isAllWoven(wovenTypes))
+        {
+            getLog().info("All entity classes are already woven, skipping weaving");
+            return 0;
+        }
+
+        // In place the classes are woven in memory, so only the changed class files are rewritten
+        final DirectoryWeaver directoryWeaver = new DirectoryWeaver(source.toPath(), target.toPath(), weaveThreads);
+        if (weaveThreads > 1 || directoryWeaver.isInPlace() || buildCache != null)
+        {
+            final List<String> classFiles = new ArrayList<>();
+            final List<String> resources = new ArrayList<>();
+            for (String path : directoryWeaver.listFiles())
+            {
+                (path.endsWith(".class") ? classFiles : resources).add(path);
+            }
+
+            try (final ClassWeaver weaver = newClassWeaver(classLoader, classPathFiles, weaveCandidates))
+            {
+                directoryWeaver.process(weaver, classFiles, directoryWeaver.isInPlace() ? Collections.emptyList() : resources);
+            }
+            getLog().info("Processed " + classFiles.size() + " classes using " + weaveThreads + " thread(s)");
+            logOutput(directoryWeaver);
+            return directoryWeaver.getWovenCount();
+        }
+
+        final StaticWeaveProcessor weaveProcessor = new StaticWeaveProcessor(source, target);
+        weaveProcessor.setPersistenceInfo(persistenceInfoLocation);
+        weaveProcessor.setClassLoader(classLoader);
+        weaveProcessor.setLog(Utils.ECLIPSELINK_LOG_WRITER);
+        weaveProcessor.setLogLevel(getLogLevel());
+        weaveProcessor.performWeaving();
+        return countWoven(target.toPath(), weaveCandidates);
+    }
+
+    private ClassWeaver newClassWeaver(ClassLoader classLoader, File[] classPathFiles, Set<String> weaveCandidates) throws IOException, URISyntaxException
+    {
+        if (buildCache == null)
+        {
+            return new ClassWeaver(source, persistenceInfoLocation, classLoader, getLogLevel());
+        }
+        return new ClassWeaver(source, persistenceInfoLocation, classLoader, getLogLevel(), buildCache, getCacheKey(classPathFiles, weaveCandidates));
+    }
+
+    /**
+     * @return The hash of the weaving inputs shared by all classes. Paths are left out, so checkouts in different
+     * directories share the cache
+     */
+    private String getCacheKey(File[] classPathFiles, Set<String> weaveCandidates) throws IOException
+    {
+        final StringBuilder s = new StringBuilder(CACHE_FORMAT).append('\n');
+        s.append("eclipselink=").append(Version.getVersion()).append('\n');
+
+        // persistence.xml with the weaving properties and the mapping files
+        final Path metaInf = persistenceInfoLocation.toPath().resolve("META-INF");
+        if (Files.isDirectory(metaInf))
+        {
+            final List<Path> mappingFiles;
+            try (final Stream<Path> files = Files.walk(metaInf))
+            {
+                mappingFiles = files.filter(f -> f.toString().endsWith(".xml")).sorted().collect(Collectors.toList());
+            }
+            for (Path file : mappingFiles)
+            {
+                s.append(metaInf.relativize(file).toString().replace(File.separatorChar, '/')).append(':').append(Utils.hash(file)).append('\n');
+            }
+        }
+
+        // The metadata of the woven classes depends on all managed classes, from the source or other directories
+        final List<Path> directories = new ArrayList<>();
+        directories.add(source.toPath());
+        for (File file : classPathFiles)
+        {
+            if (file.isDirectory())
+            {
+                directories.add(file.toPath());
+            }
+            else if (file.isFile())
+            {
+                s.append(file.getName()).append(':').append(Utils.hashJar(file)).append('\n');
+            }
+        }
+        for (String className : weaveCandidates)
+        {
+            for (Path dir : directories)
+            {
+                final Path classFile = dir.resolve(Utils.toClassFilePath(className));
+                if (Files.exists(classFile))
+                {
+                    s.append(className).append(':').append(Utils.hash(classFile)).append('\n');
+                    break;
+                }
+            }
+        }
+        return Utils.hash(s.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void logOutput(DirectoryWeaver directoryWeaver)
+    {
+        getLog().info("Files written: " + directoryWeaver.getWrittenCount() + ", unchanged: " + directoryWeaver.getUnchangedCount());
+        report.add("filesWritten", directoryWeaver.getWrittenCount());
+        report.add("filesUnchanged", directoryWeaver.getUnchangedCount());
+    }
+
+    private int countWoven(Path dir, Set<String> classNames) throws IOException
+    {
+        int count = 0;
+        for (String className : classNames)
+        {
+            final Path classFile = dir.resolve(Utils.toClassFilePath(className));
+            if (Files.exists(classFile) && DirectoryWeaver.isWoven(Files.readAllBytes(classFile)))
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param wovenTypes The entities, mapped superclasses and embeddables
+     * @return true if weaving is in place and all of these in the source directory are already woven
+     */
+    private boolean isAllWoven(Set<String> wovenTypes) throws IOException
+    {
+        if (!new DirectoryWeaver(source.toPath(), target.toPath(), 1).isInPlace())
+        {
+            return false;
+        }
+
+        for (String className : wovenTypes)
+        {
+            final Path classFile = source.toPath().resolve(Utils.toClassFilePath(className));
+            if (Files.exists(classFile) && !DirectoryWeaver.isWoven(Files.readAllBytes(classFile)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of classes woven
+     */
+    private int weaveIncrementally(ClassLoader classLoader, File[] classPathFiles, Set<String> weaveCandidates, Set<String> wovenTypes) throws IOException, URISyntaxException
+    {
+        final Path persistenceXml = getPersistenceXmlPath();
+        final Path sourceDir = source.toPath();
+        final Path targetDir = target.toPath();
+        final DirectoryWeaver directoryWeaver = new DirectoryWeaver(sourceDir, targetDir, weaveThreads);
+        final boolean inPlace = directoryWeaver.isInPlace();
+        final Map<String, String> inputHashes = Utils.hashClassFiles(sourceDir);
+        final String fingerprint = getFingerprint(persistenceXml, classPathFiles);
+        final WeaveManifest previous = WeaveManifest.read(manifestFile.toPath());
+        final WeaveManifest current = new WeaveManifest(fingerprint);
+        final int woven;
+
+        if (previous == null || !fingerprint.equals(previous.getFingerprint()))
+        {
+            getLog().info(previous == null ? "No valid weave manifest found, weaving all classes" : "Class-path or weaving options changed, weaving all classes");
+            woven = weaveAll(classLoader, classPathFiles, weaveCandidates, wovenTypes);
+            for (Map.Entry<String, String> e : inputHashes.entrySet())
+            {
+                current.put(e.getKey(), e.getValue(), Utils.hash(targetDir.resolve(e.getKey())));
+            }
+        }
+        else
+        {
+            final Set<String> changed = new TreeSet<>();
+            for (Map.Entry<String, String> e : inputHashes.entrySet())
+            {
+                final WeaveManifest.Entry entry = previous.get(e.getKey());
+                final Path targetFile = targetDir.resolve(e.getKey());
+                final boolean unchanged = entry != null
+                        && Files.exists(targetFile)
+                        && (inPlace || e.getValue().equals(entry.getInputHash()))
+                        && (inPlace ? e.getValue() : Utils.hash(targetFile)).equals(entry.getOutputHash());
+                if (unchanged)
+                {
+                    current.put(e.getKey(), entry.getInputHash(), entry.getOutputHash());
+                }
+                else
+                {
+                    changed.add(e.getKey());
+                }
+            }
+
+            final Set<String> toWeave = getClassesToWeave(sourceDir, changed, weaveCandidates, inputHashes.keySet());
+            getLog().info("Changed classes: " + changed.size() + ", classes to weave: " + toWeave.size());
+
+            final Map<String, String> outputHashes;
+            try (final ClassWeaver weaver = toWeave.isEmpty() ? null : newClassWeaver(classLoader, classPathFiles, weaveCandidates))
+            {
+                outputHashes = directoryWeaver.process(weaver, toWeave, changed);
+            }
+            for (Map.Entry<String, String> e : outputHashes.entrySet())
+            {
+                current.put(e.getKey(), inputHashes.get(e.getKey()), e.getValue());
+            }
+            logOutput(directoryWeaver);
+            woven = directoryWeaver.getWovenCount();
+        }
+
+        current.write(manifestFile.toPath());
+        return woven;
+    }
+
+    /**
+     * Find the weave candidates that changed, and the weave candidates that depend on these, directly or indirectly
+     */
+    private Set<String> getClassesToWeave(Path sourceDir, Set<String> changed, Set<String> weaveCandidates, Set<String> classFiles) throws IOException
+    {
+        final Set<String> candidatePaths = new TreeSet<>();
+        for (String className : weaveCandidates)
+        {
+            final String path = Utils.toClassFilePath(className);
+            if (classFiles.contains(path))
+            {
+                candidatePaths.add(path);
+            }
+        }
+
+        final Set<String> result = new TreeSet<>(changed);
+        result.retainAll(candidatePaths);
+        if (result.isEmpty())
+        {
+            return result;
+        }
+
+        final Map<String, Set<String>> references = new HashMap<>();
+        for (String path : candidatePaths)
+        {
+            final Set<String> referencedPaths = new TreeSet<>();
+            for (String className : ClassFileInfo.parse(Files.readAllBytes(sourceDir.resolve(path))).getReferencedClassNames())
+            {
+                referencedPaths.add(Utils.toClassFilePath(className));
+            }
+            references.put(path, referencedPaths);
+        }
+
+        boolean added = true;
+        while (added)
+        {
+            added = false;
+            for (String path : candidatePaths)
+            {
+                if (!result.contains(path) && !Collections.disjoint(references.get(path), result))
+                {
+                    result.add(path);
+                    added = true;
+                }
+            }
+        }
+        return result;
+    }
+
+    private String getFingerprint(Path persistenceXml, File[] classPathFiles) throws IOException
+    {
+        final StringBuilder s = new StringBuilder();
+        s.append("eclipselink=").append(Version.getVersion()).append('\n');
+        s.append("source=").append(source.getAbsolutePath()).append('\n');
+        s.append("target=").append(target.getAbsolutePath()).append('\n');
+        s.append("persistenceInfo=").append(persistenceInfoLocation).append('\n');
+        s.append("persistence.xml=").append(Files.exists(persistenceXml) ? Utils.hash(persistenceXml) : "").append('\n');
+        for (File file : classPathFiles)
+        {
+            if (file.isFile())
+            {
+                s.append(file.getAbsolutePath()).append(':').append(file.length()).append(':').append(file.lastModified()).append('\n');
+            }
+            else if (file.isDirectory() && !file.getAbsoluteFile().equals(source.getAbsoluteFile()) && !file.getAbsoluteFile().equals(target.getAbsoluteFile()))
+            {
+                // Output of sibling modules, like mapped superclasses and embeddables of the woven entities
+                Utils.appendClassFiles(s, file.toPath());
+            }
+        }
+        return Utils.hash(s.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Path getPersistenceXmlPath()
+    {
+        return Paths.get(this.persistenceInfoLocation.getAbsolutePath(), "/META-INF/persistence.xml");
+    }
+
     private void processPersistenceXml(Set<String> entityClasses)
     {
-        final ObjectFactory objectFactory = new ObjectFactory();
-        objectFactory.createPersistence();
-        final Path targetFile = Paths.get(this.persistenceInfoLocation.getAbsolutePath(), "/META-INF/persistence.xml");
+        final Path targetFile = getPersistenceXmlPath();
         getLog().info("persistence.xml location: " + targetFile);
 
         final String name = project.getArtifactId();
-        final Persistence doc = Files.exists(targetFile) ? PersistenceXmlHelper.parseXml(targetFile) : PersistenceXmlHelper.createXml(name);
+        final PersistenceXmlDocument doc = Files.exists(targetFile) ? PersistenceXmlHelper.parseXml(targetFile) : PersistenceXmlHelper.createXml(name);
 
         checkExisting(targetFile, doc, entityClasses);
         if (addClassesToPersistenceFile)
         {
-            PersistenceXmlHelper.appendClasses(doc, entityClasses);
+            PersistenceXmlHelper.appendClasses(doc, entityClasses, timestamp != null);
+        }
+        if (PersistenceXmlHelper.outputXml(doc, targetFile))
+        {
+            getLog().info("persistence.xml written");
+        }
+        else
+        {
+            getLog().info("persistence.xml is up to date, not rewritten");
         }
-        PersistenceXmlHelper.outputXml(doc, targetFile);
     }
 
-    private void checkExisting(Path targetFile, Persistence doc, Set<String> entityClasses)
+    /**
+     * @return The classes of each persistence unit, in the order of the mappings
+     */
+    private Map<String, Set<String>> partition(Set<String> entityClasses, Map<String, Set<String>> classAnnotations) throws MojoFailureException
     {
-        if (Files.exists(targetFile))
+        final Map<String, Set<String>> result = new LinkedHashMap<>();
+        for (PersistenceUnitMapping mapping : persistenceUnits)
+        {
+            if (mapping.getName() == null || result.put(mapping.getName(), new TreeSet<>()) != null)
+            {
+                throw new MojoFailureException("Each <persistenceUnit> must have a unique <name>");
+            }
+        }
+
+        final Set<String> unmatched = new TreeSet<>();
+        for (String className : entityClasses)
+        {
+            boolean matched = false;
+            for (PersistenceUnitMapping mapping : persistenceUnits)
+            {
+                if (mapping.matches(className, classAnnotations.get(className)))
+                {
+                    result.get(mapping.getName()).add(className);
+                    matched = true;
+                }
+            }
+
+            if (!matched)
+            {
+                unmatched.add(className);
+            }
+        }
+
+        boolean hasDefault = false;
+        for (PersistenceUnitMapping mapping : persistenceUnits)
+        {
+            if (mapping.isDefault())
+            {
+                result.get(mapping.getName()).addAll(unmatched);
+                hasDefault = true;
+            }
+        }
+
+        if (!hasDefault && !unmatched.isEmpty())
+        {
+            getLog().warn("The following classes do not belong to any persistence unit: " + Arrays.toString(unmatched.toArray()));
+        }
+        report.count("persistenceUnits", result.size());
+        return result;
+    }
+
+    private void processPersistenceUnits(Map<String, Set<String>> unitClasses)
+    {
+        final Path targetFile = getPersistenceXmlPath();
+        getLog().info("persistence.xml location: " + targetFile);
+
+        PersistenceXmlDocument doc = Files.exists(targetFile) ? PersistenceXmlHelper.parseXml(targetFile) : null;
+        for (Map.Entry<String, Set<String>> e : unitClasses.entrySet())
         {
-            final Set<String> alreadyDefined = PersistenceXmlHelper.getClassesAlreadyDefined(doc);
+            final String name = e.getKey();
+            final Set<String> entityClasses = new TreeSet<>(e.getValue());
+            if (doc == null)
+            {
+                doc = PersistenceXmlHelper.createXml(name);
+            }
+            else if (!doc.hasUnit(name))
+            {
+                doc.addUnit(name);
+            }
+            else
+            {
+                checkExisting(targetFile, doc.getClasses(name), entityClasses);
+            }
 
-            if (!alreadyDefined.containsAll(entityClasses))
+            getLog().info("Persistence unit " + name + ": " + e.getValue().size() + " managed classes");
+            if (addClassesToPersistenceFile)
             {
-                final Set<String> undefined = new TreeSet<>();
-                for (String className : entityClasses)
+                if (timestamp != null)
                 {
-                    if (!alreadyDefined.contains(className))
-                    {
-                        undefined.add(className);
-                    }
+                    doc.addClassesSorted(name, entityClasses);
                 }
+                else
+                {
+                    doc.addClasses(name, entityClasses);
+                }
+            }
+        }
+
+        if (doc != null && PersistenceXmlHelper.outputXml(doc, targetFile))
+        {
+            getLog().info("persistence.xml written");
+        }
+        else
+        {
+            getLog().info("persistence.xml is up to date, not rewritten");
+        }
+    }
+
+    private void checkExisting(Path targetFile, PersistenceXmlDocument doc, Set<String> entityClasses)
+    {
+        if (Files.exists(targetFile))
+        {
+            checkExisting(targetFile, PersistenceXmlHelper.getClassesAlreadyDefined(doc), entityClasses);
+        }
+    }
 
-                getLog().warn("The following classes was not defined in " + targetFile + " even " + "though they are available on the class path: " + Arrays.toString(undefined.toArray()));
+    private void checkExisting(Path targetFile, Set<String> alreadyDefined, Set<String> entityClasses)
+    {
+        if (!alreadyDefined.containsAll(entityClasses))
+        {
+            final Set<String> undefined = new TreeSet<>();
+            for (String className : entityClasses)
+            {
+                if (!alreadyDefined.contains(className))
+                {
+                    undefined.add(className);
+                }
             }
 
-            // Don't add so we end up with duplicates
-            entityClasses.removeAll(alreadyDefined);
+            getLog().warn("The following classes was not defined in " + targetFile + " even " + "though they are available on the class path: " + Arrays.toString(undefined.toArray()));
         }
+
+        // Don't add so we end up with duplicates
+        entityClasses.removeAll(alreadyDefined);
     }
 
     private int getLogLevel()
@@ -218,40 +827,86 @@ public class EclipselinkStaticWeaveMojo extends AbstractMojo
         this.logLevel = logLevel.toUpperCase();
     }
 
-    private URL[] getClassPath()
+    private boolean isScanPreFilter()
     {
-        final List<URL> urls = new ArrayList<>();
-        try
+        return scanPreFilter != null ? scanPreFilter : scanScope != ScanScope.CLASSPATH;
+    }
+
+    private File[] getScanPath(File[] classPathFiles)
+    {
+        final Set<File> reactorArtifacts = new HashSet<>();
+        if (scanScope == ScanScope.REACTOR)
         {
-            for (File file : Utils.getClassPathFiles(project))
+            final Set<String> reactorProjects = new HashSet<>();
+            for (MavenProject reactorProject : session.getProjects())
+            {
+                reactorProjects.add(reactorProject.getGroupId() + ":" + reactorProject.getArtifactId());
+            }
+
+            for (Artifact artifact : project.getArtifacts())
             {
-                urls.add(file.toURI().toURL());
+                if (artifact.getFile() != null && reactorProjects.contains(artifact.getGroupId() + ":" + artifact.getArtifactId()))
+                {
+                    reactorArtifacts.add(artifact.getFile().getAbsoluteFile());
+                }
             }
-            return urls.toArray(new URL[0]);
         }
-        catch (MalformedURLException exc)
+
+        final List<PathMatcher> includes = getJarMatchers(scanJarIncludes);
+        final List<PathMatcher> excludes = getJarMatchers(scanJarExcludes);
+        final List<File> result = new ArrayList<>();
+        for (File file : classPathFiles)
         {
-            throw new RuntimeException(exc.getMessage(), exc);
+            if (isInScope(file, reactorArtifacts) && (file.isDirectory() || (matchesAny(includes, file, true) && !matchesAny(excludes, file, false))))
+            {
+                result.add(file);
+            }
         }
+        return result.toArray(new File[0]);
     }
 
-    private Set<String> findEntities(String[] allBasePackages, final URL[] classPath)
+    private boolean isInScope(File file, Set<File> reactorArtifacts)
     {
-        final Set<String> result = new TreeSet<>();
+        final boolean isSource = file.getAbsoluteFile().equals(source.getAbsoluteFile());
+        switch (scanScope)
+        {
+            case OUTPUT_DIRECTORY:
+                return isSource;
+            case REACTOR:
+                return isSource || reactorArtifacts.contains(file.getAbsoluteFile());
+            default:
+                return true;
+        }
+    }
 
-        try (final ScanResult scanResult = new ClassGraph().acceptPackages(allBasePackages).enableAnnotationInfo().overrideClasspath((Object[]) classPath).scan())
+    private List<PathMatcher> getJarMatchers(String[] patterns)
+    {
+        final List<PathMatcher> result = new ArrayList<>();
+        if (patterns != null)
         {
-            result.addAll(extract(scanResult, Entity.class));
-            result.addAll(extract(scanResult, MappedSuperclass.class));
-            result.addAll(extract(scanResult, Embeddable.class));
-            result.addAll(extract(scanResult, Converter.class));
+            for (String pattern : patterns)
+            {
+                result.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+            }
         }
         return result;
     }
 
-    private Collection<? extends String> extract(final ScanResult scanResult, final Class<?> type)
+    private boolean matchesAny(List<PathMatcher> matchers, File file, boolean defaultValue)
     {
-        return scanResult.getClassesWithAnnotation(type.getCanonicalName()).getNames();
+        if (matchers.isEmpty())
+        {
+            return defaultValue;
+        }
+
+        for (PathMatcher matcher : matchers)
+        {
+            if (matcher.matches(file.toPath().getFileName()))
+            {
+                return true;
+            }
+        }
+        return false;
     }
 
     private String[] getBasePackages() throws MojoFailureException
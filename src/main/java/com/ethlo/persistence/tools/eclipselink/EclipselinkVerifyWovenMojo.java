@@ -0,0 +1,201 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import jakarta.persistence.Converter;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Verifies that all entity classes in a classes directory or jar file are woven. Only the class file headers are read,
+ * no class is loaded and EclipseLink is not initialized.
+ *
+ * @author Morten Haraldsen
+ */
+@Mojo(defaultPhase = LifecyclePhase.VERIFY, name = "verify-woven", requiresProject = true, threadSafe = true)
+public class EclipselinkVerifyWovenMojo extends AbstractMojo
+{
+    /**
+     * The classes directory or jar file to verify
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File source;
+
+    @Parameter
+    private String[] basePackages;
+
+    /**
+     * Fail the build if unwoven entity classes are found, otherwise only log a warning
+     */
+    @Parameter(defaultValue = "true", property = "eclipselink.verify-woven.failOnUnwoven")
+    private boolean failOnUnwoven;
+
+    @Parameter(defaultValue = "false", property = "eclipselink.verify-woven.skip")
+    private boolean skip;
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true, required = true)
+    private MojoExecution mojoExecution;
+
+    /**
+     * Write a JSON report with the time and memory used per phase to the <code>reportDirectory</code>
+     */
+    @Parameter(defaultValue = "true", property = "eclipselink.report")
+    private boolean writeReport;
+
+    @Parameter(defaultValue = BuildReport.DEFAULT_DIRECTORY)
+    private File reportDirectory;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException
+    {
+        if (this.skip)
+        {
+            getLog().info("Skipping EclipseLink weaving verification by request");
+            return;
+        }
+
+        if (!source.exists())
+        {
+            getLog().info("Source " + source + " does not exist, nothing to verify");
+            return;
+        }
+
+        final BuildReport report = new BuildReport(mojoExecution, project, session);
+        try
+        {
+            verify(report);
+        }
+        finally
+        {
+            if (writeReport)
+            {
+                report.write(reportDirectory, getLog());
+            }
+        }
+    }
+
+    private void verify(BuildReport report) throws MojoExecutionException, MojoFailureException
+    {
+        final BuildReport.Phase scanPhase = report.start("scan");
+        final Map<String, Class<? extends Annotation>> entityTypes = EntityScanner.findEntityTypes(basePackages != null ? basePackages : new String[0], new File[]{source}, 0, true, report, null);
+        scanPhase.end();
+        report.count("entitiesFound", entityTypes.size());
+
+        final BuildReport.Phase verifyPhase = report.start("verify");
+        final List<String> unwoven = new ArrayList<>();
+        int verified = 0;
+        try (final ZipFile zipFile = source.isFile() ? new ZipFile(source) : null)
+        {
+            for (Map.Entry<String, Class<? extends Annotation>> entityType : entityTypes.entrySet())
+            {
+                // Converters are not woven
+                if (entityType.getValue() == Converter.class)
+                {
+                    continue;
+                }
+
+                final String className = entityType.getKey();
+                final byte[] classBytes = readClass(zipFile, className);
+                if (classBytes == null)
+                {
+                    continue;
+                }
+
+                verified++;
+                if (!DirectoryWeaver.isWoven(classBytes))
+                {
+                    unwoven.add(className);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new MojoExecutionException("Unable to read " + source + ": " + e.getMessage(), e);
+        }
+        verifyPhase.end();
+        report.count("classesVerified", verified);
+        report.count("classesUnwoven", unwoven.size());
+
+        if (unwoven.isEmpty())
+        {
+            getLog().info("All " + verified + " entity classes in " + source + " are woven");
+            return;
+        }
+
+        for (String className : unwoven)
+        {
+            getLog().warn("Entity class is not woven: " + className);
+        }
+
+        final String message = unwoven.size() + " of " + verified + " entity classes in " + source + " are not woven";
+        if (failOnUnwoven)
+        {
+            throw new MojoFailureException(message);
+        }
+        getLog().warn(message);
+    }
+
+    private byte[] readClass(ZipFile zipFile, String className) throws IOException
+    {
+        final String path = Utils.toClassFilePath(className);
+        if (zipFile == null)
+        {
+            final File classFile = new File(source, path);
+            return classFile.isFile() ? Files.readAllBytes(classFile.toPath()) : null;
+        }
+
+        final ZipEntry entry = zipFile.getEntry(path);
+        if (entry == null)
+        {
+            return null;
+        }
+
+        try (final InputStream in = zipFile.getInputStream(entry))
+        {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Fast pre-filter for the entity scan. A class can only carry a JPA annotation if the annotation type descriptor, like
+ * <code>Ljakarta/persistence/Entity;</code>, is present in its constant pool, so the raw class bytes are searched for
+ * these descriptors without parsing the class file.
+ *
+ * @author Morten Haraldsen
+ */
+public class EntityCandidateFilter
+{
+    private static final byte[] PREFIX = "Ljakarta/persistence/".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[][] SUFFIXES;
+
+    static
+    {
+        final List<Class<? extends Annotation>> annotations = EntityScanner.ANNOTATIONS;
+        SUFFIXES = new byte[annotations.size()][];
+        for (int i = 0; i < annotations.size(); i++)
+        {
+            SUFFIXES[i] = (annotations.get(i).getSimpleName() + ";").getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private EntityCandidateFilter()
+    {
+
+    }
+
+    /**
+     * @param scanPath     The directories and jar files to search
+     * @param basePackages The packages to include, all packages if empty
+     * @param threads      The number of threads searching the jars and class files, 0 for the number of processors
+     * @return The names of the classes that may carry a JPA annotation
+     */
+    public static Set<String> findCandidates(File[] scanPath, String[] basePackages, int threads) throws IOException
+    {
+        final List<String> prefixes = new ArrayList<>();
+        for (String basePackage : basePackages)
+        {
+            prefixes.add(basePackage.replace('.', '/') + "/");
+        }
+
+        final List<File> jars = new ArrayList<>();
+        final List<Path[]> classFiles = new ArrayList<>();
+        for (File file : scanPath)
+        {
+            if (file.isDirectory())
+            {
+                listClassFiles(file.toPath(), prefixes, classFiles);
+            }
+            else if (file.isFile())
+            {
+                jars.add(file);
+            }
+        }
+
+        final Set<String> result = new ConcurrentSkipListSet<>();
+        final int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        if (poolSize == 1)
+        {
+            for (File jar : jars)
+            {
+                searchJar(jar, prefixes, result);
+            }
+            for (Path[] classFile : classFiles)
+            {
+                searchClassFile(classFile[0], classFile[1], result);
+            }
+        }
+        else
+        {
+            final ForkJoinPool pool = BuildReport.newWorkerPool(poolSize);
+            try
+            {
+                // The jars one per task, as most of them are small, and the class files of the directories individually
+                pool.submit(() -> Stream.concat(
+                        jars.stream().map(jar -> (IORunnable) () -> searchJar(jar, prefixes, result)),
+                        classFiles.stream().map(classFile -> (IORunnable) () -> searchClassFile(classFile[0], classFile[1], result))
+                ).collect(Collectors.toList()).parallelStream().forEach(task ->
+                {
+                    try
+                    {
+                        task.run();
+                    }
+                    catch (IOException exc)
+                    {
+                        throw new UncheckedIOException(exc);
+                    }
+                })).get();
+            }
+            catch (InterruptedException exc)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while searching for entity candidates");
+            }
+            catch (ExecutionException exc)
+            {
+                if (exc.getCause() instanceof UncheckedIOException)
+                {
+                    throw ((UncheckedIOException) exc.getCause()).getCause();
+                }
+                throw new IOException(exc.getCause().getMessage(), exc.getCause());
+            }
+            finally
+            {
+                BuildReport.shutdown(pool);
+            }
+        }
+        return new TreeSet<>(result);
+    }
+
+    private static void listClassFiles(Path dir, List<String> prefixes, List<Path[]> result) throws IOException
+    {
+        try (final Stream<Path> files = Files.walk(dir))
+        {
+            for (Path classFile : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".class"))::iterator)
+            {
+                if (isIncluded(relativePath(dir, classFile), prefixes))
+                {
+                    result.add(new Path[]{dir, classFile});
+                }
+            }
+        }
+    }
+
+    private static void searchClassFile(Path dir, Path classFile, Set<String> result) throws IOException
+    {
+        try (final FileChannel channel = FileChannel.open(classFile, StandardOpenOption.READ))
+        {
+            if (isCandidate(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())))
+            {
+                result.add(Utils.toClassName(relativePath(dir, classFile)));
+            }
+        }
+    }
+
+    private static String relativePath(Path dir, Path classFile)
+    {
+        return dir.relativize(classFile).toString().replace(File.separatorChar, '/');
+    }
+
+    private static void searchJar(File jar, List<String> prefixes, Set<String> result) throws IOException
+    {
+        try (final ZipFile zipFile = new ZipFile(jar))
+        {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements())
+            {
+                final ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().endsWith(".class") && isIncluded(entry.getName(), prefixes))
+                {
+                    try (final InputStream in = zipFile.getInputStream(entry))
+                    {
+                        if (isCandidate(ByteBuffer.wrap(in.readAllBytes())))
+                        {
+                            result.add(Utils.toClassName(entry.getName()));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isIncluded(String path, List<String> prefixes)
+    {
+        if (prefixes.isEmpty())
+        {
+            return true;
+        }
+
+        for (String prefix : prefixes)
+        {
+            if (path.startsWith(prefix))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isCandidate(ByteBuffer buf)
+    {
+        final int limit = buf.limit() - PREFIX.length;
+        for (int i = 0; i <= limit; i++)
+        {
+            if (matches(buf, i, PREFIX))
+            {
+                final int suffixStart = i + PREFIX.length;
+                for (byte[] suffix : SUFFIXES)
+                {
+                    if (matches(buf, suffixStart, suffix))
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private interface IORunnable
+    {
+        void run() throws IOException;
+    }
+
+    private static boolean matches(ByteBuffer buf, int offset, byte[] value)
+    {
+        if (offset + value.length > buf.limit())
+        {
+            return false;
+        }
+
+        for (int i = 0; i < value.length; i++)
+        {
+            if (buf.get(offset + i) != value[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,106 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Build-time index of the JPA managed classes, so they can be read at runtime without class-path scanning.
+ * <p>
+ * The index is a UTF-8 text file. The first line is a comment, the second line is <code>version=1</code>, followed
+ * by one line per class, sorted by class name, with the annotation simple name and the class name separated by a tab:
+ * <pre>
+ * Entity	com.acme.model.Person
+ * Embeddable	com.acme.model.Address
+ * </pre>
+ *
+ * @author Morten Haraldsen
+ */
+public class EntityIndex
+{
+    public static final String DEFAULT_LOCATION = "META-INF/eclipselink-entities.idx";
+    public static final int VERSION = 1;
+
+    private static final String HEADER = "# JPA managed classes, generated by eclipselink-maven-plugin";
+    private static final String VERSION_PREFIX = "version=";
+
+    private EntityIndex()
+    {
+
+    }
+
+    public static byte[] render(Map<String, Class<? extends Annotation>> entityTypes)
+    {
+        final StringBuilder s = new StringBuilder();
+        s.append(HEADER).append('\n');
+        s.append(VERSION_PREFIX).append(VERSION).append('\n');
+        for (Map.Entry<String, Class<? extends Annotation>> e : new TreeMap<>(entityTypes).entrySet())
+        {
+            s.append(e.getValue().getSimpleName()).append('\t').append(e.getKey()).append('\n');
+        }
+        return s.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write the index, unless the file already has the exact same content
+     *
+     * @return true if the file was written, false if it was left untouched
+     */
+    public static boolean write(Map<String, Class<? extends Annotation>> entityTypes, Path file) throws IOException
+    {
+        return Utils.writeIfChanged(file, render(entityTypes));
+    }
+
+    /**
+     * @return The class names, sorted, mapped to the annotation simple name
+     */
+    public static Map<String, String> read(InputStream in) throws IOException
+    {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        final String header = reader.readLine();
+        final String version = reader.readLine();
+        if (header == null || version == null || !version.equals(VERSION_PREFIX + VERSION))
+        {
+            throw new IOException("Unsupported entity index version: " + version);
+        }
+
+        final Map<String, String> result = new TreeMap<>();
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            final int tab = line.indexOf('\t');
+            if (tab < 0)
+            {
+                throw new IOException("Invalid entity index line: " + line);
+            }
+            result.put(line.substring(tab + 1), line.substring(0, tab));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,147 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import jakarta.persistence.Converter;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Entity;
+import jakarta.persistence.MappedSuperclass;
+
+import io.github.classgraph.ClassGraph;
+import io.github.classgraph.ScanResult;
+
+/**
+ * Finds the JPA managed classes on a class-path
+ *
+ * @author Morten Haraldsen
+ */
+public class EntityScanner
+{
+    public static final List<Class<? extends Annotation>> ANNOTATIONS = List.of(Entity.class, MappedSuperclass.class, Embeddable.class, Converter.class);
+
+    private EntityScanner()
+    {
+
+    }
+
+    /**
+     * @param basePackages     The packages to scan, all packages if empty
+     * @param scanPath         The class-path entries to scan
+     * @param threads          The number of scanner and pre-filter threads, 0 for the ClassGraph default
+     * @param preFilter        Only parse the annotations of classes passing the {@link EntityCandidateFilter}
+     * @param report           The report to record the number of scanned classes in, may be null
+     * @param classAnnotations Filled with the names of all annotations directly present on each managed class, may be null
+     * @return The managed class names, sorted, mapped to the JPA annotation they carry
+     */
+    public static Map<String, Class<? extends Annotation>> findEntityTypes(String[] basePackages, File[] scanPath, int threads, boolean preFilter, BuildReport report, Map<String, Set<String>> classAnnotations)
+    {
+        final Map<String, Class<? extends Annotation>> result = new TreeMap<>();
+
+        final ClassGraph classGraph = new ClassGraph().enableAnnotationInfo().overrideClasspath((Object[]) scanPath);
+        if (preFilter)
+        {
+            final Set<String> candidates;
+            try
+            {
+                candidates = EntityCandidateFilter.findCandidates(scanPath, basePackages, threads);
+            }
+            catch (IOException exc)
+            {
+                throw new UncheckedIOException(exc);
+            }
+
+            if (report != null)
+            {
+                report.count("scanCandidates", candidates.size());
+            }
+
+            if (candidates.isEmpty())
+            {
+                return result;
+            }
+
+            // Accepting packages would scan all classes in them, so only accept the candidates
+            classGraph.acceptClasses(candidates.toArray(new String[0]));
+        }
+        else
+        {
+            classGraph.acceptPackages(basePackages);
+        }
+
+        // The scan threads of ClassGraph's default executor would not be included in the build report
+        final int scanThreads = threads > 0 ? threads : getDefaultScanThreads();
+        final ForkJoinPool pool = BuildReport.newWorkerPool(scanThreads);
+        try (final ScanResult scanResult = classGraph.scan(pool, scanThreads))
+        {
+            if (report != null)
+            {
+                report.count("classesScanned", scanResult.getAllClasses().size());
+            }
+
+            for (Class<? extends Annotation> type : ANNOTATIONS)
+            {
+                for (String className : extract(scanResult, type))
+                {
+                    result.putIfAbsent(className, type);
+                }
+            }
+
+            if (classAnnotations != null)
+            {
+                for (String className : result.keySet())
+                {
+                    classAnnotations.put(className, new TreeSet<>(scanResult.getClassInfo(className).getAnnotationInfo().getNames()));
+                }
+            }
+        }
+        finally
+        {
+            BuildReport.shutdown(pool);
+        }
+        return result;
+    }
+
+    /**
+     * The number of threads ClassGraph uses by default
+     */
+    private static int getDefaultScanThreads()
+    {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        return Math.max(2, (int) Math.ceil(Math.min(4.0, processors * 0.75) + processors * 1.25));
+    }
+
+    private static Collection<? extends String> extract(final ScanResult scanResult, final Class<?> type)
+    {
+        return scanResult.getClassesWithAnnotation(type.getCanonicalName()).getNames();
+    }
+}
@@ -0,0 +1,169 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+/**
+ * Weaves classes inside a jar file as a streaming zip-to-zip copy. Only the entries of the classes to weave are
+ * inflated, woven and deflated again, all other entries are copied raw, without being decompressed.
+ *
+ * @author Morten Haraldsen
+ */
+public class JarWeaver
+{
+    private static final List<String> NESTED_CLASS_ROOTS = List.of("BOOT-INF/classes/", "WEB-INF/classes/");
+
+    private final ClassWeaver weaver;
+
+    public JarWeaver(ClassWeaver weaver)
+    {
+        this.weaver = weaver;
+    }
+
+    /**
+     * Weave the jar, closing the weaver before the woven jar is moved into place
+     *
+     * @param sourceJar       The jar to weave
+     * @param targetJar       The woven jar, may be the same as the source jar
+     * @param classesToWeave  The names of the classes to weave
+     * @return The number of classes that were changed by weaving
+     */
+    public int weave(File sourceJar, File targetJar, Set<String> classesToWeave) throws IOException
+    {
+        checkSupported(sourceJar);
+        final Path target = targetJar.toPath().toAbsolutePath();
+        final Path tmp = Utils.getTempFile(target);
+        int woven = 0;
+        try
+        {
+            try (final ZipFile zipFile = ZipFile.builder().setFile(sourceJar).get();
+                 final OutputStream out = Files.newOutputStream(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                 final ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(out))
+            {
+                final Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+                while (entries.hasMoreElements())
+                {
+                    final ZipArchiveEntry entry = entries.nextElement();
+                    final byte[] output = entry.isDirectory() || !entry.getName().endsWith(".class") ? null : weaveEntry(zipFile, entry, classesToWeave);
+                    if (output != null)
+                    {
+                        // Keeps the time, comment, extra fields and attributes like the unix mode of the original entry
+                        final ZipArchiveEntry wovenEntry = new ZipArchiveEntry(entry);
+                        final CRC32 crc = new CRC32();
+                        crc.update(output);
+                        wovenEntry.setMethod(ZipEntry.DEFLATED);
+                        wovenEntry.setSize(output.length);
+                        wovenEntry.setCrc(crc.getValue());
+                        wovenEntry.setCompressedSize(ArchiveEntry.SIZE_UNKNOWN);
+                        zipOut.putArchiveEntry(wovenEntry);
+                        zipOut.write(output);
+                        zipOut.closeArchiveEntry();
+                        woven++;
+                    }
+                    else
+                    {
+                        try (final InputStream raw = zipFile.getRawInputStream(entry))
+                        {
+                            zipOut.addRawArchiveEntry(entry, raw);
+                        }
+                    }
+                }
+            }
+            // The class loader of the weaver keeps the source jar open, which prevents replacing it on Windows
+            weaver.close();
+            Utils.moveIntoPlace(tmp, target);
+        }
+        finally
+        {
+            Files.deleteIfExists(tmp);
+        }
+        return woven;
+    }
+
+    /**
+     * Jars that keep their classes below a nested root, like the executable jars of Spring Boot, cannot be woven, as
+     * the classes are neither found by their entry names nor loadable from the jar
+     *
+     * @throws IOException If the jar has a nested class root
+     */
+    public static void checkSupported(File jar) throws IOException
+    {
+        try (final ZipFile zipFile = ZipFile.builder().setFile(jar).get())
+        {
+            final Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
+            while (entries.hasMoreElements())
+            {
+                final String name = entries.nextElement().getName();
+                for (String root : NESTED_CLASS_ROOTS)
+                {
+                    if (name.startsWith(root))
+                    {
+                        throw new IOException(jar + " has its classes in " + root + ", like a Spring Boot executable jar or a war, "
+                                + "which cannot be woven. Weave the classes before repackaging instead");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The woven bytes, or null if the entry is not to be woven or weaving did not change it
+     */
+    private byte[] weaveEntry(ZipFile zipFile, ZipArchiveEntry entry, Set<String> classesToWeave) throws IOException
+    {
+        final String className = Utils.toClassName(entry.getName());
+        if (!classesToWeave.contains(className))
+        {
+            return null;
+        }
+
+        final byte[] input;
+        try (final InputStream in = zipFile.getInputStream(entry))
+        {
+            input = in.readAllBytes();
+        }
+
+        if (DirectoryWeaver.isWoven(input))
+        {
+            return null;
+        }
+        final byte[] output = weaver.weave(className, input);
+        return Arrays.equals(input, output) ? null : output;
+    }
+}
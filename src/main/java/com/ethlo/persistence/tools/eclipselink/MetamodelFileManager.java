@@ -0,0 +1,126 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.ForwardingJavaFileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * File manager used for the annotation processing of the meta-model generation, recording the source files
+ * generated by the processor.
+ * <p>
+ * Generated sources are kept in memory until closed, and only written if the content differs from the file already on
+ * disk, so unchanged meta-model sources keep their modification time and do not trigger recompilation.
+ *
+ * @author Morten Haraldsen
+ */
+public class MetamodelFileManager extends ForwardingJavaFileManager<StandardJavaFileManager>
+{
+    private final Charset charset;
+    private final Map<String, Path> generated = new ConcurrentHashMap<>();
+    private final Set<Path> written = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param fileManager The file manager to forward to
+     * @param charset     The encoding of the generated sources
+     */
+    public MetamodelFileManager(StandardJavaFileManager fileManager, Charset charset)
+    {
+        super(fileManager);
+        this.charset = charset;
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) throws IOException
+    {
+        final JavaFileObject file = super.getJavaFileForOutput(location, className, kind, sibling);
+        if (kind != JavaFileObject.Kind.SOURCE)
+        {
+            return file;
+        }
+
+        final Path path = Paths.get(file.toUri());
+        generated.put(className, path);
+        return new ForwardingJavaFileObject<>(file)
+        {
+            @Override
+            public OutputStream openOutputStream()
+            {
+                return new ByteArrayOutputStream()
+                {
+                    private boolean closed;
+
+                    @Override
+                    public void close() throws IOException
+                    {
+                        if (!closed)
+                        {
+                            closed = true;
+                            if (Utils.writeIfChanged(path, toByteArray()))
+                            {
+                                written.add(path);
+                            }
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public Writer openWriter()
+            {
+                return new OutputStreamWriter(openOutputStream(), charset);
+            }
+        };
+    }
+
+    /**
+     * @return The fully qualified names of the generated classes, mapped to their source files
+     */
+    public Map<String, Path> getGenerated()
+    {
+        return new TreeMap<>(generated);
+    }
+
+    /**
+     * @return The generated source files that were written, as their content changed
+     */
+    public Set<Path> getWritten()
+    {
+        return new TreeSet<>(written);
+    }
+}
@@ -0,0 +1,168 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Records the state of the last meta-model generation: a fingerprint of the class-path and options, and for each
+ * source file the hash of its content and the meta-model sources generated from it.
+ *
+ * @author Morten Haraldsen
+ */
+public class MetamodelManifest
+{
+    private static final String HEADER = "# eclipselink-maven-plugin modelgen manifest v1";
+    private static final String FINGERPRINT_PREFIX = "fingerprint=";
+
+    private final String fingerprint;
+    private final Map<String, Entry> entries;
+
+    public MetamodelManifest(String fingerprint)
+    {
+        this(fingerprint, new TreeMap<>());
+    }
+
+    private MetamodelManifest(String fingerprint, Map<String, Entry> entries)
+    {
+        this.fingerprint = fingerprint;
+        this.entries = entries;
+    }
+
+    /**
+     * @param file The manifest file
+     * @return The manifest, or null if it does not exist or cannot be read
+     */
+    public static MetamodelManifest read(Path file)
+    {
+        if (!Files.exists(file))
+        {
+            return null;
+        }
+
+        try (final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+        {
+            if (!HEADER.equals(reader.readLine()))
+            {
+                return null;
+            }
+
+            final String fingerprintLine = reader.readLine();
+            if (fingerprintLine == null || !fingerprintLine.startsWith(FINGERPRINT_PREFIX))
+            {
+                return null;
+            }
+
+            final Map<String, Entry> entries = new TreeMap<>();
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                final String[] parts = line.split("\t", -1);
+                if (parts.length != 3)
+                {
+                    return null;
+                }
+                entries.put(parts[0], new Entry(parts[1], parts[2].isEmpty() ? Collections.emptyList() : Arrays.asList(parts[2].split(","))));
+            }
+            return new MetamodelManifest(fingerprintLine.substring(FINGERPRINT_PREFIX.length()), entries);
+        }
+        catch (IOException exc)
+        {
+            return null;
+        }
+    }
+
+    public void write(Path file) throws IOException
+    {
+        Files.createDirectories(file.getParent());
+        try (final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            writer.write(HEADER);
+            writer.newLine();
+            writer.write(FINGERPRINT_PREFIX + fingerprint);
+            writer.newLine();
+            for (Map.Entry<String, Entry> e : entries.entrySet())
+            {
+                writer.write(e.getKey() + "\t" + e.getValue().getHash() + "\t" + String.join(",", e.getValue().getGenerated()));
+                writer.newLine();
+            }
+        }
+    }
+
+    public String getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    /**
+     * @return The source file paths, relative to the source directory
+     */
+    public List<String> getSources()
+    {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    public Entry get(String path)
+    {
+        return entries.get(path);
+    }
+
+    public void put(String path, String hash, List<String> generated)
+    {
+        entries.put(path, new Entry(hash, generated));
+    }
+
+    public static class Entry
+    {
+        private final String hash;
+        private final List<String> generated;
+
+        public Entry(String hash, List<String> generated)
+        {
+            this.hash = hash;
+            this.generated = generated;
+        }
+
+        public String getHash()
+        {
+            return hash;
+        }
+
+        /**
+         * @return The generated files, relative to the generated sources directory
+         */
+        public List<String> getGenerated()
+        {
+            return generated;
+        }
+    }
+}
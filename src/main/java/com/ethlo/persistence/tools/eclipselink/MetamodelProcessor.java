@@ -0,0 +1,293 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * Runs the meta-model annotation processor over a set of sources, optionally split into shards processed by
+ * concurrent compiler tasks. Each task has its own file manager, the compiler options including the class-path are
+ * shared.
+ * <p>
+ * A generated meta-model class extends the meta-model class of the super-type, which has to be generated by the
+ * same task, and the access type of an embeddable is taken from the entities embedding it. So the sources of a type
+ * hierarchy and the embeddables with the sources using them are always kept in the same shard. Both are found by
+ * simple name, in the <code>extends</code> clauses and in the identifiers of the sources, which is a conservative
+ * superset.
+ *
+ * @author Morten Haraldsen
+ */
+public class MetamodelProcessor
+{
+    private static final Pattern EXTENDS = Pattern.compile("\\bextends\\s+([\\w.]+)");
+    private static final Pattern IDENTIFIER = Pattern.compile("\\b[A-Z][\\w$]*");
+    private static final Pattern EMBEDDABLE = Pattern.compile("[@.]Embeddable\\b");
+
+    private final JavaCompiler compiler;
+    private final List<String> compilerOptions;
+    private final Charset charset;
+    private final int threads;
+    private final Map<String, Path> generated = new ConcurrentHashMap<>();
+    private final Set<Path> written = ConcurrentHashMap.newKeySet();
+    private final StringBuilder diagnostics = new StringBuilder();
+
+    /**
+     * @param compiler        The compiler to run the processor with
+     * @param compilerOptions The options of the compiler tasks
+     * @param charset         The encoding of the generated sources
+     * @param threads         The maximum number of concurrent compiler tasks
+     */
+    public MetamodelProcessor(JavaCompiler compiler, List<String> compilerOptions, Charset charset, int threads)
+    {
+        this.compiler = compiler;
+        this.compilerOptions = compilerOptions;
+        this.charset = charset;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param sources The sources to process
+     * @return true if processing succeeded for all sources
+     */
+    public boolean process(List<File> sources) throws IOException
+    {
+        final List<List<File>> shards = shard(sources, threads);
+        if (shards.size() <= 1)
+        {
+            return shards.isEmpty() || processShard(sources, diagnostics);
+        }
+
+        // Collected per shard and appended in shard order, so the output does not depend on which shard finishes first
+        final List<StringBuilder> shardDiagnostics = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++)
+        {
+            shardDiagnostics.add(new StringBuilder());
+        }
+
+        final ForkJoinPool pool = BuildReport.newWorkerPool(threads);
+        try
+        {
+            // Every shard is processed, so all diagnostics are reported
+            final boolean success = pool.submit(() -> IntStream.range(0, shards.size()).parallel().mapToObj(index ->
+            {
+                try
+                {
+                    return processShard(shards.get(index), shardDiagnostics.get(index));
+                }
+                catch (IOException exc)
+                {
+                    throw new UncheckedIOException(exc);
+                }
+            }).reduce(true, Boolean::logicalAnd)).get();
+            shardDiagnostics.forEach(diagnostics::append);
+            return success;
+        }
+        catch (InterruptedException exc)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while processing sources");
+        }
+        catch (ExecutionException exc)
+        {
+            if (exc.getCause() instanceof UncheckedIOException)
+            {
+                throw ((UncheckedIOException) exc.getCause()).getCause();
+            }
+            throw new IOException(exc.getCause().getMessage(), exc.getCause());
+        }
+        finally
+        {
+            BuildReport.shutdown(pool);
+        }
+    }
+
+    private boolean processShard(List<File> sources, StringBuilder diagnostics) throws IOException
+    {
+        try (final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+             final MetamodelFileManager metamodelFileManager = new MetamodelFileManager(fileManager, charset))
+        {
+            final DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+            final Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(sources);
+            final Boolean retVal = compiler.getTask(null, metamodelFileManager, collector, compilerOptions, null, compilationUnits).call();
+            for (Diagnostic<?> diagnostic : collector.getDiagnostics())
+            {
+                diagnostics.append("\n").append(diagnostic);
+            }
+            generated.putAll(metamodelFileManager.getGenerated());
+            written.addAll(metamodelFileManager.getWritten());
+            return retVal;
+        }
+    }
+
+    /**
+     * @return The fully qualified names of the generated classes, mapped to their source files
+     */
+    public Map<String, Path> getGenerated()
+    {
+        return new TreeMap<>(generated);
+    }
+
+    /**
+     * @return The generated source files that were written, as their content changed
+     */
+    public Set<Path> getWritten()
+    {
+        return new TreeSet<>(written);
+    }
+
+    public String getDiagnostics()
+    {
+        return diagnostics.toString();
+    }
+
+    /**
+     * Split the sources into at most <code>count</code> shards of about the same size, keeping type hierarchies together
+     */
+    static List<List<File>> shard(List<File> sources, int count) throws IOException
+    {
+        if (sources.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+        if (count <= 1)
+        {
+            return Collections.singletonList(sources);
+        }
+
+        final Map<String, List<Integer>> bySimpleName = new HashMap<>();
+        for (int i = 0; i < sources.size(); i++)
+        {
+            bySimpleName.computeIfAbsent(getSimpleName(sources.get(i).getName()), k -> new ArrayList<>()).add(i);
+        }
+
+        final String[] contents = new String[sources.size()];
+        final Set<String> embeddables = new HashSet<>();
+        for (int i = 0; i < sources.size(); i++)
+        {
+            contents[i] = new String(Files.readAllBytes(sources.get(i).toPath()), StandardCharsets.ISO_8859_1);
+            if (EMBEDDABLE.matcher(contents[i]).find())
+            {
+                embeddables.add(getSimpleName(sources.get(i).getName()));
+            }
+        }
+
+        // Union-find over the source indexes, joining each source with its super-types and the embeddables it uses
+        final int[] parent = new int[sources.size()];
+        for (int i = 0; i < parent.length; i++)
+        {
+            parent[i] = i;
+        }
+        for (int i = 0; i < sources.size(); i++)
+        {
+            final Matcher superTypes = EXTENDS.matcher(contents[i]);
+            while (superTypes.find())
+            {
+                join(parent, i, bySimpleName.get(getSimpleName(superTypes.group(1))));
+            }
+
+            final Matcher identifiers = IDENTIFIER.matcher(contents[i]);
+            while (identifiers.find())
+            {
+                if (embeddables.contains(identifiers.group()))
+                {
+                    join(parent, i, bySimpleName.get(identifiers.group()));
+                }
+            }
+        }
+
+        final Map<Integer, List<File>> families = new TreeMap<>();
+        for (int i = 0; i < sources.size(); i++)
+        {
+            families.computeIfAbsent(find(parent, i), k -> new ArrayList<>()).add(sources.get(i));
+        }
+
+        // Largest families first, each to the smallest shard, for a deterministic and even split
+        final List<List<File>> sorted = new ArrayList<>(families.values());
+        sorted.sort(Comparator.comparingInt((List<File> family) -> family.size()).reversed());
+        final List<List<File>> shards = new ArrayList<>();
+        for (int i = 0; i < Math.min(count, sorted.size()); i++)
+        {
+            shards.add(new ArrayList<>());
+        }
+        for (List<File> family : sorted)
+        {
+            shards.stream().min(Comparator.comparingInt(List::size)).get().addAll(family);
+        }
+        return shards;
+    }
+
+    private static void join(int[] parent, int index, List<Integer> others)
+    {
+        if (others != null)
+        {
+            for (int other : others)
+            {
+                parent[find(parent, index)] = find(parent, other);
+            }
+        }
+    }
+
+    private static int find(int[] parent, int index)
+    {
+        int root = index;
+        while (parent[root] != root)
+        {
+            root = parent[root];
+        }
+        parent[index] = root;
+        return root;
+    }
+
+    private static String getSimpleName(String name)
+    {
+        final String withoutExtension = name.endsWith(".java") ? name.substring(0, name.length() - ".java".length()) : name;
+        return withoutExtension.substring(withoutExtension.lastIndexOf('.') + 1);
+    }
+}
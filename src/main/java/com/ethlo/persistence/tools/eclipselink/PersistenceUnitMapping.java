@@ -0,0 +1,113 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Collection;
+
+/**
+ * Maps managed classes to a named persistence unit, by package or by an annotation present on the class. A mapping
+ * without packages and annotations receives all managed classes not matched by any other mapping.
+ *
+ * @author Morten Haraldsen
+ */
+public class PersistenceUnitMapping
+{
+    /**
+     * The name of the persistence unit
+     */
+    private String name;
+
+    /**
+     * The packages, including sub-packages, of the classes belonging to the persistence unit
+     */
+    private String[] basePackages;
+
+    /**
+     * Fully qualified names of annotations marking the classes belonging to the persistence unit
+     */
+    private String[] annotations;
+
+    public PersistenceUnitMapping()
+    {
+
+    }
+
+    public PersistenceUnitMapping(String name, String[] basePackages, String[] annotations)
+    {
+        this.name = name;
+        this.basePackages = basePackages;
+        this.annotations = annotations;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String[] getBasePackages()
+    {
+        return basePackages != null ? basePackages : new String[0];
+    }
+
+    public String[] getAnnotations()
+    {
+        return annotations != null ? annotations : new String[0];
+    }
+
+    /**
+     * @return true if the mapping receives the classes not matched by any other mapping
+     */
+    public boolean isDefault()
+    {
+        return getBasePackages().length == 0 && getAnnotations().length == 0;
+    }
+
+    /**
+     * @param className       The fully qualified class name
+     * @param annotationNames The names of the annotations present on the class
+     * @return true if the class is in one of the base packages or has one of the annotations
+     */
+    public boolean matches(String className, Collection<String> annotationNames)
+    {
+        for (String basePackage : getBasePackages())
+        {
+            if (className.startsWith(basePackage + "."))
+            {
+                return true;
+            }
+        }
+
+        for (String annotation : getAnnotations())
+        {
+            if (annotationNames.contains(annotation))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
@@ -0,0 +1,755 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A persistence.xml file, read in a single streaming pass. Classes and persistence units are added by inserting
+ * elements into the original text, so comments, formatting and everything else in the file are kept byte-for-byte.
+ * <p>
+ * New <code>&lt;class&gt;</code> elements are inserted after the last existing one in the persistence unit, or if there
+ * is none, before the elements that follow the classes in the schema, or at the end of the persistence unit, using the
+ * indentation of the surrounding elements. New persistence units are appended after the last one. Properties are
+ * replaced in place, or appended to the <code>&lt;properties&gt;</code> element, which is added at the end of the
+ * persistence unit if missing. Empty <code>&lt;persistence-unit/&gt;</code> and <code>&lt;properties/&gt;</code>
+ * elements are replaced by a start and an end tag when something is added to them.
+ *
+ * @author Morten Haraldsen
+ */
+public class PersistenceXmlDocument
+{
+    public static final String NAMESPACE = "https://jakarta.ee/xml/ns/persistence";
+
+    private static final XMLInputFactory INPUT_FACTORY;
+    private static final Set<String> ELEMENTS_AFTER_CLASSES = Set.of("exclude-unlisted-classes", "shared-cache-mode", "validation-mode", "properties");
+    private static final Pattern DECLARED_ENCODING = Pattern.compile("^<\\?xml[^>]*\\sencoding\\s*=\\s*[\"']([A-Za-z0-9._-]+)[\"']");
+    private static final String BOM = "\uFEFF";
+    private static final String DEFAULT_INDENT = "    ";
+    private static final Pattern ELEMENT_NAME = Pattern.compile("[^\\s/>]+");
+
+    static
+    {
+        INPUT_FACTORY = XMLInputFactory.newFactory();
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    }
+
+    private final Charset charset;
+    private final List<Unit> units = new ArrayList<>();
+    private String content;
+    private String elementPrefix = "";
+    private int unitsEndOffset = -1;
+    private String unitSeparator;
+    private String childSeparator;
+
+    private PersistenceXmlDocument(String content, Charset charset)
+    {
+        this.content = content;
+        this.charset = charset;
+        scan();
+    }
+
+    /**
+     * @param file The persistence.xml file
+     * @return The parsed document
+     */
+    public static PersistenceXmlDocument read(Path file)
+    {
+        try
+        {
+            return parse(Files.readAllBytes(file));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot read " + file, e);
+        }
+    }
+
+    public static PersistenceXmlDocument parse(byte[] bytes)
+    {
+        final Charset charset = getCharset(bytes);
+        return new PersistenceXmlDocument(new String(bytes, charset), charset);
+    }
+
+    /**
+     * @param name The name of the persistence unit
+     * @return A new document with one persistence unit using EclipseLink with static weaving, and no classes
+     */
+    public static PersistenceXmlDocument create(String name)
+    {
+        return new PersistenceXmlDocument("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<persistence xmlns=\"" + NAMESPACE + "\">\n"
+                + "    <persistence-unit name=\"" + escape(name) + "\">\n"
+                + "        <provider>" + org.eclipse.persistence.jpa.PersistenceProvider.class.getCanonicalName() + "</provider>\n"
+                + "        <properties>\n"
+                + "            <property name=\"eclipselink.weaving\" value=\"static\"/>\n"
+                + "        </properties>\n"
+                + "    </persistence-unit>\n"
+                + "</persistence>", StandardCharsets.UTF_8);
+    }
+
+    private static Charset getCharset(byte[] bytes)
+    {
+        final String head = new String(bytes, 0, Math.min(bytes.length, 200), StandardCharsets.ISO_8859_1);
+        final Matcher matcher = DECLARED_ENCODING.matcher(head.startsWith("\u00EF\u00BB\u00BF") ? head.substring(3) : head);
+        if (matcher.find())
+        {
+            try
+            {
+                return Charset.forName(matcher.group(1));
+            }
+            catch (IllegalArgumentException exc)
+            {
+                throw new IllegalArgumentException("Unsupported persistence.xml encoding " + matcher.group(1), exc);
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Single pass over the document, collecting the classes of each persistence unit and the positions to insert new
+     * classes and persistence units at.
+     * <p>
+     * The character offsets reported by the parser may point beyond the end of an event, so the position of each tag
+     * is found by following the element events through the text, skipping comments, processing instructions and CDATA.
+     */
+    private void scan()
+    {
+        units.clear();
+        unitsEndOffset = -1;
+        unitSeparator = null;
+        childSeparator = null;
+        final int start = content.startsWith(BOM) ? BOM.length() : 0;
+        try
+        {
+            final XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(content.substring(start)));
+            try
+            {
+                int cursor = start;
+                int tagStart;
+                int tagEnd;
+                int depth = 0;
+                Unit unit = null;
+                StringBuilder className = null;
+                boolean inProperties = false;
+                while (reader.hasNext())
+                {
+                    final int event = reader.next();
+                    switch (event)
+                    {
+                        case XMLStreamConstants.START_ELEMENT:
+                            depth++;
+                            tagStart = nextTag(cursor);
+                            tagEnd = tagEnd(tagStart);
+                            final boolean emptyElement = content.startsWith("/>", tagEnd - 2);
+                            // The end element event of an empty element refers to the same tag
+                            cursor = emptyElement ? tagStart : tagEnd;
+                            if (depth == 1)
+                            {
+                                elementPrefix = reader.getPrefix() != null && !reader.getPrefix().isEmpty() ? reader.getPrefix() + ":" : "";
+                            }
+                            else if (depth == 2 && "persistence-unit".equals(reader.getLocalName()))
+                            {
+                                unit = new Unit(reader.getAttributeValue(null, "name"), emptyElement, tagStart);
+                                units.add(unit);
+                                if (unitSeparator == null)
+                                {
+                                    unitSeparator = whitespaceBefore(tagStart);
+                                }
+                            }
+                            else if (depth == 3 && unit != null)
+                            {
+                                final boolean isClass = "class".equals(reader.getLocalName());
+                                className = isClass ? new StringBuilder() : null;
+                                final String whitespace = whitespaceBefore(tagStart);
+                                if (childSeparator == null)
+                                {
+                                    childSeparator = whitespace;
+                                }
+
+                                if (isClass)
+                                {
+                                    unit.separator = whitespace;
+                                    unit.classOffsets.add(tagStart);
+                                }
+                                else if (unit.insertOffset < 0 && ELEMENTS_AFTER_CLASSES.contains(reader.getLocalName()))
+                                {
+                                    // No classes before this element, insert the classes in front of it
+                                    unit.insertOffset = tagStart;
+                                    unit.separator = whitespace;
+                                    unit.separatorBefore = false;
+                                }
+
+                                if ("properties".equals(reader.getLocalName()))
+                                {
+                                    inProperties = !emptyElement;
+                                    unit.propertiesEmptyOffset = emptyElement ? tagStart : -1;
+                                }
+                            }
+                            else if (depth == 4 && inProperties && "property".equals(reader.getLocalName()))
+                            {
+                                final Property property = new Property(reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "value"), tagStart);
+                                unit.properties.add(property);
+                                if (unit.propertySeparator == null)
+                                {
+                                    unit.propertySeparator = whitespaceBefore(tagStart);
+                                }
+                            }
+                            break;
+
+                        case XMLStreamConstants.END_ELEMENT:
+                            tagStart = nextTag(cursor);
+                            tagEnd = tagEnd(tagStart);
+                            cursor = tagEnd;
+                            if (depth == 4 && inProperties && !unit.properties.isEmpty() && unit.properties.get(unit.properties.size() - 1).endOffset < 0)
+                            {
+                                unit.properties.get(unit.properties.size() - 1).endOffset = tagEnd;
+                            }
+                            else if (depth == 3 && inProperties)
+                            {
+                                inProperties = false;
+                                final String whitespace = whitespaceBefore(tagStart);
+                                unit.propertiesEndOffset = tagStart - whitespace.length();
+                                if (unit.propertySeparator == null)
+                                {
+                                    unit.propertySeparator = whitespace + DEFAULT_INDENT;
+                                }
+                            }
+                            else if (depth == 3 && className != null)
+                            {
+                                unit.classes.add(className.toString().trim());
+                                unit.classNames.add(className.toString().trim());
+                                className = null;
+                                unit.insertOffset = tagEnd;
+                                unit.separatorBefore = true;
+                            }
+                            else if (depth == 2 && unit != null)
+                            {
+                                unit.endSeparator = whitespaceBefore(tagStart);
+                                unit.endOffset = tagStart - unit.endSeparator.length();
+                                if (unit.insertOffset < 0 && !unit.empty)
+                                {
+                                    // No classes and no elements after them, append at the end of the unit
+                                    final String whitespace = whitespaceBefore(tagStart);
+                                    unit.insertOffset = tagStart - whitespace.length();
+                                    unit.separator = childSeparator != null ? childSeparator : whitespace + DEFAULT_INDENT;
+                                    unit.separatorBefore = true;
+                                }
+                                unit = null;
+                            }
+                            else if (depth == 1 && !content.startsWith("/>", tagEnd - 2))
+                            {
+                                unitsEndOffset = tagStart - whitespaceBefore(tagStart).length();
+                                if (unitSeparator == null)
+                                {
+                                    unitSeparator = whitespaceBefore(tagStart) + DEFAULT_INDENT;
+                                }
+                            }
+                            depth--;
+                            break;
+
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.CDATA:
+                            if (className != null)
+                            {
+                                className.append(reader.getText());
+                            }
+                            break;
+
+                        default:
+                            break;
+                    }
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch (XMLStreamException e)
+        {
+            throw new UncheckedIOException("Cannot parse persistence.xml", new IOException(e));
+        }
+    }
+
+    /**
+     * @return The offset of the next start or end tag at or after the given offset
+     */
+    private int nextTag(int offset)
+    {
+        int index = content.indexOf('<', offset);
+        while (index >= 0)
+        {
+            if (content.startsWith("<!--", index))
+            {
+                index = content.indexOf('<', content.indexOf("-->", index) + 3);
+            }
+            else if (content.startsWith("<![CDATA[", index))
+            {
+                index = content.indexOf('<', content.indexOf("]]>", index) + 3);
+            }
+            else if (content.startsWith("<?", index))
+            {
+                index = content.indexOf('<', content.indexOf("?>", index) + 2);
+            }
+            else if (content.startsWith("<!", index))
+            {
+                index = content.indexOf('<', content.indexOf('>', index) + 1);
+            }
+            else
+            {
+                return index;
+            }
+        }
+        throw new IllegalArgumentException("Unexpected end of persistence.xml");
+    }
+
+    /**
+     * @return The offset just after the tag at the given offset, allowing for '&gt;' in attribute values
+     */
+    private int tagEnd(int offset)
+    {
+        char quote = 0;
+        for (int index = offset; index < content.length(); index++)
+        {
+            final char c = content.charAt(index);
+            if (quote != 0)
+            {
+                quote = c == quote ? 0 : quote;
+            }
+            else if (c == '"' || c == '\'')
+            {
+                quote = c;
+            }
+            else if (c == '>')
+            {
+                return index + 1;
+            }
+        }
+        throw new IllegalArgumentException("Unexpected end of persistence.xml");
+    }
+
+    private String whitespaceBefore(int offset)
+    {
+        int index = offset;
+        while (index > 0 && Character.isWhitespace(content.charAt(index - 1)))
+        {
+            index--;
+        }
+        return content.substring(index, offset);
+    }
+
+    /**
+     * @return The classes listed in all persistence units, in document order
+     */
+    public Set<String> getClasses()
+    {
+        final Set<String> result = new LinkedHashSet<>();
+        for (Unit unit : units)
+        {
+            result.addAll(unit.classes);
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * @param unitName The name of the persistence unit
+     * @return The classes listed in the persistence unit, in document order
+     */
+    public Set<String> getClasses(String unitName)
+    {
+        return Collections.unmodifiableSet(getUnit(unitName).classes);
+    }
+
+    /**
+     * @return The names of the persistence units, in document order
+     */
+    public List<String> getUnitNames()
+    {
+        final List<String> result = new ArrayList<>();
+        for (Unit unit : units)
+        {
+            result.add(unit.name);
+        }
+        return result;
+    }
+
+    public boolean hasUnit(String unitName)
+    {
+        return findUnit(unitName) != null;
+    }
+
+    /**
+     * Add classes to the first persistence unit, skipping classes already listed in any persistence unit
+     *
+     * @param classNames The classes to add, in the order to add them
+     * @return true if the document changed
+     */
+    public boolean addClasses(Collection<String> classNames)
+    {
+        if (units.isEmpty())
+        {
+            throw new IllegalArgumentException("No persistence unit found in persistence.xml");
+        }
+
+        final Set<String> existing = getClasses();
+        final List<String> missing = new ArrayList<>();
+        for (String className : classNames)
+        {
+            if (!existing.contains(className))
+            {
+                missing.add(className);
+            }
+        }
+        return addClasses(units.get(0), missing);
+    }
+
+    /**
+     * Add classes to a persistence unit, skipping classes already listed in it
+     *
+     * @param unitName   The name of the persistence unit
+     * @param classNames The classes to add, in the order to add them
+     * @return true if the document changed
+     */
+    public boolean addClasses(String unitName, Collection<String> classNames)
+    {
+        return addClasses(getUnit(unitName), classNames);
+    }
+
+    /**
+     * Add classes to a persistence unit, skipping classes already listed in it. Each class is inserted before the first
+     * listed class with a greater name, so the result does not depend on which classes were listed before, as long as
+     * the listed classes are sorted.
+     *
+     * @param unitName   The name of the persistence unit
+     * @param classNames The classes to add
+     * @return true if the document changed
+     */
+    public boolean addClassesSorted(String unitName, Collection<String> classNames)
+    {
+        final Unit unit = getUnit(unitName);
+        if (unit.classNames.isEmpty())
+        {
+            return addClasses(unit, new TreeSet<>(classNames));
+        }
+
+        // Offsets refer to the current content, so the insertions are applied from the end
+        final TreeMap<Integer, StringBuilder> insertions = new TreeMap<>();
+        for (String className : new TreeSet<>(classNames))
+        {
+            if (unit.classes.contains(className))
+            {
+                continue;
+            }
+
+            final String element = "<" + elementPrefix + "class>" + escape(className) + "</" + elementPrefix + "class>";
+            final int index = firstGreater(unit.classNames, className);
+            if (index < 0)
+            {
+                insertions.computeIfAbsent(unit.insertOffset, k -> new StringBuilder()).append(unit.separator).append(element);
+            }
+            else
+            {
+                final int offset = unit.classOffsets.get(index);
+                insertions.computeIfAbsent(offset, k -> new StringBuilder()).append(element).append(whitespaceBefore(offset));
+            }
+        }
+
+        if (insertions.isEmpty())
+        {
+            return false;
+        }
+
+        final StringBuilder result = new StringBuilder(content);
+        for (Map.Entry<Integer, StringBuilder> e : insertions.descendingMap().entrySet())
+        {
+            result.insert(e.getKey().intValue(), e.getValue());
+        }
+        content = result.toString();
+        scan();
+        return true;
+    }
+
+    private static int firstGreater(List<String> names, String name)
+    {
+        for (int i = 0; i < names.size(); i++)
+        {
+            if (names.get(i).compareTo(name) > 0)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Append a new persistence unit using EclipseLink with static weaving, like the one of {@link #create(String)}
+     *
+     * @param unitName The name of the persistence unit
+     */
+    public void addUnit(String unitName)
+    {
+        if (hasUnit(unitName))
+        {
+            throw new IllegalArgumentException("Persistence unit " + unitName + " already exists");
+        }
+
+        if (unitsEndOffset < 0)
+        {
+            throw new IllegalArgumentException("Cannot add persistence unit " + unitName + " to an empty <persistence/> element");
+        }
+
+        final String childSep = childSeparator != null ? childSeparator : unitSeparator + DEFAULT_INDENT;
+        final String indent = childSep.startsWith(unitSeparator) && childSep.length() > unitSeparator.length() ? childSep.substring(unitSeparator.length()) : DEFAULT_INDENT;
+        final String unit = unitSeparator + "<" + elementPrefix + "persistence-unit name=\"" + escape(unitName) + "\">"
+                + childSep + "<" + elementPrefix + "provider>" + org.eclipse.persistence.jpa.PersistenceProvider.class.getCanonicalName() + "</" + elementPrefix + "provider>"
+                + childSep + "<" + elementPrefix + "properties>"
+                + childSep + indent + "<" + elementPrefix + "property name=\"eclipselink.weaving\" value=\"static\"/>"
+                + childSep + "</" + elementPrefix + "properties>"
+                + unitSeparator + "</" + elementPrefix + "persistence-unit>";
+        content = content.substring(0, unitsEndOffset) + unit + content.substring(unitsEndOffset);
+        scan();
+    }
+
+    /**
+     * @param unitName The name of the persistence unit
+     * @return The properties of the persistence unit, in document order
+     */
+    public Map<String, String> getProperties(String unitName)
+    {
+        final Map<String, String> result = new LinkedHashMap<>();
+        for (Property property : getUnit(unitName).properties)
+        {
+            if (property.name != null)
+            {
+                result.put(property.name, property.value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Set a property of a persistence unit, replacing the existing property element with the same name
+     *
+     * @return true if the document changed
+     */
+    public boolean setProperty(String unitName, String name, String value)
+    {
+        final Unit unit = getUnit(unitName);
+        final String element = "<" + elementPrefix + "property name=\"" + escape(name) + "\" value=\"" + escape(value) + "\"/>";
+        for (Property property : unit.properties)
+        {
+            if (name.equals(property.name))
+            {
+                if (value.equals(property.value))
+                {
+                    return false;
+                }
+                content = content.substring(0, property.startOffset) + element + content.substring(property.endOffset);
+                scan();
+                return true;
+            }
+        }
+
+        if (unit.empty || unit.propertiesEmptyOffset >= 0)
+        {
+            expandEmptyElement(unit.empty ? unit.startOffset : unit.propertiesEmptyOffset);
+            return setProperty(unitName, name, value);
+        }
+
+        if (unit.propertiesEndOffset >= 0)
+        {
+            content = content.substring(0, unit.propertiesEndOffset) + unit.propertySeparator + element + content.substring(unit.propertiesEndOffset);
+        }
+        else
+        {
+            // The properties are the last element of a persistence unit
+            final String childSep = childSeparator != null ? childSeparator : unit.endSeparator + DEFAULT_INDENT;
+            final String indent = childSep.startsWith(unit.endSeparator) && childSep.length() > unit.endSeparator.length() ? childSep.substring(unit.endSeparator.length()) : DEFAULT_INDENT;
+            final String properties = childSep + "<" + elementPrefix + "properties>"
+                    + childSep + indent + element
+                    + childSep + "</" + elementPrefix + "properties>";
+            content = content.substring(0, unit.endOffset) + properties + content.substring(unit.endOffset);
+        }
+        scan();
+        return true;
+    }
+
+    private boolean addClasses(Unit unit, Collection<String> classNames)
+    {
+        if (unit.empty)
+        {
+            if (!classNames.iterator().hasNext())
+            {
+                return false;
+            }
+            expandEmptyElement(unit.startOffset);
+            return addClasses(getUnit(unit.name), classNames);
+        }
+
+        final StringBuilder inserted = new StringBuilder();
+        for (String className : classNames)
+        {
+            if (unit.classes.add(className))
+            {
+                final String element = "<" + elementPrefix + "class>" + escape(className) + "</" + elementPrefix + "class>";
+                inserted.append(unit.separatorBefore ? unit.separator + element : element + unit.separator);
+            }
+        }
+
+        if (inserted.length() == 0)
+        {
+            return false;
+        }
+
+        content = content.substring(0, unit.insertOffset) + inserted + content.substring(unit.insertOffset);
+
+        // Read the offsets of all units again, one pass is cheap compared to tracking every shifted position
+        scan();
+        return true;
+    }
+
+    /**
+     * Replace the empty element at the offset by a start and an end tag, with the whitespace in front of the element in
+     * between, so the end tag lines up with the start tag
+     */
+    private void expandEmptyElement(int tagStart)
+    {
+        final int tagEnd = tagEnd(tagStart);
+        final Matcher name = ELEMENT_NAME.matcher(content).region(tagStart + 1, tagEnd);
+        if (!name.lookingAt())
+        {
+            throw new IllegalArgumentException("No element at offset " + tagStart + " of persistence.xml");
+        }
+
+        int closeOffset = tagEnd - 2;
+        while (Character.isWhitespace(content.charAt(closeOffset - 1)))
+        {
+            closeOffset--;
+        }
+        content = content.substring(0, closeOffset) + ">" + whitespaceBefore(tagStart) + "</" + name.group() + ">" + content.substring(tagEnd);
+        scan();
+    }
+
+    private Unit getUnit(String unitName)
+    {
+        final Unit unit = findUnit(unitName);
+        if (unit == null)
+        {
+            throw new IllegalArgumentException("No persistence unit named " + unitName + " in persistence.xml");
+        }
+        return unit;
+    }
+
+    private Unit findUnit(String unitName)
+    {
+        for (Unit unit : units)
+        {
+            if (unitName.equals(unit.name))
+            {
+                return unit;
+            }
+        }
+        return null;
+    }
+
+    public byte[] toBytes()
+    {
+        return content.getBytes(charset);
+    }
+
+    @Override
+    public String toString()
+    {
+        return content;
+    }
+
+    private static String escape(String value)
+    {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static class Unit
+    {
+        private final String name;
+        private final boolean empty;
+        private final int startOffset;
+        private final Set<String> classes = new LinkedHashSet<>();
+        private final List<String> classNames = new ArrayList<>();
+        private final List<Integer> classOffsets = new ArrayList<>();
+        private final List<Property> properties = new ArrayList<>();
+        private int insertOffset = -1;
+        private String separator;
+        private boolean separatorBefore;
+        private int propertiesEmptyOffset = -1;
+        private int propertiesEndOffset = -1;
+        private String propertySeparator;
+        private int endOffset = -1;
+        private String endSeparator;
+
+        private Unit(String name, boolean empty, int startOffset)
+        {
+            this.name = name;
+            this.empty = empty;
+            this.startOffset = startOffset;
+        }
+    }
+
+    private static class Property
+    {
+        private final String name;
+        private final String value;
+        private final int startOffset;
+        private int endOffset = -1;
+
+        private Property(String name, String value, int startOffset)
+        {
+            this.name = name;
+            this.value = value;
+            this.startOffset = startOffset;
+        }
+    }
+}
@@ -22,109 +22,70 @@ package com.ethlo.persistence.tools.eclipselink;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collection;
 import java.util.Set;
-import java.util.stream.Collectors;
-
-import jakarta.xml.bind.JAXBContext;
-import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.Unmarshaller;
-
-import ee.jakarta.persistence.ObjectFactory;
-import ee.jakarta.persistence.Persistence;
 
 /**
  * @author Morten Haraldsen
  */
 public class PersistenceXmlHelper
 {
-    final static JAXBContext jc;
-    private static final ObjectFactory factory = new ObjectFactory();
-
-    static
-    {
-        try
-        {
-            jc = JAXBContext.newInstance(Persistence.class);
-        }
-        catch (JAXBException e)
-        {
-            throw new UncheckedIOException(new IOException(e));
-        }
-    }
-
-    public static Persistence createXml(String name)
+    public static PersistenceXmlDocument createXml(String name)
     {
-        final Persistence persistence = factory.createPersistence();
-        final Persistence.PersistenceUnit pu = factory.createPersistencePersistenceUnit();
-        persistence.getPersistenceUnit().add(pu);
-        pu.setName(name);
-        pu.setProvider(org.eclipse.persistence.jpa.PersistenceProvider.class.getCanonicalName());
-        final Persistence.PersistenceUnit.Properties props = factory.createPersistencePersistenceUnitProperties();
-        final Persistence.PersistenceUnit.Properties.Property prop = factory.createPersistencePersistenceUnitPropertiesProperty();
-        prop.setName("eclipselink.weaving");
-        prop.setValue("static");
-        props.getProperty().add(prop);
-        pu.setProperties(props);
-        return persistence;
+        return PersistenceXmlDocument.create(name);
     }
 
-    public static void appendClasses(Persistence doc, Set<String> entityClasses)
+    public static void appendClasses(PersistenceXmlDocument doc, Set<String> entityClasses)
     {
-        doc.getPersistenceUnit().get(0).getClazz().addAll(entityClasses);
+        doc.addClasses(entityClasses);
     }
 
-    public static Persistence parseXml(Path targetFile)
+    /**
+     * @param sorted Insert the classes in sorted position, see {@link PersistenceXmlDocument#addClassesSorted(String, java.util.Collection)}
+     */
+    public static void appendClasses(PersistenceXmlDocument doc, Set<String> entityClasses, boolean sorted)
     {
-        try
+        if (sorted && !doc.getUnitNames().isEmpty())
         {
-            final Unmarshaller unmarshaller = jc.createUnmarshaller();
-            return (Persistence) unmarshaller.unmarshal(targetFile.toFile());
+            doc.addClassesSorted(doc.getUnitNames().get(0), entityClasses);
         }
-        catch (JAXBException e)
+        else
         {
-            throw new UncheckedIOException("Cannot parse " + targetFile, new IOException(e));
+            doc.addClasses(entityClasses);
         }
     }
 
-    public static Set<String> getClassesAlreadyDefined(Persistence doc)
-    {
-
-        return doc.getPersistenceUnit().stream()
-                .map(Persistence.PersistenceUnit::getClazz)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toSet());
-
-    }
-
-    public static void outputXml(Persistence doc, Path targetFile)
+    public static PersistenceXmlDocument parseXml(Path targetFile)
     {
         try
         {
-            Files.createDirectories(targetFile.getParent());
+            return PersistenceXmlDocument.read(targetFile);
         }
-        catch (IOException e)
+        catch (IllegalArgumentException e)
         {
-            throw new UncheckedIOException(e);
+            throw new UncheckedIOException("Cannot parse " + targetFile, new IOException(e.getMessage(), e));
         }
+    }
 
-        prettyPrint(doc, targetFile);
+    public static Set<String> getClassesAlreadyDefined(PersistenceXmlDocument doc)
+    {
+        return doc.getClasses();
     }
 
-    public static void prettyPrint(Persistence document, Path file)
+    /**
+     * Write the document to the target file, unless the file already has the exact same content
+     *
+     * @return true if the file was written, false if it was left untouched
+     */
+    public static boolean outputXml(PersistenceXmlDocument doc, Path targetFile)
     {
         try
         {
-            final Marshaller marshaller = jc.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            marshaller.marshal(document, file.toFile());
+            return Utils.writeIfChanged(targetFile, doc.toBytes());
         }
-        catch (JAXBException e)
+        catch (IOException e)
         {
-            throw new UncheckedIOException("Cannot write " + file, new IOException(e));
+            throw new UncheckedIOException("Cannot write " + targetFile, e);
         }
     }
-}
\ No newline at end of file
+}
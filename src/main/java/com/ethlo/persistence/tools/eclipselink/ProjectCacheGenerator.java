@@ -0,0 +1,127 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.jpa.PersistenceProvider;
+import org.springframework.orm.jpa.persistenceunit.SmartPersistenceUnitInfo;
+
+/**
+ * Builds the EclipseLink project of a persistence unit and serializes it, so it can be loaded with
+ * <code>eclipselink.project-cache=java-serialization</code> instead of processing the metadata at startup.
+ * <p>
+ * The persistence unit is set up like in {@link SchemaGenerator}. EclipseLink stores the project cache when the
+ * session is deployed, right before it logs in to the database. The connection is replaced by one that cannot be
+ * opened, so the deployment stops after the project is stored, without connecting to a database.
+ *
+ * @author Morten Haraldsen
+ */
+public class ProjectCacheGenerator
+{
+    public static final String DEFAULT_LOCATION = "META-INF/eclipselink-project.ser";
+    public static final String JAVA_SERIALIZATION = "java-serialization";
+    private static final String NO_DATABASE_URL = "jdbc:eclipselink-project-cache:none";
+
+    private final Log log;
+
+    public ProjectCacheGenerator(Log log)
+    {
+        this.log = log;
+    }
+
+    /**
+     * @param properties The properties of the persistence unit, like the weaving and target database settings, as
+     *                   the project depends on them
+     * @param file       The file to write the serialized project to
+     * @return true if the file was written, false if it already had the same content
+     */
+    public boolean generate(ClassLoader classLoader, Collection<String> managedClassNames, Map<String, String> properties, Path file) throws IOException
+    {
+        final Path tmp = Utils.getTempFile(file);
+        final Thread thread = Thread.currentThread();
+        final ClassLoader currentClassLoader = thread.getContextClassLoader();
+        EntityManagerFactory emf = null;
+        try
+        {
+            thread.setContextClassLoader(classLoader);
+            final SmartPersistenceUnitInfo puInfo = SchemaGenerator.obtainPersistenceUnitInfo(SchemaGenerator.forManagedClasses(managedClassNames));
+            log.info("Managed classes: " + puInfo.getManagedClassNames().size());
+
+            final Map<String, Object> cfg = new TreeMap<>(properties);
+            cfg.put(PersistenceUnitProperties.PROJECT_CACHE, JAVA_SERIALIZATION);
+            cfg.put(PersistenceUnitProperties.PROJECT_CACHE_FILE, tmp.toString());
+            // Only the metadata is processed, nothing is deployed to a database
+            cfg.remove(PersistenceUnitProperties.JTA_DATASOURCE);
+            cfg.remove(PersistenceUnitProperties.NON_JTA_DATASOURCE);
+            cfg.remove(PersistenceUnitProperties.JDBC_DRIVER);
+            cfg.put(PersistenceUnitProperties.JDBC_URL, NO_DATABASE_URL);
+            cfg.put(PersistenceUnitProperties.SCHEMA_GENERATION_DATABASE_ACTION, PersistenceUnitProperties.SCHEMA_GENERATION_NONE_ACTION);
+            cfg.put(PersistenceUnitProperties.DDL_GENERATION, PersistenceUnitProperties.NONE);
+            cfg.put(PersistenceUnitProperties.DEPLOY_ON_STARTUP, "false");
+            puInfo.getProperties().putAll(cfg);
+
+            // Unique root URL, so concurrent executions in parallel builds do not share an EclipseLink session
+            emf = new PersistenceProvider().createContainerEntityManagerFactory(new DelegatingPuInfo(puInfo, "http://foo.bar/" + UUID.randomUUID()), cfg);
+            log.info("Deploying without a database, the failed login logged by EclipseLink is expected");
+            try
+            {
+                emf.createEntityManager().close();
+            }
+            catch (PersistenceException exc)
+            {
+                // Expected, the login fails after the project is stored
+                log.debug("Deployment stopped at login: " + exc.getMessage());
+            }
+            if (!Files.exists(tmp) || Files.size(tmp) == 0)
+            {
+                throw new IOException("EclipseLink did not write the project cache, see the EclipseLink log for the cause");
+            }
+            if (Files.exists(file) && Arrays.equals(Files.readAllBytes(file), Files.readAllBytes(tmp)))
+            {
+                return false;
+            }
+            Utils.moveIntoPlace(tmp, file);
+            return true;
+        }
+        finally
+        {
+            if (emf != null)
+            {
+                emf.close();
+            }
+            thread.setContextClassLoader(currentClassLoader);
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * The class-path entries that are scanned for entity classes
+ *
+ * @author Morten Haraldsen
+ */
+public enum ScanScope
+{
+    /**
+     * Only the classes directory being woven
+     */
+    OUTPUT_DIRECTORY,
+
+    /**
+     * The classes directory being woven and the output of other modules in the reactor
+     */
+    REACTOR,
+
+    /**
+     * The full class-path, including all dependency jars
+     */
+    CLASSPATH
+}
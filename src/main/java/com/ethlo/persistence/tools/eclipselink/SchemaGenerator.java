@@ -0,0 +1,261 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.jpa.PersistenceProvider;
+import org.springframework.orm.jpa.persistenceunit.DefaultPersistenceUnitManager;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import org.springframework.orm.jpa.persistenceunit.SmartPersistenceUnitInfo;
+import org.springframework.util.StringUtils;
+
+/**
+ * Generates DDL scripts from the entity metadata, without connecting to a database
+ *
+ * @author Morten Haraldsen
+ */
+public class SchemaGenerator
+{
+    private final String databaseProductName;
+    private final String databaseMajorVersion;
+    private final String databaseMinorVersion;
+    private final String ddlTargetFile;
+    private final String ddlDropTargetFile;
+    private final String action;
+    private final Log log;
+    private final Instant outputTimestamp;
+
+    public SchemaGenerator(String databaseProductName, String databaseMajorVersion, String databaseMinorVersion, String ddlTargetFile, String ddlDropTargetFile, String action, Log log)
+    {
+        this(databaseProductName, databaseMajorVersion, databaseMinorVersion, ddlTargetFile, ddlDropTargetFile, action, log, null);
+    }
+
+    /**
+     * @param outputTimestamp If not null, the statements of each kind in the generated scripts are sorted and the
+     *                        scripts get this modification time
+     */
+    public SchemaGenerator(String databaseProductName, String databaseMajorVersion, String databaseMinorVersion, String ddlTargetFile, String ddlDropTargetFile, String action, Log log, Instant outputTimestamp)
+    {
+        this.databaseProductName = databaseProductName;
+        this.databaseMajorVersion = databaseMajorVersion;
+        this.databaseMinorVersion = databaseMinorVersion;
+        this.ddlTargetFile = ddlTargetFile;
+        this.ddlDropTargetFile = ddlDropTargetFile;
+        this.action = action;
+        this.log = log;
+        this.outputTimestamp = outputTimestamp;
+    }
+
+    /**
+     * Scan the base packages for entities and generate the schema for them
+     *
+     * @return The number of managed classes
+     */
+    public int generateSchema(ClassLoader classLoader, String[] basePackages)
+    {
+        log.info("Using base packages " + StringUtils.arrayToDelimitedString(basePackages, ", "));
+        final DefaultPersistenceUnitManager manager = new DefaultPersistenceUnitManager();
+        manager.setPackagesToScan(basePackages);
+        return generateSchema(classLoader, manager);
+    }
+
+    /**
+     * Generate the schema for already known managed classes, without scanning for them
+     *
+     * @return The number of managed classes
+     */
+    public int generateSchema(ClassLoader classLoader, Collection<String> managedClassNames)
+    {
+        return generateSchema(classLoader, forManagedClasses(managedClassNames));
+    }
+
+    static DefaultPersistenceUnitManager forManagedClasses(Collection<String> managedClassNames)
+    {
+        final DefaultPersistenceUnitManager manager = new DefaultPersistenceUnitManager();
+        manager.setManagedTypes(PersistenceManagedTypes.of(new ArrayList<>(managedClassNames), Collections.emptyList()));
+        return manager;
+    }
+
+    /**
+     * Set up the default persistence unit of the manager, with the managed classes of the manager and no persistence.xml.
+     * Shared with {@link ProjectCacheGenerator}, so both see the same metadata.
+     */
+    static SmartPersistenceUnitInfo obtainPersistenceUnitInfo(DefaultPersistenceUnitManager manager)
+    {
+        manager.setDefaultPersistenceUnitRootLocation(null);
+        manager.setDefaultPersistenceUnitName("default");
+        final String[] zeroPULocations = new String[]{};
+        manager.setPersistenceXmlLocations(zeroPULocations);
+        manager.afterPropertiesSet();
+
+        final SmartPersistenceUnitInfo puInfo = (SmartPersistenceUnitInfo) manager.obtainDefaultPersistenceUnitInfo();
+        puInfo.setPersistenceProviderPackageName(PersistenceProvider.class.getName());
+        return puInfo;
+    }
+
+    private int generateSchema(ClassLoader classLoader, DefaultPersistenceUnitManager manager)
+    {
+        final Thread thread = Thread.currentThread();
+        final ClassLoader currentClassLoader = thread.getContextClassLoader();
+        try
+        {
+            thread.setContextClassLoader(classLoader);
+            final Map<String, Object> cfg = buildCfg();
+            final PersistenceProvider provider = new PersistenceProvider();
+            final SmartPersistenceUnitInfo puInfo = obtainPersistenceUnitInfo(manager);
+            log.info("Entities found : " + puInfo.getManagedClassNames().size());
+            log.debug("Managed class names:\n    * " + StringUtils.collectionToDelimitedString(puInfo.getManagedClassNames(), "\n    * "));
+            puInfo.getProperties().putAll(cfg);
+            // Unique root URL, so concurrent executions in parallel builds do not share an EclipseLink session
+            provider.generateSchema(new DelegatingPuInfo(puInfo, "http://foo.bar/" + UUID.randomUUID()), cfg);
+            if (outputTimestamp != null)
+            {
+                normalizeScript(toPath(ddlTargetFile));
+                normalizeScript(toPath(ddlDropTargetFile));
+            }
+            return puInfo.getManagedClassNames().size();
+        }
+        finally
+        {
+            thread.setContextClassLoader(currentClassLoader);
+        }
+    }
+
+    private void normalizeScript(Path script)
+    {
+        if (!Files.exists(script))
+        {
+            return;
+        }
+
+        try
+        {
+            // ISO-8859-1 maps every byte to one character, so the content is kept as-is
+            final String content = Files.readString(script, StandardCharsets.ISO_8859_1);
+            Utils.writeIfChanged(script, normalizeScript(content).getBytes(StandardCharsets.ISO_8859_1));
+            Utils.setLastModified(script, outputTimestamp);
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException("Cannot normalize " + script, exc);
+        }
+    }
+
+    /**
+     * Sort each run of consecutive statements of the same kind, like <code>CREATE TABLE</code> or
+     * <code>ALTER TABLE</code>. EclipseLink writes all statements of a kind together, in an order that may depend on
+     * the order the classes were found in, and statements of the same kind do not depend on each other. The line
+     * separator of the script is kept.
+     */
+    static String normalizeScript(String content)
+    {
+        final String separator = content.contains("\r\n") ? "\r\n" : "\n";
+        final List<String> lines = new ArrayList<>(Arrays.asList(content.split("\\r?\\n", -1)));
+        // The empty string after the last separator
+        final boolean endsWithSeparator = lines.size() > 1 && lines.get(lines.size() - 1).isEmpty();
+        if (endsWithSeparator)
+        {
+            lines.remove(lines.size() - 1);
+        }
+
+        int runStart = 0;
+        for (int i = 1; i <= lines.size(); i++)
+        {
+            if (i == lines.size() || !statementKind(lines.get(i)).equals(statementKind(lines.get(runStart))))
+            {
+                Collections.sort(lines.subList(runStart, i));
+                runStart = i;
+            }
+        }
+
+        final String result = String.join(separator, lines);
+        return endsWithSeparator ? result + separator : result;
+    }
+
+    private static String statementKind(String statement)
+    {
+        final String[] words = statement.trim().split("\\s+", 3);
+        return words.length > 1 ? (words[0] + " " + words[1]).toUpperCase() : statement.trim().toUpperCase();
+    }
+
+    private static Path toPath(String location)
+    {
+        if (location.startsWith("file:"))
+        {
+            try
+            {
+                return Paths.get(URI.create(location));
+            }
+            catch (IllegalArgumentException exc)
+            {
+                return Paths.get(location.substring("file:".length()).replaceFirst("^//", ""));
+            }
+        }
+        return Paths.get(location);
+    }
+
+    private Map<String, Object> buildCfg()
+    {
+        final Map<String, Object> cfg = new TreeMap<>();
+
+        // No action towards the database
+        cfg.put(PersistenceUnitProperties.SCHEMA_GENERATION_DATABASE_ACTION, PersistenceUnitProperties.SCHEMA_GENERATION_NONE_ACTION);
+
+        // Create scripts
+        cfg.put(PersistenceUnitProperties.SCHEMA_GENERATION_SCRIPTS_ACTION, action);
+        cfg.put(PersistenceUnitProperties.SCHEMA_GENERATION_CREATE_SOURCE, PersistenceUnitProperties.SCHEMA_GENERATION_METADATA_SOURCE);
+        cfg.put(PersistenceUnitProperties.SCHEMA_GENERATION_DROP_SOURCE, PersistenceUnitProperties.SCHEMA_GENERATION_METADATA_SOURCE);
+        cfg.put(PersistenceUnitProperties.SCHEMA_GENERATION_SCRIPTS_CREATE_TARGET, ddlTargetFile);
+        cfg.put(PersistenceUnitProperties.SCHEMA_GENERATION_SCRIPTS_DROP_TARGET, ddlDropTargetFile);
+        cfg.put(PersistenceUnitProperties.SCHEMA_DATABASE_PRODUCT_NAME, databaseProductName);
+        cfg.put(PersistenceUnitProperties.WEAVING, "false");
+
+        if (databaseMajorVersion != null)
+        {
+            cfg.put(PersistenceUnitProperties.SCHEMA_DATABASE_MAJOR_VERSION, databaseMajorVersion);
+        }
+
+        if (databaseMinorVersion != null)
+        {
+            cfg.put(PersistenceUnitProperties.SCHEMA_DATABASE_MINOR_VERSION, databaseMinorVersion);
+        }
+
+        return cfg;
+    }
+}
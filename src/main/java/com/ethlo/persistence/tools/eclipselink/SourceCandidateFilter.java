@@ -0,0 +1,118 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Entity;
+import jakarta.persistence.MappedSuperclass;
+
+/**
+ * Fast pre-filter for the meta-model generation. A source file can only declare a type the meta-model is generated
+ * for if it refers to the <code>jakarta.persistence</code> package and names one of the annotations
+ * <code>Entity</code>, <code>Embeddable</code> or <code>MappedSuperclass</code>, so the raw source bytes are searched
+ * for these tokens without parsing the source. Comments are not skipped, so the result is a superset of the sources
+ * declaring managed types.
+ *
+ * @author Morten Haraldsen
+ */
+public class SourceCandidateFilter
+{
+    private static final byte[] PACKAGE = "jakarta.persistence".getBytes(StandardCharsets.US_ASCII);
+    private static final List<byte[]> ANNOTATIONS = List.of(
+            Entity.class.getSimpleName().getBytes(StandardCharsets.US_ASCII),
+            Embeddable.class.getSimpleName().getBytes(StandardCharsets.US_ASCII),
+            MappedSuperclass.class.getSimpleName().getBytes(StandardCharsets.US_ASCII));
+
+    private SourceCandidateFilter()
+    {
+
+    }
+
+    /**
+     * @param file The source file
+     * @return true if the source may declare an entity, embeddable or mapped superclass
+     */
+    public static boolean isCandidate(Path file) throws IOException
+    {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            return isCandidate(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    static boolean isCandidate(ByteBuffer buf)
+    {
+        if (indexOf(buf, PACKAGE, 0) < 0)
+        {
+            return false;
+        }
+
+        for (byte[] annotation : ANNOTATIONS)
+        {
+            int index = indexOf(buf, annotation, 1);
+            while (index >= 0)
+            {
+                // Either @Entity or the qualified @jakarta.persistence.Entity, but not @EntityListeners
+                final byte before = buf.get(index - 1);
+                final int end = index + annotation.length;
+                if ((before == '@' || before == '.') && (end == buf.limit() || !Character.isJavaIdentifierPart(buf.get(end))))
+                {
+                    return true;
+                }
+                index = indexOf(buf, annotation, index + 1);
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(ByteBuffer buf, byte[] value, int from)
+    {
+        final int limit = buf.limit() - value.length;
+        for (int i = from; i <= limit; i++)
+        {
+            if (matches(buf, i, value))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(ByteBuffer buf, int offset, byte[] value)
+    {
+        for (int i = 0; i < value.length; i++)
+        {
+            if (buf.get(offset + i) != value[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
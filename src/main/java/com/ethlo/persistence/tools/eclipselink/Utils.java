@@ -21,14 +21,51 @@ package com.ethlo.persistence.tools.eclipselink;
  */
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.project.MavenProject;
 
 public class Utils
 {
+    /**
+     * EclipseLink logs through a JVM wide session log, so all executions, also in parallel builds, share one
+     * auto-flushing writer instead of replacing each other's writers
+     */
+    public static final PrintWriter ECLIPSELINK_LOG_WRITER = new PrintWriter(System.out, true);
+
+    /**
+     * Content hashes of jar files by path, size and modification time, as the same dependencies are hashed for every
+     * module of a build
+     */
+    private static final Map<String, String> JAR_HASHES = new ConcurrentHashMap<>();
+
     private Utils()
     {
 
@@ -60,4 +97,221 @@ public class Utils
         }
         return files.toArray(new File[0]);
     }
+
+    /**
+     * @return A class loader for the compile class-path of the project, with the context class loader as parent
+     */
+    public static URLClassLoader getCompileClassLoader(MavenProject project) throws DependencyResolutionRequiredException
+    {
+        final List<File> files = new ArrayList<>();
+        for (String element : project.getCompileClasspathElements())
+        {
+            files.add(new File(element));
+        }
+        return new URLClassLoader(toUrls(files.toArray(new File[0])), Thread.currentThread().getContextClassLoader());
+    }
+
+    public static URL[] toUrls(File[] files)
+    {
+        final URL[] urls = new URL[files.length];
+        try
+        {
+            for (int i = 0; i < files.length; i++)
+            {
+                urls[i] = files[i].toURI().toURL();
+            }
+            return urls;
+        }
+        catch (MalformedURLException exc)
+        {
+            throw new RuntimeException(exc.getMessage(), exc);
+        }
+    }
+
+    public static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException exc)
+        {
+            throw new IllegalStateException(exc.getMessage(), exc);
+        }
+    }
+
+    public static String hash(byte[] data)
+    {
+        return HexFormat.of().formatHex(newDigest().digest(data));
+    }
+
+    public static String hash(Path file) throws IOException
+    {
+        return hash(Files.readAllBytes(file));
+    }
+
+    /**
+     * Append the relative path, size and modification time of each class file in the directory, sorted, to a
+     * fingerprint. Cheaper than hashing the content, as fingerprints are computed on every build.
+     */
+    public static void appendClassFiles(StringBuilder s, Path dir) throws IOException
+    {
+        final List<Path> classFiles;
+        try (final Stream<Path> files = Files.walk(dir))
+        {
+            classFiles = files.filter(f -> f.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+        }
+
+        s.append(dir.toAbsolutePath()).append('\n');
+        for (Path file : classFiles)
+        {
+            s.append(dir.relativize(file)).append(':').append(Files.size(file)).append(':').append(Files.getLastModifiedTime(file).toMillis()).append('\n');
+        }
+    }
+
+    /**
+     * @return The hash of the content of each class file in the directory, by path relative to the directory with
+     * <code>/</code> as separator
+     */
+    public static Map<String, String> hashClassFiles(Path dir) throws IOException
+    {
+        final Map<String, String> result = new TreeMap<>();
+        final List<Path> classFiles;
+        try (final Stream<Path> files = Files.walk(dir))
+        {
+            classFiles = files.filter(f -> f.toString().endsWith(".class")).collect(Collectors.toList());
+        }
+
+        for (Path file : classFiles)
+        {
+            result.put(dir.relativize(file).toString().replace(File.separatorChar, '/'), hash(file));
+        }
+        return result;
+    }
+
+    /**
+     * @return The hash of the content of the jar file, computed once per path, size and modification time
+     */
+    public static String hashJar(File jar) throws IOException
+    {
+        final String key = jar.getAbsolutePath() + ':' + jar.length() + ':' + jar.lastModified();
+        final String cached = JAR_HASHES.get(key);
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        final MessageDigest digest = newDigest();
+        try (final InputStream in = Files.newInputStream(jar.toPath()))
+        {
+            final byte[] buffer = new byte[65536];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                digest.update(buffer, 0, read);
+            }
+        }
+        final String hash = HexFormat.of().formatHex(digest.digest());
+        JAR_HASHES.put(key, hash);
+        return hash;
+    }
+
+    /**
+     * Write the content to the file, unless the file already has the exact same content. The content is written to a
+     * temporary file next to it first and then moved into place, so readers never see a partially written file.
+     *
+     * @return true if the file was written, false if it was left untouched
+     */
+    public static boolean writeIfChanged(Path file, byte[] content) throws IOException
+    {
+        if (Files.exists(file) && Arrays.equals(Files.readAllBytes(file), content))
+        {
+            return false;
+        }
+
+        final Path tmp = getTempFile(file);
+        try
+        {
+            Files.write(tmp, content, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            moveIntoPlace(tmp, file);
+        }
+        finally
+        {
+            Files.deleteIfExists(tmp);
+        }
+        return true;
+    }
+
+    /**
+     * @return A path for a temporary file next to the file, in a created directory. Create it with
+     * {@link StandardOpenOption#CREATE_NEW}, not {@link Files#createTempFile}, as that restricts the permissions to the
+     * owner instead of using the umask
+     */
+    public static Path getTempFile(Path file) throws IOException
+    {
+        final Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        return dir.resolve(file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+    }
+
+    /**
+     * Replace the file with the temporary file, atomically if the file system supports it
+     */
+    public static void moveIntoPlace(Path tmp, Path file) throws IOException
+    {
+        try
+        {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException exc)
+        {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Parse a timestamp for reproducible output, with the same format as <code>project.build.outputTimestamp</code>
+     * used by the Maven archiver: ISO 8601 with an offset, or the number of seconds since the epoch.
+     *
+     * @return The timestamp, or null if reproducible output is not enabled
+     */
+    public static Instant parseOutputTimestamp(String outputTimestamp)
+    {
+        // Like the Maven archiver, a single character is used to disable reproducible output in child projects
+        if (outputTimestamp == null || outputTimestamp.trim().length() < 2)
+        {
+            return null;
+        }
+
+        final String value = outputTimestamp.trim();
+        try
+        {
+            return value.chars().allMatch(Character::isDigit) ? Instant.ofEpochSecond(Long.parseLong(value)) : OffsetDateTime.parse(value).toInstant();
+        }
+        catch (DateTimeParseException | NumberFormatException exc)
+        {
+            throw new IllegalArgumentException("Invalid outputTimestamp '" + value + "', expected ISO 8601 like 2024-01-01T00:00:00Z or seconds since the epoch", exc);
+        }
+    }
+
+    /**
+     * Set the modification time of the file, if a timestamp is given
+     */
+    public static void setLastModified(Path file, Instant timestamp) throws IOException
+    {
+        if (timestamp != null && Files.exists(file))
+        {
+            Files.setLastModifiedTime(file, FileTime.from(timestamp));
+        }
+    }
+
+    public static String toClassFilePath(String className)
+    {
+        return className.replace('.', '/') + ".class";
+    }
+
+    public static String toClassName(String classFilePath)
+    {
+        return classFilePath.substring(0, classFilePath.length() - ".class".length()).replace('/', '.');
+    }
 }
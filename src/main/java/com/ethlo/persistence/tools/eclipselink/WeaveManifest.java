@@ -0,0 +1,153 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Records the state of the last weaving run: a fingerprint of the class-path and weaving options, and for each
+ * class file the hash of the input bytes and of the woven output bytes.
+ *
+ * @author Morten Haraldsen
+ */
+public class WeaveManifest
+{
+    private static final String HEADER = "# eclipselink-maven-plugin weave manifest v1";
+    private static final String FINGERPRINT_PREFIX = "fingerprint=";
+
+    private final String fingerprint;
+    private final Map<String, Entry> entries;
+
+    public WeaveManifest(String fingerprint)
+    {
+        this(fingerprint, new TreeMap<>());
+    }
+
+    private WeaveManifest(String fingerprint, Map<String, Entry> entries)
+    {
+        this.fingerprint = fingerprint;
+        this.entries = entries;
+    }
+
+    /**
+     * @param file The manifest file
+     * @return The manifest, or null if it does not exist or cannot be read
+     */
+    public static WeaveManifest read(Path file)
+    {
+        if (!Files.exists(file))
+        {
+            return null;
+        }
+
+        try (final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+        {
+            if (!HEADER.equals(reader.readLine()))
+            {
+                return null;
+            }
+
+            final String fingerprintLine = reader.readLine();
+            if (fingerprintLine == null || !fingerprintLine.startsWith(FINGERPRINT_PREFIX))
+            {
+                return null;
+            }
+
+            final Map<String, Entry> entries = new TreeMap<>();
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                final String[] parts = line.split("\t");
+                if (parts.length != 3)
+                {
+                    return null;
+                }
+                entries.put(parts[0], new Entry(parts[1], parts[2]));
+            }
+            return new WeaveManifest(fingerprintLine.substring(FINGERPRINT_PREFIX.length()), entries);
+        }
+        catch (IOException exc)
+        {
+            return null;
+        }
+    }
+
+    public void write(Path file) throws IOException
+    {
+        Files.createDirectories(file.getParent());
+        try (final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            writer.write(HEADER);
+            writer.newLine();
+            writer.write(FINGERPRINT_PREFIX + fingerprint);
+            writer.newLine();
+            for (Map.Entry<String, Entry> e : entries.entrySet())
+            {
+                writer.write(e.getKey() + "\t" + e.getValue().getInputHash() + "\t" + e.getValue().getOutputHash());
+                writer.newLine();
+            }
+        }
+    }
+
+    public String getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    public Entry get(String path)
+    {
+        return entries.get(path);
+    }
+
+    public void put(String path, String inputHash, String outputHash)
+    {
+        entries.put(path, new Entry(inputHash, outputHash));
+    }
+
+    public static class Entry
+    {
+        private final String inputHash;
+        private final String outputHash;
+
+        public Entry(String inputHash, String outputHash)
+        {
+            this.inputHash = inputHash;
+            this.outputHash = outputHash;
+        }
+
+        public String getInputHash()
+        {
+            return inputHash;
+        }
+
+        public String getOutputHash()
+        {
+            return outputHash;
+        }
+    }
+}
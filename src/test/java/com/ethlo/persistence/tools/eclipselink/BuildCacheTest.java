@@ -0,0 +1,110 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Stores and reads entries of the build cache, also when the cache directory cannot be written to
+ *
+ * @author Morten Haraldsen
+ */
+class BuildCacheTest
+{
+    private static final String KEY = Utils.hash("key".getBytes(StandardCharsets.UTF_8));
+
+    @TempDir
+    Path dir;
+
+    private final List<String> warnings = new ArrayList<>();
+
+    private final Log log = new SystemStreamLog()
+    {
+        @Override
+        public void warn(CharSequence content)
+        {
+            warnings.add(content.toString());
+        }
+
+        @Override
+        public void debug(CharSequence content)
+        {
+
+        }
+    };
+
+    @Test
+    void readMarksTheEntryAsUsed() throws Exception
+    {
+        final BuildCache cache = new BuildCache(dir.resolve("cache"), 1024, log);
+        assertNull(cache.get(KEY));
+        cache.put(KEY, new byte[]{1, 2, 3});
+        assertEquals(1, cache.getStored());
+
+        final Path entry = getEntries(dir.resolve("cache")).get(0);
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(0));
+        assertArrayEquals(new byte[]{1, 2, 3}, cache.get(KEY));
+        assertTrue(Files.getLastModifiedTime(entry).toMillis() > 0);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, getEntries(dir.resolve("cache")).size(), "Temporary files left");
+    }
+
+    @Test
+    void failingToStoreDoesNotFailTheBuild() throws Exception
+    {
+        // A file where the cache directory should be
+        final Path cacheDir = dir.resolve("cache");
+        Files.write(cacheDir, new byte[0]);
+        final BuildCache cache = new BuildCache(cacheDir, 1024, log);
+
+        cache.put(KEY, new byte[]{1});
+        cache.put(Utils.hash("other".getBytes(StandardCharsets.UTF_8)), new byte[]{2});
+        assertEquals(0, cache.getStored());
+        assertNull(cache.get(KEY));
+        assertEquals(1, warnings.size(), warnings.toString());
+        assertTrue(warnings.get(0).contains(cacheDir.toString()), warnings.get(0));
+    }
+
+    private static List<Path> getEntries(Path cacheDir) throws Exception
+    {
+        try (final Stream<Path> files = Files.walk(cacheDir))
+        {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks the class file header parsing, and that a class is only considered woven when it implements the EclipseLink
+ * marker interface itself
+ *
+ * @author Morten Haraldsen
+ */
+class ClassFileInfoTest
+{
+    private static final String PACKAGE = "com.acme.info";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsNamesAndWovenMarker() throws Exception
+    {
+        final Map<String, String> sources = new TreeMap<>();
+        sources.put(PACKAGE + ".Plain", "package " + PACKAGE + ";\n"
+                + "public class Plain extends java.util.AbstractList<String> implements java.io.Serializable, Comparable<Plain> {\n"
+                + "    public String get(int index) { return null; }\n"
+                + "    public int size() { return 0; }\n"
+                + "    public int compareTo(Plain other) { return 0; }\n"
+                + "}\n");
+        sources.put(PACKAGE + ".Marked", "package " + PACKAGE + ";\n"
+                + "public class Marked implements java.io.Serializable, " + ClassFileInfo.WOVEN_MARKER + " {\n"
+                + "}\n");
+        // Only refers to the marker, in a field and a method, without implementing it
+        sources.put(PACKAGE + ".Referencing", "package " + PACKAGE + ";\n"
+                + "public class Referencing {\n"
+                + "    private " + ClassFileInfo.WOVEN_MARKER + " woven;\n"
+                + "    public boolean check(Object o) { return o instanceof " + ClassFileInfo.WOVEN_MARKER + "; }\n"
+                + "}\n");
+        // A subclass of a woven class only counts as woven if it is woven itself
+        sources.put(PACKAGE + ".Subclass", "package " + PACKAGE + ";\n"
+                + "public class Subclass extends Marked {\n"
+                + "}\n");
+        final Path classes = dir.resolve("classes");
+        TestModels.compile(TestModels.writeSources(dir.resolve("src"), sources), classes);
+
+        final ClassFileInfo plain = parse(classes, "Plain");
+        assertEquals(PACKAGE + ".Plain", plain.getClassName());
+        assertEquals("java.util.AbstractList", plain.getSuperClassName());
+        assertEquals(List.of("java.io.Serializable", "java.lang.Comparable"), plain.getInterfaceNames());
+        assertFalse(plain.isWoven());
+
+        final ClassFileInfo marked = parse(classes, "Marked");
+        assertEquals(List.of("java.io.Serializable", ClassFileInfo.WOVEN_MARKER), marked.getInterfaceNames());
+        assertTrue(marked.isWoven());
+
+        final ClassFileInfo referencing = parse(classes, "Referencing");
+        assertTrue(referencing.getReferencedClassNames().contains(ClassFileInfo.WOVEN_MARKER));
+        assertFalse(referencing.isWoven());
+
+        final ClassFileInfo subclass = parse(classes, "Subclass");
+        assertEquals(PACKAGE + ".Marked", subclass.getSuperClassName());
+        assertFalse(subclass.isWoven());
+    }
+
+    @Test
+    void recognizesClassesWovenByEclipseLink() throws Exception
+    {
+        final Path classes = dir.resolve("classes");
+        TestModels.compile(TestModels.writeSources(dir.resolve("src"), TestModels.simpleModel(PACKAGE)), classes);
+        final Path person = classes.resolve(Utils.toClassFilePath(PACKAGE + ".Person"));
+        assertFalse(ClassFileInfo.parse(Files.readAllBytes(person)).isWoven());
+
+        TestModels.weaveInPlace(classes, "info");
+        assertTrue(ClassFileInfo.parse(Files.readAllBytes(person)).isWoven());
+        assertTrue(DirectoryWeaver.isWoven(Files.readAllBytes(person)));
+    }
+
+    @Test
+    void rejectsInvalidClassFiles()
+    {
+        assertThrows(IllegalArgumentException.class, () -> ClassFileInfo.parse(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+        assertFalse(DirectoryWeaver.isWoven(new byte[]{(byte) 0xCA, (byte) 0xFE}));
+    }
+
+    private static ClassFileInfo parse(Path classes, String simpleName) throws Exception
+    {
+        return ClassFileInfo.parse(Files.readAllBytes(classes.resolve(Utils.toClassFilePath(PACKAGE + "." + simpleName))));
+    }
+}
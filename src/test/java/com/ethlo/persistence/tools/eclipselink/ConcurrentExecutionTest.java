@@ -0,0 +1,145 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs the scan, persistence.xml, weave and DDL steps of many modules in parallel in one JVM, like a parallel Maven
+ * build, and checks that every module gets the same output as when built alone.
+ *
+ * @author Morten Haraldsen
+ */
+class ConcurrentExecutionTest
+{
+    private static final int MODULES = 8;
+    private static final int ROUNDS = 3;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void concurrentModulesGetTheSameOutputAsSequentialModules() throws Exception
+    {
+        final List<Path> compiled = new ArrayList<>();
+        for (int i = 0; i < MODULES; i++)
+        {
+            final Path classes = tempDir.resolve("compiled/m" + i);
+            TestModels.compile(TestModels.writeSources(tempDir.resolve("src/m" + i), TestModels.simpleModel("com.acme.m" + i)), classes);
+            compiled.add(classes);
+        }
+
+        final List<Map<String, byte[]>> expected = new ArrayList<>();
+        for (int i = 0; i < MODULES; i++)
+        {
+            final Path module = tempDir.resolve("sequential/m" + i);
+            TestModels.copyDirectory(compiled.get(i), module.resolve("classes"));
+            build(module);
+            expected.add(TestModels.readFiles(module));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(MODULES);
+        try
+        {
+            for (int round = 0; round < ROUNDS; round++)
+            {
+                final CountDownLatch start = new CountDownLatch(1);
+                final List<Future<Map<String, byte[]>>> results = new ArrayList<>();
+                for (int i = 0; i < MODULES; i++)
+                {
+                    final Path module = tempDir.resolve("parallel-" + round + "/m" + i);
+                    TestModels.copyDirectory(compiled.get(i), module.resolve("classes"));
+                    results.add(executor.submit(() ->
+                    {
+                        start.await();
+                        build(module);
+                        return TestModels.readFiles(module);
+                    }));
+                }
+                start.countDown();
+
+                for (int i = 0; i < MODULES; i++)
+                {
+                    assertSameFiles(expected.get(i), results.get(i).get());
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        final Map<String, byte[]> first = expected.get(0);
+        assertTrue(DirectoryWeaver.isWoven(first.get("classes/com/acme/m0/Person.class")), "Person is not woven");
+        final String ddl = new String(first.get("ddl.sql"));
+        assertTrue(ddl.contains("CREATE TABLE PERSON"), ddl);
+    }
+
+    private static void assertSameFiles(Map<String, byte[]> expected, Map<String, byte[]> actual)
+    {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, byte[]> e : expected.entrySet())
+        {
+            assertArrayEquals(e.getValue(), actual.get(e.getKey()), e.getKey());
+        }
+    }
+
+    /**
+     * The steps of the weave and ddl goals for one module, with its own class loaders
+     */
+    private static void build(Path module) throws Exception
+    {
+        final Path classes = module.resolve("classes");
+        TestModels.weaveInPlace(classes, module.getFileName().toString());
+        final Set<String> entities = EntityScanner.findEntityTypes(new String[0], new File[]{classes.toFile()}, 2, false, null, null).keySet();
+
+        final URL[] urls = {classes.toUri().toURL()};
+        try (final URLClassLoader classLoader = new URLClassLoader(urls, ConcurrentExecutionTest.class.getClassLoader()))
+        {
+            final SchemaGenerator generator = new SchemaGenerator("MySQL", null, null,
+                    module.resolve("ddl.sql").toUri().toString(), module.resolve("ddl-drop.sql").toUri().toString(),
+                    PersistenceUnitProperties.SCHEMA_GENERATION_DROP_AND_CREATE_ACTION, TestMojos.QUIET_LOG, Instant.EPOCH);
+            generator.generateSchema(classLoader, entities);
+        }
+        assertTrue(Files.exists(module.resolve("ddl.sql")));
+    }
+}
@@ -0,0 +1,210 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.X5455_ExtendedTimestamp;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs the weave-jar goal on a small jar, checking that the entity classes are woven and that all entries keep their
+ * order and attributes
+ *
+ * @author Morten Haraldsen
+ */
+class EclipselinkJarWeaveMojoTest
+{
+    private static final String PACKAGE = "com.acme.jar";
+    private static final int UNIX_MODE = 0100640;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void weavesEntitiesKeepingEntryOrderAndAttributes() throws Exception
+    {
+        final Path classes = compileWithPersistenceXml();
+        final List<Path> files = new ArrayList<>();
+        try (var walk = Files.walk(classes))
+        {
+            walk.filter(Files::isRegularFile).forEach(files::add);
+        }
+        // Not in name order, so the order of the woven jar is the one of the source jar
+        Collections.sort(files, Collections.reverseOrder());
+
+        final File jar = dir.resolve("model.jar").toFile();
+        writeJar(jar, classes, files, "");
+
+        final Path output = dir.resolve("woven-jars");
+        execute(jar, output);
+
+        final File wovenJar = output.resolve("model.jar").toFile();
+        try (final ZipFile source = ZipFile.builder().setFile(jar).get();
+             final ZipFile wovenZip = ZipFile.builder().setFile(wovenJar).get())
+        {
+            final List<ZipArchiveEntry> sourceEntries = Collections.list(source.getEntriesInPhysicalOrder());
+            final List<ZipArchiveEntry> wovenEntries = Collections.list(wovenZip.getEntriesInPhysicalOrder());
+            assertEquals(names(sourceEntries), names(wovenEntries));
+
+            final List<String> woven = new ArrayList<>();
+            for (int i = 0; i < sourceEntries.size(); i++)
+            {
+                final ZipArchiveEntry sourceEntry = sourceEntries.get(i);
+                final ZipArchiveEntry wovenEntry = wovenEntries.get(i);
+                final String name = sourceEntry.getName();
+                assertEquals(sourceEntry.getComment(), wovenEntry.getComment(), name);
+                assertEquals(UNIX_MODE, wovenEntry.getUnixMode(), name);
+                assertEquals(sourceEntry.getTime(), wovenEntry.getTime(), name);
+                assertTrue(wovenEntry.getExtraField(X5455_ExtendedTimestamp.HEADER_ID) != null, name);
+
+                final byte[] wovenBytes = read(wovenZip, wovenEntry);
+                if (Arrays.equals(read(source, sourceEntry), wovenBytes))
+                {
+                    assertEquals(sourceEntry.getMethod(), wovenEntry.getMethod(), name);
+                }
+                else
+                {
+                    assertTrue(DirectoryWeaver.isWoven(wovenBytes), name);
+                    assertEquals(ZipEntry.DEFLATED, wovenEntry.getMethod(), name);
+                    woven.add(name);
+                }
+            }
+            assertTrue(woven.containsAll(List.of("com/acme/jar/Person.class", "com/acme/jar/Car.class")), woven.toString());
+        }
+    }
+
+    @Test
+    void failsOnSpringBootExecutableJar() throws Exception
+    {
+        final Path classes = compileWithPersistenceXml();
+        final List<Path> files = new ArrayList<>();
+        try (var walk = Files.walk(classes))
+        {
+            walk.filter(Files::isRegularFile).sorted().forEach(files::add);
+        }
+        final File jar = dir.resolve("app.jar").toFile();
+        writeJar(jar, classes, files, "BOOT-INF/classes/");
+
+        final MojoExecutionException exc = assertThrows(MojoExecutionException.class, () -> execute(jar, dir.resolve("woven-jars")));
+        assertTrue(exc.getMessage().contains("BOOT-INF/classes/"), exc.getMessage());
+        assertFalse(Files.exists(dir.resolve("woven-jars/app.jar")));
+    }
+
+    private Path compileWithPersistenceXml() throws Exception
+    {
+        final Path classes = dir.resolve("classes");
+        TestModels.compile(TestModels.writeSources(dir.resolve("src"), TestModels.simpleModel(PACKAGE)), classes);
+        final PersistenceXmlDocument doc = PersistenceXmlHelper.createXml("model");
+        PersistenceXmlHelper.appendClasses(doc, EntityScanner.findEntityTypes(new String[0], new File[]{classes.toFile()}, 1, false, null, null).keySet(), true);
+        PersistenceXmlHelper.outputXml(doc, classes.resolve("META-INF/persistence.xml"));
+        return classes;
+    }
+
+    private void execute(File jar, Path outputDirectory) throws Exception
+    {
+        final EclipselinkJarWeaveMojo mojo = new EclipselinkJarWeaveMojo();
+        mojo.setLog(TestMojos.QUIET_LOG);
+        TestMojos.set(mojo, "project", TestMojos.project(dir.resolve("target/classes")));
+        TestMojos.set(mojo, "session", TestMojos.session());
+        TestMojos.set(mojo, "mojoExecution", TestMojos.execution("weave-jar"));
+        TestMojos.set(mojo, "weaveProjectArtifact", false);
+        TestMojos.set(mojo, "jars", new File[]{jar});
+        TestMojos.set(mojo, "outputDirectory", outputDirectory.toFile());
+        TestMojos.set(mojo, "logLevel", "WARNING");
+        TestMojos.set(mojo, "writeReport", false);
+        mojo.execute();
+    }
+
+    /**
+     * Write the files to a jar, every entry with a comment, a unix mode and an extra field, alternately stored and
+     * deflated
+     */
+    private static void writeJar(File jar, Path root, List<Path> files, String prefix) throws Exception
+    {
+        try (final OutputStream out = Files.newOutputStream(jar.toPath());
+             final ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(out))
+        {
+            int index = 0;
+            for (Path file : files)
+            {
+                final byte[] content = Files.readAllBytes(file);
+                final ZipArchiveEntry entry = new ZipArchiveEntry(prefix + root.relativize(file).toString().replace(File.separatorChar, '/'));
+                entry.setComment("entry " + index);
+                entry.setUnixMode(UNIX_MODE);
+                entry.setTime(1_700_000_000_000L + index * 2000L);
+                final X5455_ExtendedTimestamp timestamp = new X5455_ExtendedTimestamp();
+                timestamp.setModifyJavaTime(new java.util.Date(entry.getTime()));
+                entry.addExtraField(timestamp);
+                if (index % 2 == 0)
+                {
+                    final java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+                    crc.update(content);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(content.length);
+                    entry.setCrc(crc.getValue());
+                }
+                zipOut.putArchiveEntry(entry);
+                zipOut.write(content);
+                zipOut.closeArchiveEntry();
+                index++;
+            }
+        }
+    }
+
+    private static List<String> names(List<ZipArchiveEntry> entries)
+    {
+        final List<String> result = new ArrayList<>();
+        for (ZipArchiveEntry entry : entries)
+        {
+            result.add(entry.getName());
+        }
+        return result;
+    }
+
+    private static byte[] read(ZipFile zipFile, ZipArchiveEntry entry) throws Exception
+    {
+        try (final InputStream in = zipFile.getInputStream(entry))
+        {
+            return in.readAllBytes();
+        }
+    }
+}
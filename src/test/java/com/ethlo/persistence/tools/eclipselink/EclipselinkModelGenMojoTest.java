@@ -0,0 +1,185 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
+
+/**
+ * Runs the modelgen goal repeatedly on a project with a mapped superclass in another module, checking when sources
+ * are processed again and when they are restored from the cache
+ *
+ * @author Morten Haraldsen
+ */
+class EclipselinkModelGenMojoTest
+{
+    private static final String PACKAGE = "com.acme.modelgen";
+
+    @TempDir
+    Path dir;
+
+    private Path sources;
+    private Path generated;
+
+    @BeforeEach
+    void writeModel() throws Exception
+    {
+        final Map<String, String> model = TestModels.simpleModel(PACKAGE);
+        model.put(PACKAGE + ".Tag", "package " + PACKAGE + ";\n"
+                + "@jakarta.persistence.Entity\n"
+                + "public class Tag {\n"
+                + "    @jakarta.persistence.Id private String name;\n"
+                + "}\n");
+        compileDependency(model.remove(PACKAGE + ".BaseEntity"));
+        sources = dir.resolve("src/main/java");
+        generated = dir.resolve("target/generated-sources/apt");
+        TestModels.writeSources(sources, model);
+    }
+
+    @Test
+    void unchangedSourcesAreNotProcessedAgain() throws Exception
+    {
+        final Map<String, Long> first = modelgen();
+        assertEquals(4, first.get("sourcesCompiled"), first.toString());
+        assertTrue(Files.exists(dir.resolve("target/eclipselink/modelgen-manifest.txt")));
+        final Map<String, byte[]> output = TestModels.readFiles(generated);
+        assertTrue(output.containsKey(path("Person_")), output.keySet().toString());
+
+        final Map<String, Long> second = modelgen();
+        assertEquals(0, second.get("sourcesCompiled"), second.toString());
+        assertEquals(0, second.get("metamodelFilesWritten"), second.toString());
+        assertEquals(output.keySet(), TestModels.readFiles(generated).keySet());
+    }
+
+    @Test
+    void changedSourceIsProcessedAgain() throws Exception
+    {
+        modelgen();
+        final Path car = sources.resolve(path("Car"));
+        Files.writeString(car, Files.readString(car).replace("private String model;", "private String model;\n    private int doors;"));
+
+        final Map<String, Long> counts = modelgen();
+        assertTrue(counts.get("sourcesCompiled") > 0 && counts.get("sourcesCompiled") < 4, counts.toString());
+        assertTrue(Files.readString(generated.resolve(path("Car_")), StandardCharsets.UTF_8).contains(" doors"));
+    }
+
+    @Test
+    void removedSourceRemovesItsMetamodel() throws Exception
+    {
+        modelgen();
+        assertTrue(Files.exists(generated.resolve(path("Tag_"))));
+        Files.delete(sources.resolve(path("Tag")));
+
+        final Map<String, Long> counts = modelgen();
+        assertEquals(1, counts.get("metamodelFilesDeleted"), counts.toString());
+        assertFalse(Files.exists(generated.resolve(path("Tag_"))));
+    }
+
+    @Test
+    void changedDependencyDirectoryProcessesAllSources() throws Exception
+    {
+        modelgen();
+        assertEquals(0, modelgen().get("sourcesCompiled"));
+
+        // The mapped superclass in the output of another module
+        final String base = TestModels.simpleModel(PACKAGE).get(PACKAGE + ".BaseEntity");
+        compileDependency(base.replace("private int version;", "private int version;\n    private String createdBy;"));
+
+        final Map<String, Long> counts = modelgen();
+        assertEquals(4, counts.get("sourcesCompiled"), counts.toString());
+    }
+
+    @Test
+    void changedDependencyDirectoryMissesTheCache() throws Exception
+    {
+        final Map<String, Long> first = modelgen(false, true);
+        assertEquals(4, first.get("cacheMisses"), first.toString());
+        final Map<String, byte[]> output = TestModels.readFiles(generated);
+
+        final Map<String, Long> second = modelgen(false, true);
+        assertEquals(4, second.get("cacheHits"), second.toString());
+        assertEquals(0, second.get("cacheMisses"), second.toString());
+        assertEquals(0, second.get("sourcesCompiled"), second.toString());
+
+        final String base = TestModels.simpleModel(PACKAGE).get(PACKAGE + ".BaseEntity");
+        compileDependency(base.replace("private int version;", "private int version;\n    private String createdBy;"));
+
+        final Map<String, Long> third = modelgen(false, true);
+        assertEquals(0, third.get("cacheHits"), third.toString());
+        assertEquals(4, third.get("cacheMisses"), third.toString());
+        assertEquals(4, third.get("sourcesCompiled"), third.toString());
+        assertEquals(output.keySet(), TestModels.readFiles(generated).keySet());
+    }
+
+    private void compileDependency(String baseEntity) throws Exception
+    {
+        TestModels.compileWithMetamodel(TestModels.writeSources(dir.resolve("dependency-src"), Map.of(PACKAGE + ".BaseEntity", baseEntity)), dir.resolve("dependency"));
+    }
+
+    private static String path(String simpleName)
+    {
+        return PACKAGE.replace('.', '/') + "/" + simpleName + ".java";
+    }
+
+    private Map<String, Long> modelgen() throws Exception
+    {
+        return modelgen(true, false);
+    }
+
+    private Map<String, Long> modelgen(boolean incremental, boolean cache) throws Exception
+    {
+        final Path classes = dir.resolve("target/classes");
+        Files.createDirectories(classes);
+        final EclipselinkModelGenMojo mojo = new EclipselinkModelGenMojo();
+        mojo.setLog(TestMojos.QUIET_LOG);
+        TestMojos.set(mojo, "project", TestMojos.project(classes, dir.resolve("dependency")));
+        TestMojos.set(mojo, "session", TestMojos.session());
+        TestMojos.set(mojo, "mojoExecution", TestMojos.execution("modelgen"));
+        TestMojos.set(mojo, "buildContext", new DefaultBuildContext());
+        TestMojos.set(mojo, "source", sources.toFile());
+        TestMojos.set(mojo, "generatedSourcesDirectory", generated.toFile());
+        TestMojos.set(mojo, "encoding", "UTF-8");
+        TestMojos.set(mojo, "incremental", incremental);
+        TestMojos.set(mojo, "manifestFile", dir.resolve("target/eclipselink/modelgen-manifest.txt").toFile());
+        TestMojos.set(mojo, "sourcePreFilter", true);
+        TestMojos.set(mojo, "modelgenThreads", 1);
+        TestMojos.set(mojo, "cache", cache);
+        TestMojos.set(mojo, "cacheDirectory", dir.resolve("cache").toFile());
+        TestMojos.set(mojo, "cacheMaxSize", 256L);
+        TestMojos.set(mojo, "engine", "javac");
+        TestMojos.set(mojo, "writeReport", true);
+        TestMojos.set(mojo, "reportDirectory", dir.resolve("reports").toFile());
+        mojo.execute();
+        return TestMojos.readReportCounts(dir.resolve("reports/modelgen-test.json"));
+    }
+}
@@ -0,0 +1,185 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs the weave goal repeatedly on a project, checking when weaving is skipped and when classes are woven again
+ *
+ * @author Morten Haraldsen
+ */
+class EclipselinkStaticWeaveMojoTest
+{
+    private static final String PACKAGE = "com.acme.weave";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void unchangedRebuildSkipsWeaving() throws Exception
+    {
+        final Path classes = compileModel();
+        final Path woven = dir.resolve("woven");
+
+        final Map<String, Long> first = weave(classes, woven);
+        assertTrue(first.get("classesWoven") > 0, first.toString());
+        assertTrue(DirectoryWeaver.isWoven(Files.readAllBytes(woven.resolve(classFile("Person")))));
+        final Map<String, byte[]> output = TestModels.readFiles(woven);
+
+        final Map<String, Long> second = weave(classes, woven);
+        assertEquals(0, second.get("classesWoven"), second.toString());
+        assertEquals(0, second.get("filesWritten"), second.toString());
+        assertSameFiles(output, TestModels.readFiles(woven));
+    }
+
+    @Test
+    void changedEntityIsWovenAgain() throws Exception
+    {
+        final Path classes = compileModel();
+        final Path woven = dir.resolve("woven");
+        weave(classes, woven);
+        final byte[] before = Files.readAllBytes(woven.resolve(classFile("Car")));
+
+        final Map<String, String> model = TestModels.simpleModel(PACKAGE);
+        model.put(PACKAGE + ".Car", model.get(PACKAGE + ".Car").replace("private String model;", "private String model;\n    private int doors;"));
+        TestModels.compile(TestModels.writeSources(dir.resolve("src"), Map.of(PACKAGE + ".Car", model.get(PACKAGE + ".Car"))), classes, List.of(classes, dir.resolve("dependency")));
+
+        final Map<String, Long> counts = weave(classes, woven);
+        assertTrue(counts.get("classesWoven") > 0, counts.toString());
+        assertTrue(counts.get("filesWritten") > 0, counts.toString());
+        final byte[] car = Files.readAllBytes(woven.resolve(classFile("Car")));
+        assertTrue(DirectoryWeaver.isWoven(car));
+        assertFalse(Arrays.equals(before, car), "Car was not woven again");
+    }
+
+    @Test
+    void changedDependencyDirectoryWeavesAgain() throws Exception
+    {
+        final Path classes = compileModel();
+        final Path woven = dir.resolve("woven");
+        weave(classes, woven);
+        assertEquals(0, weave(classes, woven).get("classesWoven"));
+
+        // A mapped superclass in the output of another module
+        final Map<String, String> model = TestModels.simpleModel(PACKAGE);
+        final String base = model.get(PACKAGE + ".BaseEntity").replace("private int version;", "private int version;\n    private String createdBy;");
+        TestModels.compile(TestModels.writeSources(dir.resolve("dependency-src"), Map.of(PACKAGE + ".BaseEntity", base)), dir.resolve("dependency"));
+
+        final Map<String, Long> counts = weave(classes, woven);
+        assertTrue(counts.get("classesWoven") > 0, counts.toString());
+    }
+
+    @Test
+    void convertersDoNotPreventSkippingWovenClasses() throws Exception
+    {
+        final Path classes = compileModel(PACKAGE + ".YesNoConverter", "package " + PACKAGE + ";\n"
+                + "@jakarta.persistence.Converter(autoApply = true)\n"
+                + "public class YesNoConverter implements jakarta.persistence.AttributeConverter<Boolean, String> {\n"
+                + "    public String convertToDatabaseColumn(Boolean value) { return Boolean.TRUE.equals(value) ? \"Y\" : \"N\"; }\n"
+                + "    public Boolean convertToEntityAttribute(String value) { return \"Y\".equals(value); }\n"
+                + "}\n");
+
+        // In place, non-incremental: the already woven check decides whether to weave
+        final Map<String, Long> first = weave(classes, classes, false);
+        assertTrue(first.containsKey("filesWritten"), first.toString());
+        assertTrue(DirectoryWeaver.isWoven(Files.readAllBytes(classes.resolve(classFile("Person")))));
+        assertFalse(DirectoryWeaver.isWoven(Files.readAllBytes(classes.resolve(classFile("YesNoConverter")))));
+
+        final Map<String, Long> second = weave(classes, classes, false);
+        assertEquals(0, second.get("classesWoven"), second.toString());
+        assertFalse(second.containsKey("filesWritten"), "Classes were woven again: " + second);
+    }
+
+    /**
+     * Compile the entities of the simple model, with the mapped superclass in a separate dependency directory
+     */
+    private Path compileModel(String... extraSources) throws Exception
+    {
+        final Map<String, String> model = TestModels.simpleModel(PACKAGE);
+        final Path dependency = dir.resolve("dependency");
+        TestModels.compile(TestModels.writeSources(dir.resolve("dependency-src"), Map.of(PACKAGE + ".BaseEntity", model.remove(PACKAGE + ".BaseEntity"))), dependency);
+
+        for (int i = 0; i < extraSources.length; i += 2)
+        {
+            model.put(extraSources[i], extraSources[i + 1]);
+        }
+        final Path classes = dir.resolve("target/classes");
+        TestModels.compile(TestModels.writeSources(dir.resolve("src"), model), classes, List.of(dependency));
+        return classes;
+    }
+
+    private Map<String, Long> weave(Path classes, Path target) throws Exception
+    {
+        return weave(classes, target, true);
+    }
+
+    private Map<String, Long> weave(Path classes, Path target, boolean incremental) throws Exception
+    {
+        final MavenProject project = TestMojos.project(classes, dir.resolve("dependency"));
+        final EclipselinkStaticWeaveMojo mojo = new EclipselinkStaticWeaveMojo();
+        mojo.setLog(TestMojos.QUIET_LOG);
+        TestMojos.set(mojo, "project", project);
+        TestMojos.set(mojo, "session", TestMojos.session());
+        TestMojos.set(mojo, "mojoExecution", TestMojos.execution("weave"));
+        TestMojos.set(mojo, "source", classes.toFile());
+        TestMojos.set(mojo, "target", target.toFile());
+        TestMojos.set(mojo, "persistenceInfoLocation", classes.toFile());
+        TestMojos.set(mojo, "logLevel", "WARNING");
+        TestMojos.set(mojo, "addClassesToPersistenceFile", true);
+        TestMojos.set(mojo, "updatePersistenceXml", true);
+        TestMojos.set(mojo, "incremental", incremental);
+        TestMojos.set(mojo, "manifestFile", dir.resolve("target/eclipselink/weave-manifest.txt").toFile());
+        TestMojos.set(mojo, "weaveThreads", 1);
+        TestMojos.set(mojo, "scanScope", ScanScope.OUTPUT_DIRECTORY);
+        TestMojos.set(mojo, "writeReport", false);
+        mojo.execute();
+        return new TreeMap<>(mojo.getReport().getCounts());
+    }
+
+    private static String classFile(String simpleName)
+    {
+        return Utils.toClassFilePath(PACKAGE + "." + simpleName);
+    }
+
+    private static void assertSameFiles(Map<String, byte[]> expected, Map<String, byte[]> actual)
+    {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, byte[]> e : expected.entrySet())
+        {
+            assertArrayEquals(e.getValue(), actual.get(e.getKey()), e.getKey());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs the verify-woven goal on unwoven and woven classes
+ *
+ * @author Morten Haraldsen
+ */
+class EclipselinkVerifyWovenMojoTest
+{
+    private static final String PACKAGE = "com.acme.verify";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void failsOnUnwovenEntities() throws Exception
+    {
+        final Path classes = compile();
+        final MojoFailureException exc = assertThrows(MojoFailureException.class, () -> verify(classes, true));
+        assertTrue(exc.getMessage().startsWith("4 of 4 entity classes"), exc.getMessage());
+    }
+
+    @Test
+    void onlyWarnsWhenNotFailingOnUnwoven() throws Exception
+    {
+        final Map<String, Long> counts = verify(compile(), false);
+        assertEquals(4, counts.get("classesVerified"));
+        assertEquals(4, counts.get("classesUnwoven"));
+    }
+
+    @Test
+    void passesOnWovenEntities() throws Exception
+    {
+        final Path classes = compile();
+        TestModels.weaveInPlace(classes, "verify");
+
+        final Map<String, Long> counts = verify(classes, true);
+        // The converter is found, but not verified as converters are not woven
+        assertEquals(5, counts.get("entitiesFound"));
+        assertEquals(4, counts.get("classesVerified"));
+        assertEquals(0, counts.get("classesUnwoven"));
+    }
+
+    private Path compile() throws Exception
+    {
+        final Map<String, String> model = TestModels.simpleModel(PACKAGE);
+        model.put(PACKAGE + ".YesNoConverter", "package " + PACKAGE + ";\n"
+                + "@jakarta.persistence.Converter(autoApply = true)\n"
+                + "public class YesNoConverter implements jakarta.persistence.AttributeConverter<Boolean, String> {\n"
+                + "    public String convertToDatabaseColumn(Boolean value) { return Boolean.TRUE.equals(value) ? \"Y\" : \"N\"; }\n"
+                + "    public Boolean convertToEntityAttribute(String value) { return \"Y\".equals(value); }\n"
+                + "}\n");
+        final Path classes = dir.resolve("target/classes");
+        TestModels.compile(TestModels.writeSources(dir.resolve("src"), model), classes);
+        return classes;
+    }
+
+    private Map<String, Long> verify(Path classes, boolean failOnUnwoven) throws Exception
+    {
+        final EclipselinkVerifyWovenMojo mojo = new EclipselinkVerifyWovenMojo();
+        mojo.setLog(TestMojos.QUIET_LOG);
+        TestMojos.set(mojo, "project", TestMojos.project(classes));
+        TestMojos.set(mojo, "session", TestMojos.session());
+        TestMojos.set(mojo, "mojoExecution", TestMojos.execution("verify-woven"));
+        TestMojos.set(mojo, "source", classes.toFile());
+        TestMojos.set(mojo, "failOnUnwoven", failOnUnwoven);
+        TestMojos.set(mojo, "writeReport", true);
+        TestMojos.set(mojo, "reportDirectory", dir.resolve("reports").toFile());
+        mojo.execute();
+        return TestMojos.readReportCounts(dir.resolve("reports/verify-woven-test.json"));
+    }
+}
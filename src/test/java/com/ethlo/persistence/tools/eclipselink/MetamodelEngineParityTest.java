@@ -0,0 +1,105 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Generates the meta-model of the same entities with the <code>javac</code> engine, running the annotation processor
+ * on the sources, and the <code>bytecode</code> engine, reading the compiled classes, and checks that both produce the
+ * same sources.
+ *
+ * @author Morten Haraldsen
+ */
+class MetamodelEngineParityTest
+{
+    private static final String PACKAGE = "com.acme.parity";
+    private static final Pattern MANAGED_TYPE = Pattern.compile("@jakarta\\.persistence\\.(?:Entity|MappedSuperclass|Embeddable)\\n");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void simpleModel() throws Exception
+    {
+        assertSameOutput(TestModels.simpleModel(PACKAGE));
+    }
+
+    @Test
+    void inheritanceEmbeddablesCollectionsMapsAndGenerics() throws Exception
+    {
+        assertSameOutput(TestModels.richModel(PACKAGE));
+    }
+
+    private void assertSameOutput(Map<String, String> model) throws Exception
+    {
+        final Path sourceDir = dir.resolve("src");
+        final Path classesDir = dir.resolve("classes");
+        final Path generatedDir = dir.resolve("generated");
+        final List<Path> sourceFiles = TestModels.writeSources(sourceDir, model);
+        TestModels.compile(sourceFiles, classesDir);
+
+        final List<String> options = List.of(
+                "-cp", TestModels.getTestClassPath(),
+                "-proc:only",
+                "-processor", org.hibernate.jpamodelgen.JPAMetaModelEntityProcessor.class.getName(),
+                "-encoding", "UTF-8",
+                "-d", generatedDir.toString(),
+                "-sourcepath", sourceDir.toString());
+        final MetamodelProcessor processor = new MetamodelProcessor(ToolProvider.getSystemJavaCompiler(), options, StandardCharsets.UTF_8, 1);
+        assertTrue(processor.process(sourceFiles.stream().map(Path::toFile).collect(Collectors.toList())), processor.getDiagnostics());
+        final Map<String, String> fromSources = new TreeMap<>();
+        TestModels.readFiles(generatedDir).forEach((path, content) -> fromSources.put(path, new String(content, StandardCharsets.UTF_8)));
+
+        final File[] classPath = TestModels.getClassPathFiles();
+        final Map<String, String> fromClasses = new TreeMap<>();
+        new BytecodeMetamodelGenerator(new File[]{classesDir.toFile()}, classPath, Set.of(PACKAGE)).generate()
+                .forEach((className, content) -> fromClasses.put(className.replace('.', '/') + ".java", content));
+
+        final Set<String> expected = model.entrySet().stream()
+                .filter(e -> MANAGED_TYPE.matcher(e.getValue()).find())
+                .map(e -> e.getKey().replace('.', '/') + "_.java")
+                .collect(Collectors.toCollection(TreeSet::new));
+        assertEquals(expected, fromSources.keySet());
+        assertEquals(fromSources.keySet(), fromClasses.keySet());
+        for (Map.Entry<String, String> e : fromSources.entrySet())
+        {
+            assertEquals(e.getValue(), fromClasses.get(e.getKey()), e.getKey());
+        }
+    }
+}
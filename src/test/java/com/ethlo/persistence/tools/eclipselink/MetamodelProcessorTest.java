@@ -0,0 +1,122 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Processes the same sources in one and in several shards, with type hierarchies split across two source roots, and
+ * checks that the generated sources are the same
+ *
+ * @author Morten Haraldsen
+ */
+class MetamodelProcessorTest
+{
+    private static final String PACKAGE = "com.acme.shards";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shardedOutputIsSameAsSingleShard() throws Exception
+    {
+        final Map<String, String> model = TestModels.richModel(PACKAGE);
+        model.put(PACKAGE + ".Document", "package " + PACKAGE + ";\n"
+                + "@jakarta.persistence.MappedSuperclass\n"
+                + "public abstract class Document extends AbstractEntity<Long> {\n"
+                + "    private String number;\n"
+                + "}\n");
+        model.put(PACKAGE + ".Invoice", "package " + PACKAGE + ";\n"
+                + "@jakarta.persistence.Entity\n"
+                + "public class Invoice extends Document {\n"
+                + "    private java.math.BigDecimal amount;\n"
+                + "}\n");
+        for (String name : List.of("Country", "Currency", "Language", "Region"))
+        {
+            model.put(PACKAGE + "." + name, "package " + PACKAGE + ";\n"
+                    + "@jakarta.persistence.Entity\n"
+                    + "public class " + name + " {\n"
+                    + "    @jakarta.persistence.Id private String code;\n"
+                    + "    private String name;\n"
+                    + "}\n");
+        }
+
+        // The super-types in one source root, the sub-types in the other
+        final Set<String> superTypes = Set.of("AbstractEntity", "Vehicle", "Document", "Dimensions", "Country");
+        final Map<String, String> first = new TreeMap<>();
+        final Map<String, String> second = new TreeMap<>();
+        model.forEach((className, source) -> (superTypes.contains(className.substring(PACKAGE.length() + 1)) ? first : second).put(className, source));
+        final Path firstRoot = dir.resolve("first/src/main/java");
+        final Path secondRoot = dir.resolve("second/src/main/java");
+        final List<File> sources = new ArrayList<>();
+        TestModels.writeSources(firstRoot, first).forEach(p -> sources.add(p.toFile()));
+        TestModels.writeSources(secondRoot, second).forEach(p -> sources.add(p.toFile()));
+
+        final List<List<File>> shards = MetamodelProcessor.shard(sources, 4);
+        assertTrue(shards.size() > 1, shards.toString());
+        assertEquals(1, shards.stream().filter(shard -> shard.stream().anyMatch(f -> f.getName().equals("Truck.java"))
+                && shard.stream().anyMatch(f -> f.getName().equals("AbstractEntity.java"))
+                && shard.stream().anyMatch(f -> f.getName().equals("Invoice.java"))).count(), shards.toString());
+
+        final Map<String, byte[]> single = process(sources, firstRoot, secondRoot, dir.resolve("single"), 1);
+        final Map<String, byte[]> sharded = process(sources, firstRoot, secondRoot, dir.resolve("sharded"), 4);
+        assertEquals(model.size() - 1, single.size(), single.keySet().toString());
+        assertEquals(single.keySet(), sharded.keySet());
+        for (Map.Entry<String, byte[]> e : single.entrySet())
+        {
+            assertArrayEquals(e.getValue(), sharded.get(e.getKey()), e.getKey());
+        }
+    }
+
+    private static Map<String, byte[]> process(List<File> sources, Path firstRoot, Path secondRoot, Path generatedDir, int threads) throws Exception
+    {
+        final List<String> options = List.of(
+                "-cp", TestModels.getTestClassPath(),
+                "-proc:only",
+                "-processor", org.hibernate.jpamodelgen.JPAMetaModelEntityProcessor.class.getName(),
+                "-encoding", "UTF-8",
+                "-d", generatedDir.toString(),
+                "-sourcepath", firstRoot + File.pathSeparator + secondRoot + File.pathSeparator + generatedDir);
+        generatedDir.toFile().mkdirs();
+        final MetamodelProcessor processor = new MetamodelProcessor(ToolProvider.getSystemJavaCompiler(), options, StandardCharsets.UTF_8, threads);
+        assertTrue(processor.process(sources), processor.getDiagnostics());
+        assertEquals(TestModels.readFiles(generatedDir).keySet(), processor.getGenerated().values().stream()
+                .map(p -> generatedDir.relativize(p).toString().replace(File.separatorChar, '/')).collect(Collectors.toSet()));
+        return TestModels.readFiles(generatedDir);
+    }
+}
@@ -0,0 +1,211 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Partitions the managed classes of a project into persistence units with the weave goal, checking that each unit
+ * lists only its own classes
+ *
+ * @author Morten Haraldsen
+ */
+class PersistenceUnitMappingTest
+{
+    private static final String PACKAGE = "com.acme.units";
+    private static final String AUDITED = PACKAGE + ".Audited";
+
+    @TempDir
+    Path dir;
+
+    private Path classes;
+
+    private final List<String> warnings = new ArrayList<>();
+
+    @BeforeEach
+    void compileModel() throws Exception
+    {
+        final Map<String, String> sources = new LinkedHashMap<>();
+        sources.put(AUDITED, "package " + PACKAGE + ";\n"
+                + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+                + "public @interface Audited {}\n");
+        sources.put(PACKAGE + ".billing.Invoice", entity(PACKAGE + ".billing", "Invoice", ""));
+        sources.put(PACKAGE + ".billing.Payment", entity(PACKAGE + ".billing", "Payment", "@" + AUDITED + "\n"));
+        sources.put(PACKAGE + ".crm.Customer", entity(PACKAGE + ".crm", "Customer", ""));
+        sources.put(PACKAGE + ".crm.Contact", entity(PACKAGE + ".crm", "Contact", "@" + AUDITED + "\n"));
+        sources.put(PACKAGE + ".Setting", entity(PACKAGE, "Setting", ""));
+        classes = dir.resolve("target/classes");
+        TestModels.compile(TestModels.writeSources(dir.resolve("src"), sources), classes);
+    }
+
+    @Test
+    void eachUnitListsOnlyItsOwnClasses() throws Exception
+    {
+        weave(new PersistenceUnitMapping("billing", new String[]{PACKAGE + ".billing"}, null),
+                new PersistenceUnitMapping("audit", null, new String[]{AUDITED}),
+                new PersistenceUnitMapping("main", null, null));
+
+        final PersistenceXmlDocument doc = readPersistenceXml();
+        assertEquals(List.of("billing", "audit", "main"), doc.getUnitNames());
+        assertEquals(Set.of(PACKAGE + ".billing.Invoice", PACKAGE + ".billing.Payment"), doc.getClasses("billing"));
+        assertEquals(Set.of(PACKAGE + ".billing.Payment", PACKAGE + ".crm.Contact"), doc.getClasses("audit"));
+        assertEquals(Set.of(PACKAGE + ".Setting", PACKAGE + ".crm.Customer"), doc.getClasses("main"));
+        assertTrue(warnings.isEmpty(), warnings.toString());
+        for (String simpleName : List.of("billing.Invoice", "billing.Payment", "crm.Customer", "crm.Contact", "Setting"))
+        {
+            assertTrue(DirectoryWeaver.isWoven(Files.readAllBytes(classes.resolve(Utils.toClassFilePath(PACKAGE + "." + simpleName)))), simpleName);
+        }
+    }
+
+    @Test
+    void unmatchedClassesAreLeftOutWithoutDefaultUnit() throws Exception
+    {
+        weave(new PersistenceUnitMapping("billing", new String[]{PACKAGE + ".billing"}, null),
+                new PersistenceUnitMapping("crm", new String[]{PACKAGE + ".crm"}, null));
+
+        final PersistenceXmlDocument doc = readPersistenceXml();
+        assertEquals(List.of("billing", "crm"), doc.getUnitNames());
+        assertEquals(Set.of(PACKAGE + ".billing.Invoice", PACKAGE + ".billing.Payment"), doc.getClasses("billing"));
+        assertEquals(Set.of(PACKAGE + ".crm.Contact", PACKAGE + ".crm.Customer"), doc.getClasses("crm"));
+        assertFalse(doc.getClasses().contains(PACKAGE + ".Setting"));
+        assertEquals(1, warnings.size(), warnings.toString());
+        assertTrue(warnings.get(0).contains("do not belong to any persistence unit: [" + PACKAGE + ".Setting]"), warnings.get(0));
+    }
+
+    @Test
+    void existingUnitsKeepTheirClasses() throws Exception
+    {
+        final Path persistenceXml = classes.resolve("META-INF/persistence.xml");
+        Files.createDirectories(persistenceXml.getParent());
+        final PersistenceXmlDocument existing = PersistenceXmlDocument.create("crm");
+        existing.addClasses("crm", List.of(PACKAGE + ".Setting"));
+        Files.write(persistenceXml, existing.toBytes());
+
+        weave(new PersistenceUnitMapping("billing", new String[]{PACKAGE + ".billing"}, null),
+                new PersistenceUnitMapping("crm", new String[]{PACKAGE + ".crm"}, null));
+
+        // The class listed by hand stays where it is, and is not reported as missing from a unit
+        final PersistenceXmlDocument doc = readPersistenceXml();
+        assertEquals(List.of("crm", "billing"), doc.getUnitNames());
+        assertEquals(Set.of(PACKAGE + ".Setting", PACKAGE + ".crm.Contact", PACKAGE + ".crm.Customer"), doc.getClasses("crm"));
+        assertEquals(Set.of(PACKAGE + ".billing.Invoice", PACKAGE + ".billing.Payment"), doc.getClasses("billing"));
+    }
+
+    @Test
+    void unitNamesMustBeUnique()
+    {
+        final MojoExecutionException exc = assertThrows(MojoExecutionException.class, () -> weave(
+                new PersistenceUnitMapping("main", new String[]{PACKAGE + ".billing"}, null),
+                new PersistenceUnitMapping("main", null, null)));
+        assertTrue(exc.getCause() instanceof MojoFailureException, String.valueOf(exc.getCause()));
+        assertTrue(exc.getMessage().contains("unique <name>"), exc.getMessage());
+        assertFalse(Files.exists(classes.resolve("META-INF/persistence.xml")));
+    }
+
+    @Test
+    void matchesPackagesAndAnnotations()
+    {
+        final PersistenceUnitMapping mapping = new PersistenceUnitMapping("billing", new String[]{"com.acme.billing"}, new String[]{AUDITED});
+        assertTrue(mapping.matches("com.acme.billing.Invoice", Set.of()));
+        assertTrue(mapping.matches("com.acme.billing.internal.Ledger", Set.of()));
+        assertFalse(mapping.matches("com.acme.billingextra.Invoice", Set.of()));
+        assertTrue(mapping.matches("com.acme.crm.Contact", Set.of(AUDITED)));
+        assertFalse(mapping.isDefault());
+        assertTrue(new PersistenceUnitMapping("main", null, null).isDefault());
+    }
+
+    private static String entity(String packageName, String simpleName, String annotations)
+    {
+        return "package " + packageName + ";\n"
+                + annotations
+                + "@jakarta.persistence.Entity\n"
+                + "public class " + simpleName + " {\n"
+                + "    @jakarta.persistence.Id\n"
+                + "    private Long id;\n"
+                + "    private String name;\n"
+                + "}\n";
+    }
+
+    private PersistenceXmlDocument readPersistenceXml()
+    {
+        return PersistenceXmlDocument.read(classes.resolve("META-INF/persistence.xml"));
+    }
+
+    private void weave(PersistenceUnitMapping... mappings) throws Exception
+    {
+        final Log log = new SystemStreamLog()
+        {
+            @Override
+            public void info(CharSequence content)
+            {
+
+            }
+
+            @Override
+            public void debug(CharSequence content)
+            {
+
+            }
+
+            @Override
+            public void warn(CharSequence content)
+            {
+                warnings.add(content.toString());
+            }
+        };
+
+        final EclipselinkStaticWeaveMojo mojo = new EclipselinkStaticWeaveMojo();
+        mojo.setLog(log);
+        TestMojos.set(mojo, "project", TestMojos.project(classes));
+        TestMojos.set(mojo, "session", TestMojos.session());
+        TestMojos.set(mojo, "mojoExecution", TestMojos.execution("weave"));
+        TestMojos.set(mojo, "persistenceUnits", List.of(mappings));
+        TestMojos.set(mojo, "source", classes.toFile());
+        TestMojos.set(mojo, "target", classes.toFile());
+        TestMojos.set(mojo, "persistenceInfoLocation", classes.toFile());
+        TestMojos.set(mojo, "logLevel", "WARNING");
+        TestMojos.set(mojo, "addClassesToPersistenceFile", true);
+        TestMojos.set(mojo, "updatePersistenceXml", true);
+        TestMojos.set(mojo, "weaveThreads", 1);
+        TestMojos.set(mojo, "scanScope", ScanScope.OUTPUT_DIRECTORY);
+        TestMojos.set(mojo, "writeReport", false);
+        mojo.execute();
+    }
+}
@@ -0,0 +1,356 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Reads and edits persistence.xml files, checking that everything not edited is kept byte-for-byte and that the
+ * result is well-formed
+ *
+ * @author Morten Haraldsen
+ */
+class PersistenceXmlDocumentTest
+{
+    private static final String COMMENTS_AND_INSTRUCTIONS = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <!-- <persistence-unit name="commented"/> -->
+            <persistence xmlns="https://jakarta.ee/xml/ns/persistence" version="3.0">
+                <?editor fold="true"?>
+                <persistence-unit name="main">
+                    <!-- <class>com.acme.Commented</class> -->
+                    <provider>org.eclipse.persistence.jpa.PersistenceProvider</provider>
+                    <class>com.acme.B</class><!-- trailing > comment -->
+                    <class><![CDATA[com.acme.D]]></class>
+                    <?pi <class>com.acme.Instruction</class>?>
+                    <exclude-unlisted-classes>true</exclude-unlisted-classes>
+                    <properties>
+                        <property name="eclipselink.weaving" value="static"/>
+                        <property name="a" value="x > y"></property>
+                    </properties>
+                </persistence-unit>
+            </persistence>
+            """;
+
+    private static final String MULTIPLE_UNITS = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <persistence xmlns="https://jakarta.ee/xml/ns/persistence" version="3.0">
+                <persistence-unit name="first">
+                    <class>com.acme.first.A</class>
+                </persistence-unit>
+                <persistence-unit name="second">
+                    <class>com.acme.second.A</class>
+                    <properties>
+                        <property name="eclipselink.weaving" value="static"/>
+                    </properties>
+                </persistence-unit>
+            </persistence>
+            """;
+
+    @Test
+    void keepsCommentsAndProcessingInstructions()
+    {
+        final PersistenceXmlDocument doc = parse(COMMENTS_AND_INSTRUCTIONS, StandardCharsets.UTF_8);
+        assertUnchangedRoundTrip(doc, COMMENTS_AND_INSTRUCTIONS, StandardCharsets.UTF_8);
+        assertEquals(List.of("main"), doc.getUnitNames());
+        assertEquals(Set.of("com.acme.B", "com.acme.D"), doc.getClasses("main"));
+        assertEquals(Map.of("eclipselink.weaving", "static", "a", "x > y"), doc.getProperties("main"));
+
+        assertTrue(doc.addClassesSorted("main", List.of("com.acme.C", "com.acme.A", "com.acme.E")));
+        assertFalse(doc.addClassesSorted("main", List.of("com.acme.A", "com.acme.B")));
+        assertEquals(COMMENTS_AND_INSTRUCTIONS
+                .replace("        <class>com.acme.B</class>", "        <class>com.acme.A</class>\n        <class>com.acme.B</class>")
+                .replace("        <class><![CDATA[", "        <class>com.acme.C</class>\n        <class><![CDATA[")
+                .replace("]]></class>\n", "]]></class>\n        <class>com.acme.E</class>\n"), doc.toString());
+        assertEquals(List.of("com.acme.A", "com.acme.B", "com.acme.C", "com.acme.D", "com.acme.E"), readClasses(doc, "main"));
+    }
+
+    @Test
+    void expandsSelfClosingElements()
+    {
+        final String xml = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <persistence xmlns="https://jakarta.ee/xml/ns/persistence" version="3.0">
+                    <persistence-unit name="empty"/>
+                    <persistence-unit name="emptyProperties">
+                        <provider>org.eclipse.persistence.jpa.PersistenceProvider</provider>
+                        <properties />
+                    </persistence-unit>
+                </persistence>
+                """;
+        final PersistenceXmlDocument doc = parse(xml, StandardCharsets.UTF_8);
+        assertUnchangedRoundTrip(doc, xml, StandardCharsets.UTF_8);
+        assertFalse(doc.addClasses("empty", List.of()));
+        assertEquals(xml, doc.toString());
+
+        assertTrue(doc.addClasses("empty", List.of("com.acme.B", "com.acme.A")));
+        assertTrue(doc.setProperty("empty", "eclipselink.weaving", "static"));
+        assertTrue(doc.setProperty("emptyProperties", "eclipselink.weaving", "static"));
+        assertEquals("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <persistence xmlns="https://jakarta.ee/xml/ns/persistence" version="3.0">
+                    <persistence-unit name="empty">
+                        <class>com.acme.B</class>
+                        <class>com.acme.A</class>
+                        <properties>
+                            <property name="eclipselink.weaving" value="static"/>
+                        </properties>
+                    </persistence-unit>
+                    <persistence-unit name="emptyProperties">
+                        <provider>org.eclipse.persistence.jpa.PersistenceProvider</provider>
+                        <properties>
+                            <property name="eclipselink.weaving" value="static"/>
+                        </properties>
+                    </persistence-unit>
+                </persistence>
+                """, doc.toString());
+        assertEquals(List.of("com.acme.B", "com.acme.A"), readClasses(doc, "empty"));
+    }
+
+    @Test
+    void usesTheNamespacePrefixOfTheDocument()
+    {
+        final String xml = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <p:persistence xmlns:p="https://jakarta.ee/xml/ns/persistence" version="3.0">
+                    <p:persistence-unit name="main">
+                        <p:class>com.acme.B</p:class>
+                    </p:persistence-unit>
+                </p:persistence>
+                """;
+        final PersistenceXmlDocument doc = parse(xml, StandardCharsets.UTF_8);
+        assertUnchangedRoundTrip(doc, xml, StandardCharsets.UTF_8);
+        doc.addClassesSorted("main", List.of("com.acme.A", "com.acme.C"));
+        doc.setProperty("main", "eclipselink.weaving", "static");
+        doc.addUnit("other");
+        assertEquals("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <p:persistence xmlns:p="https://jakarta.ee/xml/ns/persistence" version="3.0">
+                    <p:persistence-unit name="main">
+                        <p:class>com.acme.A</p:class>
+                        <p:class>com.acme.B</p:class>
+                        <p:class>com.acme.C</p:class>
+                        <p:properties>
+                            <p:property name="eclipselink.weaving" value="static"/>
+                        </p:properties>
+                    </p:persistence-unit>
+                    <p:persistence-unit name="other">
+                        <p:provider>org.eclipse.persistence.jpa.PersistenceProvider</p:provider>
+                        <p:properties>
+                            <p:property name="eclipselink.weaving" value="static"/>
+                        </p:properties>
+                    </p:persistence-unit>
+                </p:persistence>
+                """, doc.toString());
+        assertEquals(List.of("com.acme.A", "com.acme.B", "com.acme.C"), readClasses(doc, "main"));
+    }
+
+    @Test
+    void keepsTheDeclaredEncoding()
+    {
+        final String xml = """
+                <?xml version='1.0' encoding='ISO-8859-1'?>
+                <!-- Søren's entities: æøå -->
+                <persistence xmlns="https://jakarta.ee/xml/ns/persistence" version="3.0">
+                    <persistence-unit name="main">
+                        <class>com.acme.Bøk</class>
+                    </persistence-unit>
+                </persistence>
+                """;
+        final Charset latin1 = StandardCharsets.ISO_8859_1;
+        final PersistenceXmlDocument doc = parse(xml, latin1);
+        assertUnchangedRoundTrip(doc, xml, latin1);
+        assertEquals(Set.of("com.acme.Bøk"), doc.getClasses("main"));
+
+        doc.addClasses("main", List.of("com.acme.Ål"));
+        assertArrayEquals(xml.replace("</class>\n", "</class>\n        <class>com.acme.Ål</class>\n").getBytes(latin1), doc.toBytes());
+        assertEquals(List.of("com.acme.Bøk", "com.acme.Ål"), readClasses(doc, "main"));
+    }
+
+    @Test
+    void keepsTheByteOrderMark()
+    {
+        final String xml = "﻿" + MULTIPLE_UNITS;
+        final byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        assertEquals((byte) 0xEF, bytes[0]);
+        final PersistenceXmlDocument doc = PersistenceXmlDocument.parse(bytes);
+        assertArrayEquals(bytes, doc.toBytes());
+
+        doc.addClasses("first", List.of("com.acme.first.B"));
+        final byte[] edited = doc.toBytes();
+        assertArrayEquals(("﻿" + MULTIPLE_UNITS.replace("first.A</class>\n", "first.A</class>\n        <class>com.acme.first.B</class>\n")).getBytes(StandardCharsets.UTF_8), edited);
+        assertEquals(List.of("com.acme.first.A", "com.acme.first.B"), readClasses(doc, "first"));
+    }
+
+    @Test
+    void keepsWindowsLineEndings()
+    {
+        final String xml = MULTIPLE_UNITS.replace("\n", "\r\n");
+        final PersistenceXmlDocument doc = parse(xml, StandardCharsets.UTF_8);
+        assertUnchangedRoundTrip(doc, xml, StandardCharsets.UTF_8);
+
+        doc.addClassesSorted("first", List.of("com.acme.first.B"));
+        doc.setProperty("first", "eclipselink.weaving", "static");
+        doc.setProperty("second", "eclipselink.logging.level", "FINE");
+        doc.addUnit("third");
+        doc.addClasses("third", List.of("com.acme.third.A"));
+        final String edited = doc.toString();
+        assertFalse(edited.replace("\r\n", "").contains("\n"), edited);
+        assertFalse(edited.replace("\r\n", "").contains("\r"), edited);
+        assertEquals(List.of("first", "second", "third"), doc.getUnitNames());
+        assertEquals(List.of("com.acme.third.A"), readClasses(doc, "third"));
+        assertEquals(List.of("com.acme.first.A", "com.acme.first.B"), readClasses(doc, "first"));
+    }
+
+    @Test
+    void addsUnits()
+    {
+        final PersistenceXmlDocument doc = PersistenceXmlDocument.create("first");
+        doc.addClasses("first", List.of("com.acme.A"));
+        doc.addUnit("second");
+        doc.addClassesSorted("second", List.of("com.acme.C", "com.acme.B"));
+        assertThrows(IllegalArgumentException.class, () -> doc.addUnit("first"));
+        assertEquals("""
+                <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                <persistence xmlns="https://jakarta.ee/xml/ns/persistence">
+                    <persistence-unit name="first">
+                        <provider>org.eclipse.persistence.jpa.PersistenceProvider</provider>
+                        <class>com.acme.A</class>
+                        <properties>
+                            <property name="eclipselink.weaving" value="static"/>
+                        </properties>
+                    </persistence-unit>
+                    <persistence-unit name="second">
+                        <provider>org.eclipse.persistence.jpa.PersistenceProvider</provider>
+                        <class>com.acme.B</class>
+                        <class>com.acme.C</class>
+                        <properties>
+                            <property name="eclipselink.weaving" value="static"/>
+                        </properties>
+                    </persistence-unit>
+                </persistence>""", doc.toString());
+    }
+
+    @Test
+    void setsExistingAndMissingProperties()
+    {
+        final PersistenceXmlDocument doc = parse(COMMENTS_AND_INSTRUCTIONS, StandardCharsets.UTF_8);
+        assertFalse(doc.setProperty("main", "eclipselink.weaving", "static"));
+        assertEquals(COMMENTS_AND_INSTRUCTIONS, doc.toString());
+
+        // Replaced in place, also when written with an end tag
+        assertTrue(doc.setProperty("main", "a", "1 & 2"));
+        assertTrue(doc.setProperty("main", "eclipselink.weaving", "dynamic"));
+        assertTrue(doc.setProperty("main", "b", "new"));
+        assertEquals(COMMENTS_AND_INSTRUCTIONS
+                .replace("value=\"static\"", "value=\"dynamic\"")
+                .replace("<property name=\"a\" value=\"x > y\"></property>", "<property name=\"a\" value=\"1 &amp; 2\"/>\n            <property name=\"b\" value=\"new\"/>"), doc.toString());
+        assertEquals(Map.of("eclipselink.weaving", "dynamic", "a", "1 & 2", "b", "new"), doc.getProperties("main"));
+
+        // A unit without properties gets a properties element
+        final PersistenceXmlDocument multiple = parse(MULTIPLE_UNITS, StandardCharsets.UTF_8);
+        assertTrue(multiple.setProperty("first", "c", "d"));
+        assertEquals(MULTIPLE_UNITS.replace("first.A</class>\n", "first.A</class>\n        <properties>\n            <property name=\"c\" value=\"d\"/>\n        </properties>\n"), multiple.toString());
+        assertEquals(Map.of("c", "d"), multiple.getProperties("first"));
+        assertEquals(Map.of("eclipselink.weaving", "static"), multiple.getProperties("second"));
+    }
+
+    @Test
+    void keepsUnitsApart()
+    {
+        final PersistenceXmlDocument doc = parse(MULTIPLE_UNITS, StandardCharsets.UTF_8);
+        assertUnchangedRoundTrip(doc, MULTIPLE_UNITS, StandardCharsets.UTF_8);
+        assertEquals(List.of("first", "second"), doc.getUnitNames());
+        assertEquals(Set.of("com.acme.first.A", "com.acme.second.A"), doc.getClasses());
+
+        // Classes listed in any unit are not added to the first one again
+        assertTrue(doc.addClasses(List.of("com.acme.second.A", "com.acme.Shared")));
+        assertTrue(doc.addClasses("second", List.of("com.acme.second.B", "com.acme.second.A")));
+        assertFalse(doc.addClasses("second", List.of("com.acme.second.B")));
+        assertEquals(List.of("com.acme.first.A", "com.acme.Shared"), readClasses(doc, "first"));
+        assertEquals(List.of("com.acme.second.A", "com.acme.second.B"), readClasses(doc, "second"));
+        assertThrows(IllegalArgumentException.class, () -> doc.addClasses("missing", List.of("com.acme.A")));
+    }
+
+    private static PersistenceXmlDocument parse(String xml, Charset charset)
+    {
+        return PersistenceXmlDocument.parse(xml.getBytes(charset));
+    }
+
+    private static void assertUnchangedRoundTrip(PersistenceXmlDocument doc, String xml, Charset charset)
+    {
+        assertArrayEquals(xml.getBytes(charset), doc.toBytes());
+        assertArrayEquals(xml.getBytes(charset), PersistenceXmlDocument.parse(doc.toBytes()).toBytes());
+    }
+
+    /**
+     * @return The classes of the persistence unit, read with a DOM parser from the bytes of the document
+     */
+    private static List<String> readClasses(PersistenceXmlDocument doc, String unitName)
+    {
+        try
+        {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            final Document dom = factory.newDocumentBuilder().parse(new ByteArrayInputStream(doc.toBytes()));
+            final NodeList units = dom.getElementsByTagNameNS(PersistenceXmlDocument.NAMESPACE, "persistence-unit");
+            for (int i = 0; i < units.getLength(); i++)
+            {
+                final Element unit = (Element) units.item(i);
+                if (unitName.equals(unit.getAttribute("name")))
+                {
+                    final List<String> result = new ArrayList<>();
+                    final NodeList classes = unit.getElementsByTagNameNS(PersistenceXmlDocument.NAMESPACE, "class");
+                    for (int j = 0; j < classes.getLength(); j++)
+                    {
+                        result.add(classes.item(j).getTextContent().trim());
+                    }
+                    assertEquals(result, new ArrayList<>(doc.getClasses(unitName)));
+                    return result;
+                }
+            }
+            throw new AssertionError("No persistence unit " + unitName);
+        }
+        catch (Exception exc)
+        {
+            throw new AssertionError(exc.getMessage(), exc);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the ordering of the statements in the generated scripts when reproducible output is enabled
+ *
+ * @author Morten Haraldsen
+ */
+class SchemaGeneratorTest
+{
+    private static final String SCRIPT = "CREATE TABLE PERSON (ID BIGINT NOT NULL, PRIMARY KEY (ID))\n"
+            + "CREATE TABLE CAR (ID BIGINT NOT NULL, OWNER_ID BIGINT, PRIMARY KEY (ID))\n"
+            + "ALTER TABLE PERSON ADD CONSTRAINT FK_B FOREIGN KEY (B_ID) REFERENCES B (ID)\n"
+            + "ALTER TABLE CAR ADD CONSTRAINT FK_A FOREIGN KEY (OWNER_ID) REFERENCES PERSON (ID)\n"
+            + "CREATE TABLE SEQUENCE (SEQ_NAME VARCHAR(50) NOT NULL, PRIMARY KEY (SEQ_NAME))\n"
+            + "INSERT INTO SEQUENCE(SEQ_NAME, SEQ_COUNT) values ('SEQ_GEN', 0)\n";
+
+    private static final String SORTED = "CREATE TABLE CAR (ID BIGINT NOT NULL, OWNER_ID BIGINT, PRIMARY KEY (ID))\n"
+            + "CREATE TABLE PERSON (ID BIGINT NOT NULL, PRIMARY KEY (ID))\n"
+            + "ALTER TABLE CAR ADD CONSTRAINT FK_A FOREIGN KEY (OWNER_ID) REFERENCES PERSON (ID)\n"
+            + "ALTER TABLE PERSON ADD CONSTRAINT FK_B FOREIGN KEY (B_ID) REFERENCES B (ID)\n"
+            + "CREATE TABLE SEQUENCE (SEQ_NAME VARCHAR(50) NOT NULL, PRIMARY KEY (SEQ_NAME))\n"
+            + "INSERT INTO SEQUENCE(SEQ_NAME, SEQ_COUNT) values ('SEQ_GEN', 0)\n";
+
+    @Test
+    void sortsRunsOfStatementsOfTheSameKind()
+    {
+        assertEquals(SORTED, SchemaGenerator.normalizeScript(SCRIPT));
+        assertEquals(SORTED, SchemaGenerator.normalizeScript(SORTED));
+    }
+
+    @Test
+    void keepsTheLineSeparator()
+    {
+        assertEquals(SORTED.replace("\n", "\r\n"), SchemaGenerator.normalizeScript(SCRIPT.replace("\n", "\r\n")));
+        assertEquals(SORTED.trim().replace("\n", "\r\n"), SchemaGenerator.normalizeScript(SCRIPT.trim().replace("\n", "\r\n")));
+        assertEquals(SORTED.trim(), SchemaGenerator.normalizeScript(SCRIPT.trim()));
+        assertEquals("", SchemaGenerator.normalizeScript(""));
+        assertEquals("\n", SchemaGenerator.normalizeScript("\n"));
+    }
+}
@@ -0,0 +1,310 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.eclipse.persistence.logging.SessionLog;
+
+/**
+ * Writes and compiles small entity models for the tests
+ *
+ * @author Morten Haraldsen
+ */
+final class TestModels
+{
+    private TestModels()
+    {
+
+    }
+
+    /**
+     * A mapped superclass, an embeddable and two related entities in the package
+     *
+     * @return The sources, by class name
+     */
+    static Map<String, String> simpleModel(String packageName)
+    {
+        final Map<String, String> sources = new TreeMap<>();
+        sources.put(packageName + ".BaseEntity", "package " + packageName + ";\n"
+                + "@jakarta.persistence.MappedSuperclass\n"
+                + "public abstract class BaseEntity {\n"
+                + "    @jakarta.persistence.Id private Long id;\n"
+                + "    @jakarta.persistence.Version private int version;\n"
+                + "    public Long getId() { return id; }\n"
+                + "}\n");
+        sources.put(packageName + ".Address", "package " + packageName + ";\n"
+                + "@jakarta.persistence.Embeddable\n"
+                + "public class Address {\n"
+                + "    private String street;\n"
+                + "    private String city;\n"
+                + "}\n");
+        sources.put(packageName + ".Person", "package " + packageName + ";\n"
+                + "@jakarta.persistence.Entity\n"
+                + "public class Person extends BaseEntity {\n"
+                + "    private String name;\n"
+                + "    @jakarta.persistence.Embedded private Address address;\n"
+                + "    @jakarta.persistence.OneToMany(mappedBy = \"owner\") private java.util.List<Car> cars;\n"
+                + "    public String getName() { return name; }\n"
+                + "}\n");
+        sources.put(packageName + ".Car", "package " + packageName + ";\n"
+                + "@jakarta.persistence.Entity\n"
+                + "public class Car extends BaseEntity {\n"
+                + "    private String model;\n"
+                + "    @jakarta.persistence.ManyToOne private Person owner;\n"
+                + "}\n");
+        return sources;
+    }
+
+    /**
+     * Generic mapped superclasses, an entity hierarchy, embeddables extending a mapped superclass and another
+     * embeddable, embeddables used as embedded attribute, element collection and map key, the collection types and maps
+     * of basic, enum, embeddable and entity values
+     *
+     * @return The sources, by class name
+     */
+    static Map<String, String> richModel(String packageName)
+    {
+        final Map<String, String> sources = new TreeMap<>();
+        sources.put(packageName + ".AbstractEntity", "package " + packageName + ";\n"
+                + "@jakarta.persistence.MappedSuperclass\n"
+                + "public abstract class AbstractEntity<ID extends java.io.Serializable> {\n"
+                + "    @jakarta.persistence.Id private ID id;\n"
+                + "    private java.time.Instant created;\n"
+                + "}\n");
+        sources.put(packageName + ".Dimensions", "package " + packageName + ";\n"
+                + "@jakarta.persistence.Embeddable\n"
+                + "public class Dimensions {\n"
+                + "    private double width;\n"
+                + "    private double height;\n"
+                + "}\n");
+        sources.put(packageName + ".Part", "package " + packageName + ";\n"
+                + "@jakarta.persistence.Embeddable\n"
+                + "public class Part {\n"
+                + "    private String name;\n"
+                + "    @jakarta.persistence.Embedded private Dimensions dimensions;\n"
+                + "}\n");
+        sources.put(packageName + ".Color", "package " + packageName + ";\n"
+                + "public enum Color { RED, GREEN }\n");
+        sources.put(packageName + ".Labelled", "package " + packageName + ";\n"
+                + "@jakarta.persistence.MappedSuperclass\n"
+                + "public abstract class Labelled<L extends Comparable<L>> {\n"
+                + "    private L label;\n"
+                + "    private java.util.Locale locale;\n"
+                + "}\n");
+        sources.put(packageName + ".Measure", "package " + packageName + ";\n"
+                + "@jakarta.persistence.Embeddable\n"
+                + "public class Measure extends Labelled<String> {\n"
+                + "    private double amount;\n"
+                + "}\n");
+        sources.put(packageName + ".Weight", "package " + packageName + ";\n"
+                + "@jakarta.persistence.Embeddable\n"
+                + "public class Weight extends Measure {\n"
+                + "    @jakarta.persistence.Enumerated(jakarta.persistence.EnumType.STRING) private Unit unit;\n"
+                + "    public enum Unit { KG, LB }\n"
+                + "}\n");
+        sources.put(packageName + ".Vehicle", "package " + packageName + ";\n"
+                + "@jakarta.persistence.Entity\n"
+                + "@jakarta.persistence.Inheritance(strategy = jakarta.persistence.InheritanceType.JOINED)\n"
+                + "public class Vehicle extends AbstractEntity<Long> {\n"
+                + "    private String model;\n"
+                + "    @jakarta.persistence.Enumerated private Color color;\n"
+                + "    private byte[] picture;\n"
+                + "    @jakarta.persistence.Embedded private Dimensions dimensions;\n"
+                + "    @jakarta.persistence.ElementCollection private java.util.List<Part> parts;\n"
+                + "    @jakarta.persistence.ElementCollection private java.util.Set<String> tags;\n"
+                + "    @jakarta.persistence.ManyToOne private Garage garage;\n"
+                + "}\n");
+        sources.put(packageName + ".Truck", "package " + packageName + ";\n"
+                + "@jakarta.persistence.Entity\n"
+                + "public class Truck extends Vehicle {\n"
+                + "    private int axles;\n"
+                + "    @jakarta.persistence.ElementCollection private java.util.Map<String, Integer> loads;\n"
+                + "    @jakarta.persistence.Embedded private Weight maxWeight;\n"
+                + "    @jakarta.persistence.ElementCollection private java.util.List<Weight> weighings;\n"
+                + "    @jakarta.persistence.ElementCollection private java.util.Map<Dimensions, Weight> weightsByDimensions;\n"
+                + "    @jakarta.persistence.ElementCollection @jakarta.persistence.Enumerated private java.util.Set<Color> colors;\n"
+                + "}\n");
+        sources.put(packageName + ".Garage", "package " + packageName + ";\n"
+                + "@jakarta.persistence.Entity\n"
+                + "public class Garage extends AbstractEntity<String> {\n"
+                + "    private String name;\n"
+                + "    @jakarta.persistence.OneToMany(mappedBy = \"garage\") private java.util.Collection<Vehicle> vehicles;\n"
+                + "    @jakarta.persistence.OneToMany @jakarta.persistence.MapKey(name = \"model\") private java.util.Map<String, Truck> trucksByModel;\n"
+                + "    @jakarta.persistence.ElementCollection private java.util.Map<Color, Part> spareParts;\n"
+                + "    @jakarta.persistence.ManyToMany private java.util.SortedSet<Garage> partners;\n"
+                + "}\n");
+        return sources;
+    }
+
+    /**
+     * @param sources The sources, by class name
+     * @return The source files written
+     */
+    static List<Path> writeSources(Path sourceDir, Map<String, String> sources) throws IOException
+    {
+        final List<Path> result = new ArrayList<>();
+        for (Map.Entry<String, String> e : sources.entrySet())
+        {
+            final Path file = sourceDir.resolve(e.getKey().replace('.', '/') + ".java");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, e.getValue(), StandardCharsets.UTF_8);
+            result.add(file);
+        }
+        return result;
+    }
+
+    /**
+     * Compile the sources against the test class-path, without annotation processing
+     */
+    static void compile(List<Path> sourceFiles, Path classesDir) throws IOException
+    {
+        compile(sourceFiles, classesDir, List.of());
+    }
+
+    /**
+     * Compile the sources against the given directories and the test class-path, without annotation processing
+     */
+    static void compile(List<Path> sourceFiles, Path classesDir, List<Path> classPath) throws IOException
+    {
+        compile(sourceFiles, classesDir, classPath, List.of("-proc:none"));
+    }
+
+    /**
+     * Compile the sources against the test class-path together with their meta-model, like a module with the
+     * meta-model generator as annotation processor. The meta-model sources are written next to the classes directory
+     */
+    static void compileWithMetamodel(List<Path> sourceFiles, Path classesDir) throws IOException
+    {
+        final Path generatedDir = classesDir.resolveSibling(classesDir.getFileName() + "-metamodel");
+        Files.createDirectories(generatedDir);
+        compile(sourceFiles, classesDir, List.of(), List.of("-processor", org.hibernate.jpamodelgen.JPAMetaModelEntityProcessor.class.getName(), "-s", generatedDir.toString()));
+    }
+
+    private static void compile(List<Path> sourceFiles, Path classesDir, List<Path> classPath, List<String> options) throws IOException
+    {
+        Files.createDirectories(classesDir);
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final StringBuilder fullClassPath = new StringBuilder();
+        for (Path dir : classPath)
+        {
+            fullClassPath.append(dir).append(File.pathSeparator);
+        }
+        fullClassPath.append(getTestClassPath());
+        final List<String> args = new ArrayList<>(options);
+        args.addAll(List.of("-encoding", "UTF-8", "-classpath", fullClassPath.toString(), "-d", classesDir.toString()));
+        for (Path file : sourceFiles)
+        {
+            args.add(file.toString());
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final int result = compiler.run(null, out, out, args.toArray(new String[0]));
+        if (result != 0)
+        {
+            throw new IllegalStateException("Compilation failed: " + out.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Write a persistence.xml with the managed classes found in the classes directory and weave them in place
+     */
+    static void weaveInPlace(Path classes, String unitName) throws Exception
+    {
+        final Set<String> entities = EntityScanner.findEntityTypes(new String[0], new File[]{classes.toFile()}, 2, false, null, null).keySet();
+        final PersistenceXmlDocument doc = PersistenceXmlHelper.createXml(unitName);
+        PersistenceXmlHelper.appendClasses(doc, entities, true);
+        PersistenceXmlHelper.outputXml(doc, classes.resolve("META-INF/persistence.xml"));
+
+        final URL[] urls = {classes.toUri().toURL()};
+        try (final URLClassLoader classLoader = new URLClassLoader(urls, TestModels.class.getClassLoader());
+             final ClassWeaver weaver = new ClassWeaver(classes.toFile(), classes.toFile(), classLoader, SessionLog.WARNING))
+        {
+            final DirectoryWeaver directoryWeaver = new DirectoryWeaver(classes, classes, 2);
+            final List<String> classFiles = directoryWeaver.listFiles().stream().filter(f -> f.endsWith(".class")).collect(Collectors.toList());
+            directoryWeaver.process(weaver, classFiles, List.of());
+        }
+    }
+
+    static String getTestClassPath()
+    {
+        // Surefire passes the class-path in a manifest-only jar
+        return System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+    }
+
+    static File[] getClassPathFiles()
+    {
+        return Arrays.stream(getTestClassPath().split(File.pathSeparator)).map(File::new).toArray(File[]::new);
+    }
+
+    static void copyDirectory(Path source, Path target) throws IOException
+    {
+        final List<Path> files;
+        try (final Stream<Path> walk = Files.walk(source))
+        {
+            files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+
+        for (Path file : files)
+        {
+            final Path copy = target.resolve(source.relativize(file).toString());
+            Files.createDirectories(copy.getParent());
+            Files.copy(file, copy);
+        }
+    }
+
+    /**
+     * @return The content of all files in the directory, by relative path
+     */
+    static Map<String, byte[]> readFiles(Path dir) throws IOException
+    {
+        final Map<String, byte[]> result = new TreeMap<>();
+        final List<Path> files;
+        try (final Stream<Path> walk = Files.walk(dir))
+        {
+            files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+
+        for (Path file : files)
+        {
+            result.put(dir.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/"), Files.readAllBytes(file));
+        }
+        return result;
+    }
+}
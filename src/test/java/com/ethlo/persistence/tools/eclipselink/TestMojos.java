@@ -0,0 +1,170 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystemSession;
+
+/**
+ * Sets up the goals with a project, a session and their parameters, like Maven does, so they can be executed in tests
+ *
+ * @author Morten Haraldsen
+ */
+final class TestMojos
+{
+    /**
+     * Only the warnings and errors, the goals log a lot at info level
+     */
+    static final Log QUIET_LOG = new SystemStreamLog()
+    {
+        @Override
+        public void info(CharSequence content)
+        {
+
+        }
+
+        @Override
+        public void debug(CharSequence content)
+        {
+
+        }
+    };
+
+    private TestMojos()
+    {
+
+    }
+
+    /**
+     * @param outputDirectory The classes directory of the project
+     * @param dependencies    Other directories on the class-path, before the jars of the test class-path
+     * @return A project with the output directory, the given directories and the test class-path as class-path
+     */
+    static MavenProject project(Path outputDirectory, Path... dependencies)
+    {
+        final List<String> classPath = new ArrayList<>();
+        classPath.add(outputDirectory.toString());
+        for (Path dependency : dependencies)
+        {
+            classPath.add(dependency.toString());
+        }
+        classPath.addAll(Arrays.asList(TestModels.getTestClassPath().split(File.pathSeparator)));
+
+        final MavenProject project = new MavenProject()
+        {
+            @Override
+            public List<String> getCompileClasspathElements()
+            {
+                return classPath;
+            }
+
+            @Override
+            public List<String> getTestClasspathElements()
+            {
+                return classPath;
+            }
+        };
+        project.setGroupId("com.acme");
+        project.setArtifactId("test");
+        project.setVersion("1.0");
+        project.getBuild().setDirectory(outputDirectory.getParent().toString());
+        project.getBuild().setOutputDirectory(outputDirectory.toString());
+        return project;
+    }
+
+    static MavenSession session()
+    {
+        return new MavenSession(null, (RepositorySystemSession) null, new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+    }
+
+    static MojoExecution execution(String goal)
+    {
+        return new MojoExecution(new Plugin(), goal, "test");
+    }
+
+    /**
+     * @return The counts of a written build report
+     */
+    static Map<String, Long> readReportCounts(Path reportFile) throws IOException
+    {
+        final String json = Files.readString(reportFile, StandardCharsets.UTF_8);
+        final Matcher counts = Pattern.compile("\"counts\": \\{([^}]*)}").matcher(json);
+        if (!counts.find())
+        {
+            throw new IllegalArgumentException("No counts in " + reportFile);
+        }
+
+        final Map<String, Long> result = new TreeMap<>();
+        final Matcher count = Pattern.compile("\"([^\"]+)\": (-?\\d+)").matcher(counts.group(1));
+        while (count.find())
+        {
+            result.put(count.group(1), Long.parseLong(count.group(2)));
+        }
+        return result;
+    }
+
+    /**
+     * Set a parameter, or any other field, of the goal or one of its superclasses
+     */
+    static void set(Object mojo, String name, Object value)
+    {
+        for (Class<?> type = mojo.getClass(); type != null; type = type.getSuperclass())
+        {
+            try
+            {
+                final Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(mojo, value);
+                return;
+            }
+            catch (NoSuchFieldException exc)
+            {
+                // Declared by a superclass
+            }
+            catch (IllegalAccessException exc)
+            {
+                throw new IllegalStateException(exc.getMessage(), exc);
+            }
+        }
+        throw new IllegalArgumentException("No field " + name + " in " + mojo.getClass().getName());
+    }
+}
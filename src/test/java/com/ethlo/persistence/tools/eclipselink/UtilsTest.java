@@ -0,0 +1,85 @@
+package com.ethlo.persistence.tools.eclipselink;
+
+/*-
+ * #%L
+ * Eclipselink Maven Plugin
+ * %%
+ * Copyright (C) 2013 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that {@link Utils#writeIfChanged(Path, byte[])} only writes changed content, and that the written files get
+ * the same permissions as files created the normal way, not the owner only permissions of temporary files.
+ *
+ * @author Morten Haraldsen
+ */
+class UtilsTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesOnlyChangedContent() throws Exception
+    {
+        final Path file = dir.resolve("out").resolve("persistence.xml");
+        final byte[] content = "<persistence/>".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(Utils.writeIfChanged(file, content));
+        assertFalse(Utils.writeIfChanged(file, content));
+        assertArrayEquals(content, Files.readAllBytes(file));
+
+        final byte[] changed = "<persistence version=\"3.0\"/>".getBytes(StandardCharsets.UTF_8);
+        assertTrue(Utils.writeIfChanged(file, changed));
+        assertArrayEquals(changed, Files.readAllBytes(file));
+
+        try (var files = Files.list(file.getParent()))
+        {
+            assertEquals(1, files.count(), "No temporary files left behind");
+        }
+    }
+
+    @Test
+    void keepsDefaultPermissions() throws Exception
+    {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+
+        final Path reference = Files.write(dir.resolve("reference.txt"), new byte[]{1});
+        final Set<PosixFilePermission> expected = Files.getPosixFilePermissions(reference);
+
+        final Path file = dir.resolve("written.txt");
+        Utils.writeIfChanged(file, new byte[]{1});
+        assertEquals(expected, Files.getPosixFilePermissions(file));
+
+        Utils.writeIfChanged(file, new byte[]{2});
+        assertEquals(expected, Files.getPosixFilePermissions(file));
+    }
+}